@@ -0,0 +1,135 @@
+package com.couponbot.couponbot.bot;
+
+import com.couponbot.couponbot.metrics.TelegramApiMetrics;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-update instrumentation cost: UpdateType.of plus the bot.update.handle Timer, and the
+ * telegram.api.requests Timer, both with the percentile histograms application.yaml turns on,
+ * against classifying and timing the same updates with nothing recorded. Add -t 4 to see
+ * recording threads contend on the same histogram:
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="UpdateMetricsBenchmark"
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="UpdateMetricsBenchmark -t 4 -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class UpdateMetricsBenchmark {
+
+    private static final int UPDATES = 1_024;
+
+    private static final String[] TEXTS = {
+            "/start", "📜 Available Coupons", "📤 Submit Coupon", "/subscribe Canva", "/myclaims",
+            "Canva Pro 1 month free ABC12345", "Canva", "/stats"};
+    private static final String[] CALLBACKS = {
+            "plt_Canva", "view_123456", "pg_Canva_2", "claim_123456", "next_Canva", "verify_join", "sub_Canva"};
+    private static final String[] API_METHODS = {"sendMessage", "editMessageText", "answerCallbackQuery", "getChatMember"};
+
+    // the same settings as management.metrics.distribution in application.yaml
+    private static final Map<String, Duration> HISTOGRAMS = Map.of(
+            "bot.update.handle", Duration.ofSeconds(10),
+            "telegram.api.requests", Duration.ofSeconds(30));
+
+    private Update[] updates;
+    private long[] nanos;
+    private UpdateMetrics updateMetrics;
+    private TelegramApiMetrics apiMetrics;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        updates = new Update[UPDATES];
+        nanos = new long[UPDATES];
+        for (int i = 0; i < UPDATES; i++) {
+            Update u = new Update();
+            u.setUpdateId(i);
+            if (random.nextInt(3) == 0) {
+                CallbackQuery cb = new CallbackQuery();
+                cb.setData(CALLBACKS[random.nextInt(CALLBACKS.length)]);
+                u.setCallbackQuery(cb);
+            } else {
+                Message m = new Message();
+                m.setText(TEXTS[random.nextInt(TEXTS.length)]);
+                u.setMessage(m);
+            }
+            updates[i] = u;
+            // handlers take from 100 µs to a few hundred ms, spread over the histogram buckets
+            nanos[i] = (long) (100_000 * Math.pow(3_000, random.nextDouble()));
+        }
+
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                Duration max = HISTOGRAMS.get(id.getName());
+                if (max == null) return config;
+                return DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .maximumExpectedValue((double) max.toNanos())
+                        .build()
+                        .merge(config);
+            }
+        });
+        updateMetrics = new UpdateMetrics(registry);
+        apiMetrics = new TelegramApiMetrics(registry);
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = (i + 1) & (UPDATES - 1);
+        return i;
+    }
+
+    // What handleUpdate does around route() with the recording taken out
+    @Benchmark
+    public void baseline(Blackhole bh) {
+        int i = nextIndex();
+        long started = System.nanoTime();
+        bh.consume(UpdateType.of(updates[i]));
+        bh.consume(System.nanoTime() - started + nanos[i]);
+    }
+
+    @Benchmark
+    public void updateMetrics() {
+        int i = nextIndex();
+        long started = System.nanoTime();
+        UpdateType type = UpdateType.of(updates[i]);
+        updateMetrics.record(type, System.nanoTime() - started + nanos[i]);
+    }
+
+    @Benchmark
+    public void telegramApiMetrics() {
+        int i = nextIndex();
+        long started = System.nanoTime();
+        apiMetrics.record(API_METHODS[i & 3], "ok", System.nanoTime() - started + nanos[i]);
+    }
+}
@@ -0,0 +1,79 @@
+package com.couponbot.couponbot.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CouponParser against the regex parser it replaced (LegacyCouponParser, src/test), over a
+ * fixed batch of channel-style posts. Run with -prof gc to compare allocation per post:
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="CouponParserBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CouponParserBenchmark {
+
+    private static final int POSTS = 1_024;
+
+    private static final String[] TEMPLATES = {
+            "🔥 Canva Pro for FREE! Use code %s before it's gone. Valid till 31 Dec, first come first served.",
+            "Adobe Creative Cloud 3 months: %s\nRedeem at the Adobe account page. Limited stock!!",
+            "LinkedIn Premium trial ➡️ https://linkedin.com/premium/redeem?code=%s",
+            "Netflix gift card %s (India only) - claim fast, expires 2025-12-31",
+            "Spotify Premium Duo — code: %s — enjoy 🎧 and share with a friend",
+            "Amazon voucher %s worth ₹500. Terms apply. Save more with Prime.",
+            "New drop for the channel! %s works on most platforms, start now and tell your friends about it.",
+            "Promo %s"};
+
+    @Param({"short", "long"})
+    public String size;
+
+    private String[] posts;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        String alnum = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789";
+        posts = new String[POSTS];
+        for (int i = 0; i < POSTS; i++) {
+            char[] code = new char[8 + random.nextInt(8)];
+            for (int c = 0; c < code.length; c++) code[c] = alnum.charAt(random.nextInt(alnum.length()));
+            String post = String.format(TEMPLATES[random.nextInt(TEMPLATES.length)], new String(code));
+            // "long": a forwarded post with the usual wall of hashtags and channel footer
+            if (size.equals("long")) {
+                post = post + "\n\n#deals #coupons #free #premium #students #offers #india #loot\n"
+                        + "Join us for daily drops, forward to your friends and turn on notifications 🔔 ".repeat(4);
+            }
+            posts[i] = post;
+        }
+    }
+
+    @Benchmark
+    public void current(Blackhole bh) {
+        for (String post : posts) bh.consume(CouponParser.parseFromText(post));
+    }
+
+    @Benchmark
+    public void legacyRegex(Blackhole bh) {
+        for (String post : posts) bh.consume(LegacyCouponParser.parseFromText(post));
+    }
+}
@@ -0,0 +1,214 @@
+package com.couponbot.couponbot.loadtest;
+
+import com.couponbot.couponbot.CouponbotApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end load test: boots the real application against {@link StubBotApiServer} and a
+ * local Postgres (the usual spring.datasource settings), then walks simulated users through
+ * /start, submit, browse and claim, each step waiting for the bot's reply. Prints throughput
+ * and p50/p99 latency per flow.
+ *
+ * <pre>
+ * mvn -Ploadtest compile exec:java -Dloadtest.users=2000 -Dloadtest.concurrency=200
+ * </pre>
+ * Other knobs: loadtest.rate429, loadtest.latency, loadtest.jitter (stub faults),
+ * loadtest.replyTimeout, loadtest.telegramLimits=true to keep the real outbound rate limits,
+ * loadtest.mode=webhook to have the stub POST updates to the bot instead of serving getUpdates
+ * (run once per mode to compare them).
+ */
+public class LoadTestDriver {
+
+    private static final String[] FLOWS = {"start", "submit", "browse", "claim"};
+    private static final String[] PLATFORMS = {"Canva", "LinkedIn", "BigBasket", "Amazon"};
+
+    private final StubBotApiServer stub;
+    private final String mode;
+    private final Duration replyTimeout;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36).toUpperCase();
+    private final Map<String, FlowStats> stats = new LinkedHashMap<>();
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong claimRejected = new AtomicLong();
+
+    LoadTestDriver(StubBotApiServer stub, String mode, Duration replyTimeout) {
+        this.stub = stub;
+        this.mode = mode;
+        this.replyTimeout = replyTimeout;
+        for (String f : FLOWS) stats.put(f, new FlowStats());
+    }
+
+    public static void main(String[] args) throws Exception {
+        int users = Integer.getInteger("loadtest.users", 1000);
+        int concurrency = Integer.getInteger("loadtest.concurrency", 200);
+        double rate429 = Double.parseDouble(System.getProperty("loadtest.rate429", "0"));
+        Duration latency = Duration.parse("PT" + System.getProperty("loadtest.latency", "0S"));
+        Duration jitter = Duration.parse("PT" + System.getProperty("loadtest.jitter", "0S"));
+        Duration replyTimeout = Duration.parse("PT" + System.getProperty("loadtest.replyTimeout", "30S"));
+        boolean telegramLimits = Boolean.getBoolean("loadtest.telegramLimits");
+        String mode = System.getProperty("loadtest.mode", "polling");
+
+        try (StubBotApiServer stub = new StubBotApiServer(0, rate429, 1, latency, jitter)) {
+            stub.start();
+            List<String> props = new ArrayList<>(List.of(
+                    "BOT_TOKEN=loadtest",
+                    "BOT_USERNAME=loadtest_bot",
+                    "app.telegram.apiUrl=" + stub.apiUrl()));
+            switch (mode) {
+                case "polling" -> props.addAll(List.of("app.telegram.mode=polling", "server.port=0"));
+                case "webhook" -> {
+                    // the webhook URL is registered on startup, so the port has to be known up front
+                    int port = freePort();
+                    props.addAll(List.of("app.telegram.mode=webhook", "server.port=" + port,
+                            "app.telegram.webhook.url=http://127.0.0.1:" + port,
+                            "app.telegram.webhook.secret=loadtest-" + Long.toString(System.nanoTime(), 36)));
+                }
+                default -> throw new IllegalArgumentException("loadtest.mode must be polling or webhook: " + mode);
+            }
+            if (!telegramLimits) {
+                // measure the bot, not Telegram's 30 msg/s
+                props.add("app.outbound.globalPerSecond=1000000");
+                props.add("app.outbound.perChatPerSecond=1000");
+                props.add("app.outbound.perChatBurst=1000");
+            }
+            // as command-line args: they have to win over application.yaml, default properties don't
+            List<String> appArgs = new ArrayList<>();
+            for (String p : props) appArgs.add("--" + p);
+            appArgs.addAll(List.of(args));
+            ConfigurableApplicationContext app = new SpringApplicationBuilder(CouponbotApplication.class)
+                    .run(appArgs.toArray(new String[0]));
+            try {
+                new LoadTestDriver(stub, mode, replyTimeout).run(users, concurrency);
+            } finally {
+                app.close();
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    void run(int users, int concurrency) throws InterruptedException {
+        long userBase = 1_000_000_000L + (System.currentTimeMillis() / 1000 % 100_000) * 100_000;
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        long started = System.nanoTime();
+        for (int i = 0; i < users; i++) {
+            long userId = userBase + i;
+            pool.execute(() -> journey(userId));
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.HOURS);
+        report(users, concurrency, System.nanoTime() - started);
+    }
+
+    // One user's session; a step that gets no reply fails its flow and ends the session
+    private void journey(long userId) {
+        try {
+            long t = System.nanoTime();
+            if (step(userId, () -> stub.pushText(userId, "/start")) == null) { fail("start"); return; }
+            record("start", t);
+
+            t = System.nanoTime();
+            String platform = PLATFORMS[(int) (userId % PLATFORMS.length)];
+            if (step(userId, () -> stub.pushText(userId, "📤 Submit Coupon")) == null
+                    || step(userId, () -> stub.pushCallback(userId, "plt_" + platform)) == null
+                    || step(userId, () -> stub.pushText(userId, "LT" + runId + "X" + userId)) == null
+                    || step(userId, () -> stub.pushText(userId, "Load test " + platform + " 10% off")) == null) {
+                fail("submit");
+                return;
+            }
+            record("submit", t);
+
+            t = System.nanoTime();
+            JsonNode platforms = step(userId, () -> stub.pushText(userId, "📜 Available Coupons"));
+            String view = pickButton(platforms, "view_");
+            JsonNode list = view == null ? null : step(userId, () -> stub.pushCallback(userId, view));
+            if (list == null) { fail("browse"); return; }
+            record("browse", t);
+
+            String claim = pickButton(list, "claim_");
+            if (claim == null) claim = pickButton(list, "next_");
+            if (claim == null) return;
+            String data = claim;
+            t = System.nanoTime();
+            JsonNode outcome = step(userId, () -> stub.pushCallback(userId, data));
+            if (outcome == null) { fail("claim"); return; }
+            record("claim", t);
+            (outcome.path("text").asText().contains("Coupon Claimed") ? claimed : claimRejected).incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private JsonNode step(long chatId, Runnable send) throws InterruptedException {
+        send.run();
+        return stub.awaitReply(chatId, replyTimeout);
+    }
+
+    // Random button whose callback data starts with prefix
+    private static String pickButton(JsonNode reply, String prefix) {
+        if (reply == null) return null;
+        List<String> matches = new ArrayList<>();
+        for (JsonNode row : reply.path("reply_markup").path("inline_keyboard")) {
+            for (JsonNode button : row) {
+                String data = button.path("callback_data").asText("");
+                if (data.startsWith(prefix)) matches.add(data);
+            }
+        }
+        return matches.isEmpty() ? null : matches.get(ThreadLocalRandom.current().nextInt(matches.size()));
+    }
+
+    private void record(String flow, long startedNanos) {
+        stats.get(flow).nanos.add(System.nanoTime() - startedNanos);
+    }
+
+    private void fail(String flow) {
+        stats.get(flow).failures.incrementAndGet();
+    }
+
+    private void report(int users, int concurrency, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%n=== Load test (%s): %d users, %d concurrent, %.1f s ===%n", mode, users, concurrency, seconds);
+        System.out.printf("%-8s %8s %8s %10s %10s %10s %10s%n", "flow", "ok", "failed", "per sec", "p50 ms", "p99 ms", "max ms");
+        for (Map.Entry<String, FlowStats> e : stats.entrySet()) {
+            long[] sorted = e.getValue().nanos.stream().mapToLong(Long::longValue).sorted().toArray();
+            System.out.printf("%-8s %8d %8d %10.1f %10.1f %10.1f %10.1f%n", e.getKey(), sorted.length,
+                    e.getValue().failures.get(), sorted.length / seconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99),
+                    sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+        }
+        System.out.printf("claims: %d claimed, %d rejected (taken/limit)%n", claimed.get(), claimRejected.get());
+        System.out.printf("stub: %d send calls, %d getChatMember calls, %d injected 429s%n",
+                stub.getSendCalls(), stub.getChatMemberCalls(), stub.getInjected429s());
+        if ("webhook".equals(mode)) System.out.printf("webhook: %d deliveries rejected and redelivered%n", stub.getWebhookRejected());
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int i = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, i))] / 1e6;
+    }
+
+    private static final class FlowStats {
+        final ConcurrentLinkedQueue<Long> nanos = new ConcurrentLinkedQueue<>();
+        final AtomicLong failures = new AtomicLong();
+    }
+}
@@ -0,0 +1,334 @@
+package com.couponbot.couponbot.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal stand-in for the Telegram Bot API (https://host/bot&lt;token&gt;/&lt;method&gt;), enough
+ * for CouponTelegramBot to run unmodified with app.telegram.apiUrl pointed at it.
+ * getUpdates serves updates pushed with {@link #push} using Telegram's offset semantics;
+ * sendMessage / editMessageText are recorded per chat for the driver to await;
+ * getChatMember always answers "member". Send calls can be slowed down and can fail
+ * with 429 + retry_after at a configurable rate.
+ * After a setWebhook the stub delivers pushed updates like Telegram does in webhook mode:
+ * a POST to the registered URL with the secret header, redelivered while the bot answers
+ * with anything but 2xx.
+ */
+public class StubBotApiServer implements AutoCloseable {
+
+    private static final Pattern MULTIPART_FIELD = Pattern.compile(
+            "Content-Disposition: form-data; name=\"([^\"]+)\"[^\\r\\n]*\r?\n(?:[^\\r\\n]+\r?\n)*\r?\n([^\\r\\n]*)");
+    private static final int MAX_REDELIVERIES = 1000;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient http = HttpClient.newBuilder().executor(Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "stub-webhook");
+        t.setDaemon(true);
+        return t;
+    })).build();
+    private final HttpServer server;
+    private final double tooManyRequestsRate;
+    private final int retryAfterSeconds;
+    private final long latencyMillis;
+    private final long jitterMillis;
+
+    private final LinkedBlockingQueue<ObjectNode> inbox = new LinkedBlockingQueue<>();
+    private final ArrayDeque<ObjectNode> unconfirmed = new ArrayDeque<>();
+    private final Map<Long, BlockingQueue<JsonNode>> outbox = new ConcurrentHashMap<>();
+    private final AtomicLong nextUpdateId = new AtomicLong(1);
+    private final AtomicInteger nextMessageId = new AtomicInteger(1);
+
+    private final AtomicLong sendCalls = new AtomicLong();
+    private final AtomicLong chatMemberCalls = new AtomicLong();
+    private final AtomicLong injected429s = new AtomicLong();
+    private final AtomicLong webhookRejected = new AtomicLong();
+    private volatile URI webhookUrl;
+    private volatile String webhookSecret;
+
+    public StubBotApiServer(int port, double tooManyRequestsRate, int retryAfterSeconds,
+                            Duration latency, Duration jitter) throws IOException {
+        this.tooManyRequestsRate = tooManyRequestsRate;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.latencyMillis = latency.toMillis();
+        this.jitterMillis = jitter.toMillis();
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 512);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(Executors.newFixedThreadPool(64, r -> {
+            Thread t = new Thread(r, "stub-bot-api");
+            t.setDaemon(true);
+            return t;
+        }));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // Base URL for app.telegram.apiUrl; the bot appends "<token>/<method>"
+    public String apiUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/bot";
+    }
+
+    public long pushText(long userId, String text) {
+        ObjectNode message = message(userId);
+        message.set("from", user(userId));
+        message.put("text", text);
+        ObjectNode update = mapper.createObjectNode();
+        update.set("message", message);
+        return push(update);
+    }
+
+    public long pushCallback(long userId, String data) {
+        ObjectNode cb = mapper.createObjectNode();
+        cb.put("id", "cb" + nextUpdateId.get());
+        cb.set("from", user(userId));
+        cb.put("chat_instance", String.valueOf(userId));
+        cb.put("data", data);
+        cb.set("message", message(userId));
+        ObjectNode update = mapper.createObjectNode();
+        update.set("callback_query", cb);
+        return push(update);
+    }
+
+    private long push(ObjectNode update) {
+        long id = nextUpdateId.getAndIncrement();
+        update.put("update_id", id);
+        URI webhook = webhookUrl;
+        if (webhook == null) inbox.add(update);
+        else deliver(webhook, update);
+        return id;
+    }
+
+    // Telegram keeps redelivering until it gets a 2xx; the pause stands in for its backoff
+    private void deliver(URI webhook, ObjectNode update) {
+        HttpRequest request = HttpRequest.newBuilder(webhook)
+                .header("Content-Type", "application/json")
+                .header("X-Telegram-Bot-Api-Secret-Token", webhookSecret == null ? "" : webhookSecret)
+                .POST(HttpRequest.BodyPublishers.ofString(update.toString()))
+                .build();
+        try {
+            for (int attempt = 0; attempt < MAX_REDELIVERIES; attempt++) {
+                int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                if (status / 100 == 2) return;
+                webhookRejected.incrementAndGet();
+                Thread.sleep(20);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("webhook delivery failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Next sendMessage/editMessageText body the bot sent to this chat, or null on timeout
+    public JsonNode awaitReply(long chatId, Duration timeout) throws InterruptedException {
+        return outbox(chatId).poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public long getSendCalls() {
+        return sendCalls.get();
+    }
+
+    public long getChatMemberCalls() {
+        return chatMemberCalls.get();
+    }
+
+    public long getInjected429s() {
+        return injected429s.get();
+    }
+
+    // Non-2xx webhook answers (each one redelivered)
+    public long getWebhookRejected() {
+        return webhookRejected.get();
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        try (ex) {
+            String path = ex.getRequestURI().getPath();
+            // the client library uses both "getUpdates" and "getupdates" style paths
+            String method = path.substring(path.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+            JsonNode body = readBody(ex);
+            switch (method) {
+                case "getupdates" -> ok(ex, getUpdates(body));
+                case "sendmessage", "editmessagetext" -> {
+                    sendCalls.incrementAndGet();
+                    simulateLatency();
+                    if (tooManyRequestsRate > 0 && ThreadLocalRandom.current().nextDouble() < tooManyRequestsRate) {
+                        injected429s.incrementAndGet();
+                        tooManyRequests(ex);
+                        return;
+                    }
+                    long chatId = body.path("chat_id").asLong();
+                    outbox(chatId).add(body);
+                    ObjectNode sent = message(chatId);
+                    sent.put("text", body.path("text").asText());
+                    ok(ex, sent);
+                }
+                case "getchatmember" -> {
+                    chatMemberCalls.incrementAndGet();
+                    simulateLatency();
+                    ObjectNode member = mapper.createObjectNode();
+                    member.put("status", "member");
+                    member.set("user", user(body.path("user_id").asLong()));
+                    ok(ex, member);
+                }
+                case "setwebhook" -> {
+                    String url = body.path("url").asText("");
+                    webhookUrl = url.isEmpty() ? null : URI.create(url);
+                    webhookSecret = body.path("secret_token").asText(null);
+                    ok(ex, mapper.getNodeFactory().booleanNode(true));
+                }
+                case "deletewebhook" -> {
+                    webhookUrl = null;
+                    ok(ex, mapper.getNodeFactory().booleanNode(true));
+                }
+                case "getme" -> {
+                    ObjectNode me = user(1);
+                    me.put("is_bot", true);
+                    me.put("username", "loadtest_bot");
+                    ok(ex, me);
+                }
+                default -> ok(ex, mapper.getNodeFactory().booleanNode(true));  // deleteWebhook, answerCallbackQuery, ...
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Telegram semantics: everything below offset is confirmed; otherwise long-poll up to timeout
+    private ArrayNode getUpdates(JsonNode req) throws InterruptedException {
+        long offset = req.path("offset").asLong(0);
+        int limit = req.path("limit").asInt(100);
+        int timeout = req.path("timeout").asInt(0);
+        synchronized (unconfirmed) {
+            while (!unconfirmed.isEmpty() && unconfirmed.peekFirst().path("update_id").asLong() < offset) {
+                unconfirmed.pollFirst();
+            }
+            if (unconfirmed.isEmpty()) {
+                ObjectNode first = inbox.poll(Math.min(timeout, 1), TimeUnit.SECONDS);
+                if (first != null) {
+                    unconfirmed.add(first);
+                    inbox.drainTo(unconfirmed, Math.max(0, limit - 1));
+                }
+            }
+            ArrayNode out = mapper.createArrayNode();
+            for (ObjectNode u : unconfirmed) {
+                if (out.size() >= limit) break;
+                out.add(u);
+            }
+            return out;
+        }
+    }
+
+    private BlockingQueue<JsonNode> outbox(long chatId) {
+        return outbox.computeIfAbsent(chatId, k -> new LinkedBlockingQueue<>());
+    }
+
+    private ObjectNode message(long chatId) {
+        ObjectNode chat = mapper.createObjectNode();
+        chat.put("id", chatId);
+        chat.put("type", "private");
+        ObjectNode m = mapper.createObjectNode();
+        m.put("message_id", nextMessageId.getAndIncrement());
+        m.put("date", System.currentTimeMillis() / 1000);
+        m.set("chat", chat);
+        return m;
+    }
+
+    private ObjectNode user(long id) {
+        ObjectNode u = mapper.createObjectNode();
+        u.put("id", id);
+        u.put("is_bot", false);
+        u.put("first_name", "user" + id);
+        return u;
+    }
+
+    private void simulateLatency() throws InterruptedException {
+        long delay = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+        if (delay > 0) Thread.sleep(delay);
+    }
+
+    private JsonNode readBody(HttpExchange ex) throws IOException {
+        try (InputStream in = ex.getRequestBody()) {
+            byte[] raw = in.readAllBytes();
+            if (raw.length == 0) return mapper.createObjectNode();
+            String contentType = ex.getRequestHeaders().getFirst("Content-Type");
+            if (contentType != null && contentType.startsWith("application/x-www-form-urlencoded")) {
+                ObjectNode form = mapper.createObjectNode();
+                for (String pair : new String(raw, StandardCharsets.UTF_8).split("&")) {
+                    int eq = pair.indexOf('=');
+                    if (eq > 0) form.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                            URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+                }
+                return form;
+            }
+            if (contentType != null && contentType.startsWith("multipart/form-data")) {
+                // setWebhook is sent as multipart; only its plain text fields matter here
+                ObjectNode form = mapper.createObjectNode();
+                Matcher m = MULTIPART_FIELD.matcher(new String(raw, StandardCharsets.UTF_8));
+                while (m.find()) form.put(m.group(1), m.group(2));
+                return form;
+            }
+            return mapper.readTree(raw);
+        }
+    }
+
+    private void ok(HttpExchange ex, JsonNode result) throws IOException {
+        ObjectNode body = mapper.createObjectNode();
+        body.put("ok", true);
+        body.set("result", result);
+        write(ex, 200, body);
+    }
+
+    private void tooManyRequests(HttpExchange ex) throws IOException {
+        ObjectNode body = mapper.createObjectNode();
+        body.put("ok", false);
+        body.put("error_code", 429);
+        body.put("description", "Too Many Requests: retry after " + retryAfterSeconds);
+        body.putObject("parameters").put("retry_after", retryAfterSeconds);
+        write(ex, 429, body);
+    }
+
+    private void write(HttpExchange ex, int status, JsonNode body) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(body);
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
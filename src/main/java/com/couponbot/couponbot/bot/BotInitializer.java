@@ -1,33 +1,67 @@
 package com.couponbot.couponbot.bot;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.telegram.telegrambots.meta.TelegramBotsApi;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
-import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
 
 @Configuration
 public class BotInitializer {
 
+    private static final Logger log = LoggerFactory.getLogger(BotInitializer.class);
+
+    // app.telegram.mode: polling (default, see UpdatePoller), webhook, cluster (see bot.cluster),
+    // or none: no updates at all (used by the CDS training run in the Dockerfile).
+    //
+    // With spring.main.lazy-initialization (FASTSTART images) beans are created on first use.
+    // Anything with @Scheduled work still has to start with the context, since nothing may
+    // ever ask for it. Pollers and workers start from ApplicationReadyEvent, which creates them.
     @Bean
-    public TelegramBotsApi telegramBotsApi(CouponTelegramBot bot) throws TelegramApiException {
-        TelegramBotsApi api = new TelegramBotsApi(DefaultBotSession.class);
-        api.registerBot(bot);
-        System.out.println("✅ Bot registered with TelegramBotsApi");
-        return api;
+    static LazyInitializationExcludeFilter eagerBotBeans() {
+        return (name, definition, type) -> type != null && hasScheduledMethods(type);
+    }
+
+    private static boolean hasScheduledMethods(Class<?> type) {
+        return !MethodIntrospector.selectMethods(type, (MethodIntrospector.MetadataLookup<Scheduled>) method ->
+                AnnotatedElementUtils.findMergedAnnotation(method, Scheduled.class)).isEmpty();
     }
 
-    // Optional but useful: make sure webhook is OFF (for long polling)
+    // Optional but useful: make sure webhook is OFF (for long polling, also done by the cluster leader)
     @Bean
+    @ConditionalOnExpression("'${app.telegram.mode:polling}' == 'polling' or '${app.telegram.mode:polling}' == 'cluster'")
     public ApplicationRunner deleteWebhookOnStart(CouponTelegramBot bot) {
         return args -> {
             try {
                 bot.execute(new org.telegram.telegrambots.meta.api.methods.updates.DeleteWebhook(true));
-                System.out.println("✅ Webhook deleted (long polling enabled)");
+                log.info("Webhook deleted (long polling enabled)");
             } catch (Exception e) {
-                System.out.println("⚠️ Could not delete webhook: " + e.getMessage());
+                log.warn("Could not delete webhook: {}", e.getMessage());
             }
         };
     }
+
+    // Webhook mode: Telegram pushes updates to TelegramWebhookController instead of us polling
+    @Bean
+    @ConditionalOnProperty(name = "app.telegram.mode", havingValue = "webhook")
+    public ApplicationRunner setWebhookOnStart(CouponTelegramBot bot,
+                                               @Value("${app.telegram.webhook.url}") String url,
+                                               @Value("${app.telegram.webhook.path}") String path,
+                                               @Value("${app.telegram.webhook.secret}") String secret) {
+        return args -> {
+            SetWebhook setWebhook = new SetWebhook(url + path);
+            setWebhook.setSecretToken(secret);
+            setWebhook.setDropPendingUpdates(false);
+            bot.execute(setWebhook);
+            log.info("Webhook set to {}{}", url, path);
+        };
+    }
 }
@@ -1,109 +1,306 @@
 package com.couponbot.couponbot.bot;
 
+import com.couponbot.couponbot.bot.state.ConversationStateStore;
+import com.couponbot.couponbot.bot.state.SubmissionState;
+import com.couponbot.couponbot.bot.state.SubmissionState.Step;
 import com.couponbot.couponbot.db.entity.Coupon;
+import com.couponbot.couponbot.db.repo.CouponSummary;
+import com.couponbot.couponbot.service.BulkImportService;
 import com.couponbot.couponbot.service.ChannelGateService;
+import com.couponbot.couponbot.service.ClaimResult;
+import com.couponbot.couponbot.service.CouponPage;
 import com.couponbot.couponbot.service.CouponService;
+import com.couponbot.couponbot.service.HistoryPage;
+import com.couponbot.couponbot.service.HistoryService;
+import com.couponbot.couponbot.service.InventoryIndex;
+import com.couponbot.couponbot.service.PageCursor;
+import com.couponbot.couponbot.service.StatsAggregator;
+import com.couponbot.couponbot.service.SubscriptionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
+import org.telegram.telegrambots.meta.ApiConstants;
+import org.telegram.telegrambots.meta.api.methods.GetFile;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.Document;
+import org.telegram.telegrambots.meta.api.objects.File;
+import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboardMarkup;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.KeyboardRow;
 
-import java.time.Instant; // ✅ Fix: Added missing import
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
 
 @Component
 public class CouponTelegramBot extends TelegramLongPollingBot {
 
+    private static final Logger log = LoggerFactory.getLogger(CouponTelegramBot.class);
+    private static final int PAGE_SIZE = 10;
+    private static final int STATS_PLATFORMS = 15;
+    private static final int MAX_BUTTON_LABEL = 64;
+    private static final DateTimeFormatter EXPIRY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter HISTORY_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd").withZone(ZoneOffset.UTC);
+
     private final CouponService couponService;
     private final ChannelGateService channelGateService;
+    private final BulkImportService bulkImportService;
+    private final SubscriptionService subscriptionService;
+    private final HistoryService historyService;
+    private final StatsAggregator stats;
+    private final Set<Long> adminUserIds;
+    private final UpdateDispatcher dispatcher;
+    private final OutboundSender outbound;
+    private final UpdateMetrics updateMetrics;
     private final String username;
+    private final long maxBulkFileBytes;
 
-    private final Map<Long, SubmissionState> userStates = new ConcurrentHashMap<>();
-
-    private record SubmissionState(String platform, String code, Step step) {}
-    enum Step { SELECT_PLATFORM, ENTER_PLATFORM_NAME, ENTER_CODE, ENTER_DETAILS }
+    private final ConversationStateStore userStates;
 
     public CouponTelegramBot(CouponService couponService, ChannelGateService channelGateService,
-                             @Value("${BOT_TOKEN}") String token, @Value("${BOT_USERNAME}") String username) {
-        super(token);
+                             BulkImportService bulkImportService, SubscriptionService subscriptionService,
+                             HistoryService historyService, StatsAggregator stats,
+                             ConversationStateStore userStates,
+                             UpdateDispatcher dispatcher, OutboundSender outbound, UpdateMetrics updateMetrics,
+                             @Value("${BOT_TOKEN}") String token, @Value("${BOT_USERNAME}") String username,
+                             @Value("${app.telegram.apiUrl:" + ApiConstants.BASE_URL + "}") String apiUrl,
+                             @Value("${app.bulk.maxFileBytes:1048576}") long maxBulkFileBytes,
+                             @Value("${app.admin.userIds:}") Set<Long> adminUserIds) {
+        super(botOptions(apiUrl), token);
         this.couponService = couponService;
         this.channelGateService = channelGateService;
+        this.bulkImportService = bulkImportService;
+        this.subscriptionService = subscriptionService;
+        this.historyService = historyService;
+        this.stats = stats;
+        this.adminUserIds = Set.copyOf(adminUserIds);
+        this.userStates = userStates;
+        this.dispatcher = dispatcher;
+        this.outbound = outbound;
+        this.updateMetrics = updateMetrics;
         this.username = username;
+        this.maxBulkFileBytes = maxBulkFileBytes;
+    }
+
+    // ✅ apiUrl lets the bot talk to a local stub Bot API instead of api.telegram.org
+    private static DefaultBotOptions botOptions(String apiUrl) {
+        DefaultBotOptions options = new DefaultBotOptions();
+        options.setBaseUrl(apiUrl);
+        return options;
     }
 
     @Override
     public String getBotUsername() { return username; }
 
+    // No BotSession is registered: updates come in through UpdatePoller, the webhook or QueueWorker
     @Override
     public void onUpdateReceived(Update update) {
+        offerUpdate(update);
+    }
+
+    // ✅ Hand off to the per-user stripe; never blocks, false = the user's stripe is full
+    public boolean offerUpdate(Update update) {
+        return dispatcher.tryDispatch(userKey(update), () -> handleUpdate(update));
+    }
+
+    public static long userKey(Update update) {
+        if (update.hasCallbackQuery()) return update.getCallbackQuery().getFrom().getId();
+        if (update.hasMessage() && update.getMessage().getFrom() != null) return update.getMessage().getFrom().getId();
+        if (update.hasMessage()) return update.getMessage().getChatId();
+        return 0L;
+    }
+
+    // ✅ Timed per update type (bot.update.handle); failures are logged and counted instead of printed
+    public void handleUpdate(Update update) {
+        UpdateType type = UpdateType.of(update);
+        long started = System.nanoTime();
         try {
-            if (update.hasCallbackQuery()) {
-                handleCallbackQuery(update);
-                return;
-            }
+            route(update);
+        } catch (Exception e) {
+            updateMetrics.error(type);
+            log.error("Failed to handle {} update {}", type.tag(), update.getUpdateId(), e);
+        } finally {
+            updateMetrics.record(type, System.nanoTime() - started);
+        }
+    }
 
-            if (!update.hasMessage() || !update.getMessage().hasText()) return;
+    private void route(Update update) throws Exception {
+        if (update.hasCallbackQuery()) {
+            handleCallbackQuery(update);
+            return;
+        }
 
-            String text = update.getMessage().getText().trim();
-            long chatId = update.getMessage().getChatId();
-            long userId = update.getMessage().getFrom().getId();
+        if (update.hasMessage() && update.getMessage().hasDocument()) {
+            handleDocument(update.getMessage());
+            return;
+        }
 
-            if (text.equals("/start")) {
-                userStates.remove(userId);
-                sendMenu(chatId, "Welcome to Coupon Saver! Select an option below to get started:");
-                return;
-            }
+        if (!update.hasMessage() || !update.getMessage().hasText()) return;
 
-            if (text.equals("📤 Submit Coupon")) {
-                sendPlatformSelection(chatId, userId);
-                return;
-            }
+        String text = update.getMessage().getText().trim();
+        long chatId = update.getMessage().getChatId();
+        long userId = update.getMessage().getFrom().getId();
 
-            if (text.equals("📜 Available Coupons")) {
-                sendAvailablePlatforms(chatId);
-                return;
-            }
+        if (text.equals("/start")) {
+            userStates.remove(userId);
+            sendMenu(chatId, "Welcome to Coupon Saver! Select an option below to get started:");
+            return;
+        }
 
-            if (text.equals("ℹ️ About Us")) {
-                reply(chatId, "🌟 **About Coupon Saver**\n\nThis bot is a community-driven platform where users voluntarily share coupons they won't use so others can benefit.\n\n✅ **Voluntary Submissions**\n✅ **Verified Claims**\n✅ **Fair Use Policy (2 claims/day)**\n\nMade with ❤️ for savers!");
-                return;
-            }
+        if (text.equals("/bulk") || text.startsWith("/bulk ")) {
+            String platform = text.length() > 5 ? text.substring(6).trim() : "";
+            userStates.put(userId, new SubmissionState(platform.isEmpty() ? null : platform, null, Step.BULK_IMPORT));
+            reply(chatId, "📦 **Bulk Import**\nSend your coupons as one message with one coupon per line, or upload a .txt/.csv file." +
+                    (platform.isEmpty() ? "\nTip: use `/bulk Canva` to set the platform for lines that don't name one." : "\nLines without a platform will be saved under " + platform + "."));
+            return;
+        }
 
-            if (userStates.containsKey(userId)) {
-                handleSubmissionSteps(chatId, userId, text);
-                return;
-            }
+        if (text.equals("/subscribe") || text.startsWith("/subscribe ")) {
+            subscribe(chatId, userId, text.substring(10).trim());
+            return;
+        }
+
+        if (text.equals("/unsubscribe") || text.startsWith("/unsubscribe ")) {
+            unsubscribe(chatId, userId, text.substring(12).trim());
+            return;
+        }
 
-        } catch (Exception e) { e.printStackTrace(); }
+        if (text.equals("/subscriptions")) {
+            sendSubscriptions(chatId, userId);
+            return;
+        }
+
+        if (text.equals("/myclaims")) {
+            sendHistory(chatId, null, userId, true, null);
+            return;
+        }
+
+        if (text.equals("/mysubmissions")) {
+            sendHistory(chatId, null, userId, false, null);
+            return;
+        }
+
+        // ✅ Admins only; for everyone else it is just text
+        if (text.equals("/stats") && adminUserIds.contains(userId)) {
+            sendStats(chatId);
+            return;
+        }
+
+        if (text.equals("📤 Submit Coupon")) {
+            sendPlatformSelection(chatId, userId);
+            return;
+        }
+
+        if (text.equals("📜 Available Coupons")) {
+            sendAvailablePlatforms(chatId);
+            return;
+        }
+
+        if (text.equals("ℹ️ About Us")) {
+            reply(chatId, "🌟 **About Coupon Saver**\n\nThis bot is a community-driven platform where users voluntarily share coupons they won't use so others can benefit.\n\n✅ **Voluntary Submissions**\n✅ **Verified Claims**\n✅ **Fair Use Policy (" + couponService.getClaimLimit() + " claims " + per(couponService.getClaimWindow()) + ")**\n\nMade with ❤️ for savers!");
+            return;
+        }
+
+        Optional<SubmissionState> state = userStates.get(userId);
+        if (state.isPresent()) {
+            handleSubmissionSteps(chatId, userId, state.get(), text);
+            return;
+        }
     }
 
-    private void handleSubmissionSteps(long chatId, long userId, String text) throws Exception {
-        SubmissionState state = userStates.get(userId);
+    private void handleSubmissionSteps(long chatId, long userId, SubmissionState state, String text) throws Exception {
 
-        if (state.step == Step.ENTER_PLATFORM_NAME) {
+        if (state.step() == Step.BULK_IMPORT) {
+            runBulkImport(chatId, userId, state.platform(), new StringReader(text));
+        }
+        else if (state.step() == Step.ENTER_PLATFORM_NAME) {
+            if (text.length() > CouponService.MAX_PLATFORM_LENGTH) {
+                reply(chatId, "❌ **Platform name too long.**\nPlease keep it under " + CouponService.MAX_PLATFORM_LENGTH + " characters.");
+                return;
+            }
             userStates.put(userId, new SubmissionState(text, null, Step.ENTER_CODE));
             reply(chatId, "Platform set to: " + text + ". Now please paste the Coupon Code or redeem link:");
         }
-        else if (state.step == Step.ENTER_CODE) {
-            userStates.put(userId, new SubmissionState(state.platform, text, Step.ENTER_DETAILS));
+        else if (state.step() == Step.ENTER_CODE) {
+            if (text.length() > CouponService.MAX_CODE_LENGTH) {
+                reply(chatId, "❌ **Code or link too long.**\nThe limit is " + CouponService.MAX_CODE_LENGTH + " characters. For a long redeem link, share the code only.");
+                return;
+            }
+            userStates.put(userId, new SubmissionState(state.platform(), text, Step.ENTER_DETAILS));
             reply(chatId, "Great! Now enter a one-line description (max 100 characters, no line breaks):");
         }
-        else if (state.step == Step.ENTER_DETAILS) {
+        else if (state.step() == Step.ENTER_DETAILS) {
             if (text.length() > 100 || text.contains("\n")) {
                 reply(chatId, "❌ **Description too long or multi-line.**\nPlease keep it to one short sentence (max 100 characters).");
                 return;
             }
 
-            couponService.saveCoupon(userId, state.code, state.platform, text);
             userStates.remove(userId);
-            reply(chatId, "✅ **Success!** Your coupon for " + state.platform + " has been added.");
+            if (couponService.saveCoupon(userId, state.code(), state.platform(), text).isPresent()) {
+                reply(chatId, "✅ **Success!** Your coupon for " + state.platform() + " has been added.");
+            } else {
+                reply(chatId, "♻️ This " + state.platform() + " coupon has already been shared, so it wasn't added again. Thanks anyway!");
+            }
+        }
+    }
+
+    private void handleDocument(Message message) throws Exception {
+        long chatId = message.getChatId();
+        long userId = message.getFrom().getId();
+        SubmissionState state = userStates.get(userId).orElse(null);
+        if (state == null || state.step() != Step.BULK_IMPORT) {
+            reply(chatId, "To import coupons from a file, send /bulk first.");
+            return;
+        }
+        Document doc = message.getDocument();
+        if (doc.getFileSize() != null && doc.getFileSize() > maxBulkFileBytes) {
+            reply(chatId, "❌ File too large. The limit is " + (maxBulkFileBytes / 1024) + " KB.");
+            return;
+        }
+        File file = execute(new GetFile(doc.getFileId()));
+        // ✅ file_size is optional, so the cap is enforced on the download too: read at most one byte
+        // past it and drop the file (before importing anything) if that byte exists
+        byte[] content;
+        try (InputStream in = downloadFileAsStream(file)) {
+            content = in.readNBytes((int) Math.min(maxBulkFileBytes + 1, Integer.MAX_VALUE - 8));
         }
+        if (content.length > maxBulkFileBytes) {
+            reply(chatId, "❌ File too large. The limit is " + (maxBulkFileBytes / 1024) + " KB.");
+            return;
+        }
+        try (Reader in = new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8)) {
+            runBulkImport(chatId, userId, state.platform(), in);
+        }
+    }
+
+    private void runBulkImport(long chatId, long userId, String platform, Reader source) throws Exception {
+        userStates.remove(userId);
+        BulkImportService.Result r = bulkImportService.importLines(userId, platform, source);
+        StringBuilder sb = new StringBuilder("📦 **Bulk Import Finished**\n\n")
+                .append("✅ Added: ").append(r.added()).append('\n')
+                .append("♻️ Duplicates skipped: ").append(r.duplicates()).append('\n')
+                .append("❌ Invalid lines: ").append(r.invalid()).append('\n');
+        if (r.truncatedAt() > 0) sb.append("⚠️ Only the first ").append(r.truncatedAt()).append(" lines were read.\n");
+        if (!r.problems().isEmpty()) {
+            sb.append("\nDetails:\n");
+            for (String p : r.problems()) sb.append("• ").append(p).append('\n');
+        }
+        reply(chatId, sb.toString());
     }
 
     private void sendPlatformSelection(long chatId, long userId) throws Exception {
@@ -117,7 +314,7 @@ public class CouponTelegramBot extends TelegramLongPollingBot {
             rows.add(List.of(btn));
         }
         msg.setReplyMarkup(new InlineKeyboardMarkup(rows));
-        execute(msg);
+        send(chatId, msg);
     }
 
     private void handleCallbackQuery(Update update) throws Exception {
@@ -138,13 +335,33 @@ public class CouponTelegramBot extends TelegramLongPollingBot {
         else if (data.startsWith("view_")) {
             sendCouponsForPlatform(chatId, data.substring(5));
         }
+        else if (data.startsWith("pg_")) {
+            sendCouponPage(chatId, update.getCallbackQuery().getMessage().getMessageId(), data.substring(3));
+        }
+        else if (data.startsWith("sub_")) {
+            subscribe(chatId, userId, data.substring(4));
+        }
+        else if (data.startsWith("unsub_")) {
+            unsubscribe(chatId, userId, data.substring(6));
+        }
+        else if (data.startsWith("mc_") || data.startsWith("ms_")) {
+            PageCursor cursor = PageCursor.decode(data.substring(3));
+            if (cursor != null) {
+                sendHistory(chatId, update.getCallbackQuery().getMessage().getMessageId(), userId, data.startsWith("mc_"), cursor);
+            }
+        }
         else if (data.startsWith("claim_")) {
             processClaim(chatId, userId, Long.parseLong(data.substring(6)));
         }
+        else if (data.startsWith("next_")) {
+            processNextClaim(chatId, userId, Long.parseLong(data.substring(5)));
+        }
         else if (data.startsWith("verify_")) {
-            long couponId = Long.parseLong(data.substring(7));
-            if (channelGateService.isJoined(this, userId)) {
-                processClaim(chatId, userId, couponId); // ✅ Resume claim logic
+            String target = data.substring(7);
+            if (channelGateService.isJoined(this, userId, true)) {
+                // ✅ Resume claim logic ("n<id>" resumes a claim-next)
+                if (target.startsWith("n")) processNextClaim(chatId, userId, Long.parseLong(target.substring(1)));
+                else processClaim(chatId, userId, Long.parseLong(target));
             } else {
                 reply(chatId, "❌ You still haven't joined the channel. Please join " + channelGateService.getRequiredChannel() + " and click verify again!");
             }
@@ -152,66 +369,263 @@ public class CouponTelegramBot extends TelegramLongPollingBot {
     }
 
     private void sendAvailablePlatforms(long chatId) throws Exception {
-        List<String> platforms = couponService.getAvailablePlatforms();
+        List<InventoryIndex.PlatformCount> platforms = couponService.getAvailablePlatforms();
         if (platforms.isEmpty()) {
-            reply(chatId, "No coupons are available at the moment.");
+            reply(chatId, "No coupons are available at the moment.\nSend `/subscribe Canva` (or any platform) to get an alert when new ones are shared.");
             return;
         }
         SendMessage msg = new SendMessage(String.valueOf(chatId), "📌 **Available Platforms**");
         msg.setParseMode("Markdown");
         List<List<InlineKeyboardButton>> rows = new ArrayList<>();
-        for (String p : platforms) {
-            InlineKeyboardButton btn = new InlineKeyboardButton(p);
-            btn.setCallbackData("view_" + p);
+        for (InventoryIndex.PlatformCount p : platforms) {
+            // one over-long platform name would get the whole list rejected
+            if (!fitsCallbackData("view_" + p.platform())) continue;
+            String label = p.count() < 0 ? p.platform() : p.platform() + " (" + p.count() + ")";
+            InlineKeyboardButton btn = new InlineKeyboardButton(buttonLabel(label));
+            btn.setCallbackData("view_" + p.platform());
             rows.add(List.of(btn));
         }
         msg.setReplyMarkup(new InlineKeyboardMarkup(rows));
-        execute(msg);
+        send(chatId, msg);
     }
 
     private void sendCouponsForPlatform(long chatId, String platform) throws Exception {
-        List<Coupon> coupons = couponService.listAvailableByPlatform(platform, 10);
-        SendMessage msg = new SendMessage(String.valueOf(chatId), "🎁 **" + platform + " Coupons**");
+        CouponPage page = couponService.firstPage(platform, PAGE_SIZE);
+        SendMessage msg = new SendMessage(String.valueOf(chatId), pageTitle(page));
         msg.setParseMode("Markdown");
+        msg.setReplyMarkup(pageKeyboard(page));
+        send(chatId, msg);
+    }
+
+    // ✅ Prev/next edit the same message in place instead of posting a new list
+    private void sendCouponPage(long chatId, int messageId, String cursorData) throws Exception {
+        PageCursor cursor = PageCursor.decode(cursorData);
+        Optional<CouponPage> page = cursor == null ? Optional.empty() : couponService.page(cursor, PAGE_SIZE);
+        if (page.isEmpty()) {
+            reply(chatId, "This list is out of date. Open 📜 Available Coupons again.");
+            return;
+        }
+        EditMessageText edit = new EditMessageText(pageTitle(page.get()));
+        edit.setChatId(String.valueOf(chatId));
+        edit.setMessageId(messageId);
+        edit.setParseMode("Markdown");
+        edit.setReplyMarkup(pageKeyboard(page.get()));
+        outbound.send(this, chatId, edit).whenComplete((sent, e) -> {
+            if (e != null) log.warn("Failed to update coupon page in chat {}: {}", chatId, e.getMessage());
+        });
+    }
+
+    private static String pageTitle(CouponPage page) {
+        return page.coupons().isEmpty()
+                ? "🎁 **" + page.platform() + " Coupons**\nNo coupons left here."
+                : "🎁 **" + page.platform() + " Coupons**";
+    }
+
+    private static InlineKeyboardMarkup pageKeyboard(CouponPage page) {
         List<List<InlineKeyboardButton>> rows = new ArrayList<>();
-        for (Coupon c : coupons) {
-            InlineKeyboardButton btn = new InlineKeyboardButton(c.getDetails());
-            btn.setCallbackData("claim_" + c.getId());
+        if (!page.coupons().isEmpty()) {
+            // the platform is resolved from this coupon's id, which keeps the callback short
+            InlineKeyboardButton next = new InlineKeyboardButton("⚡ Claim next available");
+            next.setCallbackData("next_" + page.coupons().get(0).id());
+            rows.add(List.of(next));
+        }
+        for (CouponSummary c : page.coupons()) {
+            InlineKeyboardButton btn = new InlineKeyboardButton(buttonLabel(c.details()));
+            btn.setCallbackData("claim_" + c.id());
             rows.add(List.of(btn));
         }
-        msg.setReplyMarkup(new InlineKeyboardMarkup(rows));
-        execute(msg);
+        List<InlineKeyboardButton> nav = new ArrayList<>(2);
+        if (page.prevCursor() != null) {
+            InlineKeyboardButton prev = new InlineKeyboardButton("⬅️ Newer");
+            prev.setCallbackData("pg_" + page.prevCursor().encode());
+            nav.add(prev);
+        }
+        if (page.nextCursor() != null) {
+            InlineKeyboardButton next = new InlineKeyboardButton("More ➡️");
+            next.setCallbackData("pg_" + page.nextCursor().encode());
+            nav.add(next);
+        }
+        if (!nav.isEmpty()) rows.add(nav);
+        if (fitsCallbackData("sub_" + page.platform())) {
+            InlineKeyboardButton alert = new InlineKeyboardButton("🔔 Alert me about new " + page.platform() + " coupons");
+            alert.setCallbackData("sub_" + page.platform());
+            rows.add(List.of(alert));
+        }
+        return new InlineKeyboardMarkup(rows);
+    }
+
+    // Details can be up to 500 chars (bulk lines); Telegram clips long buttons anyway, so cut them
+    // ourselves without splitting a surrogate pair
+    static String buttonLabel(String text) {
+        if (text == null || text.length() <= MAX_BUTTON_LABEL) return text;
+        int end = MAX_BUTTON_LABEL - 1;
+        if (Character.isHighSurrogate(text.charAt(end - 1))) end--;
+        return text.substring(0, end).stripTrailing() + "…";
+    }
+
+    // Telegram rejects the whole message if any callback_data is over 64 bytes
+    static boolean fitsCallbackData(String data) {
+        return data.getBytes(StandardCharsets.UTF_8).length <= 64;
+    }
+
+    private void subscribe(long chatId, long userId, String platform) {
+        if (platform.isEmpty()) {
+            reply(chatId, "Tell me which platform, e.g. `/subscribe Canva`.");
+            return;
+        }
+        if (platform.length() > 80) platform = platform.substring(0, 80);
+        switch (subscriptionService.subscribe(userId, chatId, platform)) {
+            case SUBSCRIBED -> reply(chatId, "🔔 You'll get an alert when new " + platform + " coupons are shared.\nSend `/unsubscribe " + platform + "` to stop.");
+            case ALREADY_SUBSCRIBED -> reply(chatId, "🔔 You're already getting alerts for " + platform + ".");
+            case LIMIT_REACHED -> reply(chatId, "❌ You can follow up to " + subscriptionService.getMaxPerUser() + " platforms. Send /subscriptions to see them.");
+        }
+    }
+
+    private void unsubscribe(long chatId, long userId, String platform) {
+        if (platform.isEmpty()) {
+            reply(chatId, "Tell me which platform, e.g. `/unsubscribe Canva`.");
+            return;
+        }
+        reply(chatId, subscriptionService.unsubscribe(userId, platform)
+                ? "🔕 No more " + platform + " alerts."
+                : "You weren't getting " + platform + " alerts.");
+    }
+
+    private void sendSubscriptions(long chatId, long userId) {
+        List<String> platforms = subscriptionService.platformsOf(userId);
+        if (platforms.isEmpty()) {
+            reply(chatId, "You have no coupon alerts. Send `/subscribe Canva` (or any platform) to add one.");
+            return;
+        }
+        StringBuilder sb = new StringBuilder("🔔 **Your coupon alerts**\n\n");
+        for (String p : platforms) sb.append("• ").append(p).append('\n');
+        sb.append("\nSend `/unsubscribe <platform>` to stop one.");
+        reply(chatId, sb.toString());
+    }
+
+    // ✅ First page is a new message; "More" edits it in place like the coupon list
+    private void sendHistory(long chatId, Integer messageId, long userId, boolean claims, PageCursor after) {
+        HistoryPage page = claims
+                ? historyService.claims(userId, after, PAGE_SIZE)
+                : historyService.submissions(userId, after, PAGE_SIZE);
+        StringBuilder sb = new StringBuilder(claims ? "🧾 **Your claims**\n\n" : "📤 **Your submissions**\n\n");
+        if (page.entries().isEmpty()) {
+            sb.append(claims ? "You haven't claimed any coupons yet." : "You haven't shared any coupons yet.");
+        }
+        for (HistoryPage.Entry e : page.entries()) {
+            sb.append("• ").append(e.platform()).append(" — `").append(e.code()).append("` ");
+            sb.append(e.status() == null ? "_(" + HISTORY_DATE.format(e.at()) + ")_" : statusLabel(e.status())).append('\n');
+        }
+        InlineKeyboardMarkup keyboard = null;
+        if (page.next() != null) {
+            InlineKeyboardButton more = new InlineKeyboardButton("More ➡️");
+            more.setCallbackData((claims ? "mc_" : "ms_") + page.next().encode());
+            keyboard = new InlineKeyboardMarkup(List.of(List.of(more)));
+        }
+        if (messageId == null) {
+            SendMessage msg = new SendMessage(String.valueOf(chatId), sb.toString());
+            msg.setParseMode("Markdown");
+            msg.setReplyMarkup(keyboard);
+            send(chatId, msg);
+            return;
+        }
+        EditMessageText edit = new EditMessageText(sb.toString());
+        edit.setChatId(String.valueOf(chatId));
+        edit.setMessageId(messageId);
+        edit.setParseMode("Markdown");
+        edit.setReplyMarkup(keyboard);
+        outbound.send(this, chatId, edit).whenComplete((sent, e) -> {
+            if (e != null) log.warn("Failed to update history page in chat {}: {}", chatId, e.getMessage());
+        });
+    }
+
+    // Everything here comes from StatsAggregator's in-memory counters, not the DB
+    private void sendStats(long chatId) {
+        if (!stats.isReady()) {
+            reply(chatId, "📊 Stats are still loading, try again in a moment.");
+            return;
+        }
+        StatsAggregator.Snapshot s = stats.snapshot();
+        StringBuilder sb = new StringBuilder("📊 **Live stats**\n\n");
+        sb.append("Available: ").append(s.available()).append('\n');
+        rateLine(sb, "Claims", s.claims(), s.window().toHours());
+        rateLine(sb, "Submissions", s.submissions(), s.window().toHours());
+        sb.append("\n**Platforms** (available / claimed / expired)\n");
+        s.platforms().stream().limit(STATS_PLATFORMS).forEach(p -> sb.append("• ").append(p.platform()).append(": ")
+                .append(p.available()).append(" / ").append(p.claimed()).append(" / ").append(p.expired()).append('\n'));
+        if (s.platforms().size() > STATS_PLATFORMS) {
+            sb.append("…and ").append(s.platforms().size() - STATS_PLATFORMS).append(" more\n");
+        }
+        if (!s.topSubmitters().isEmpty()) {
+            sb.append("\n**Top submitters**\n");
+            for (StatsAggregator.Submitter t : s.topSubmitters()) {
+                sb.append("• `").append(t.userId()).append("`: ").append(t.coupons());
+                if (t.maxOvercount() > 0) sb.append(" (±").append(t.maxOvercount()).append(')');
+                sb.append('\n');
+            }
+        }
+        sb.append("\n_Counting since ").append(EXPIRY_FORMAT.format(s.seededAt())).append(" UTC, on top of the DB at that time._");
+        reply(chatId, sb.toString());
+    }
+
+    private static void rateLine(StringBuilder sb, String label, StatsAggregator.Rates r, long windowHours) {
+        sb.append(label).append(": ").append(r.lastHour()).append(" last hour, ")
+                .append(r.lastWindow()).append(" last ").append(windowHours).append("h (")
+                .append(String.format(Locale.ROOT, "%.1f", r.perMinute())).append("/min now)\n");
+    }
+
+    private static String statusLabel(String status) {
+        return switch (status) {
+            case "AVAILABLE" -> "🟢 available";
+            case "CLAIMED" -> "✅ claimed";
+            case "EXPIRED" -> "⌛ expired";
+            default -> "🚫 removed";
+        };
     }
 
     private void processClaim(long chatId, long userId, long couponId) throws Exception {
         // ✅ Fix: Gate check first
         if (!channelGateService.isJoined(this, userId)) {
-            String channel = channelGateService.getRequiredChannel();
-            SendMessage msg = new SendMessage(String.valueOf(chatId), "🔒 **Join Required**");
-            List<List<InlineKeyboardButton>> rows = new ArrayList<>();
-            InlineKeyboardButton joinBtn = new InlineKeyboardButton("📢 Join Channel");
-            joinBtn.setUrl("https://t.me/" + channel.replace("@", ""));
-            InlineKeyboardButton verifyBtn = new InlineKeyboardButton("✅ I Joined");
-            verifyBtn.setCallbackData("verify_" + couponId);
-            rows.add(List.of(joinBtn));
-            rows.add(List.of(verifyBtn));
-            msg.setReplyMarkup(new InlineKeyboardMarkup(rows));
-            execute(msg);
+            sendJoinRequired(chatId, "verify_" + couponId);
             return;
         }
+        replyClaimResult(chatId, couponService.claim(couponId, userId));
+    }
 
-        // ✅ Fix: Check daily limit manually since claim() returns Optional
-        Instant oneDayAgo = Instant.now().minus(1, java.time.temporal.ChronoUnit.DAYS);
-        if (couponService.getClaimCount(userId, oneDayAgo) >= 2) {
-            reply(chatId, "❌ **Daily Limit Reached**\nYou can only claim up to two coupons every 24 hours!");
+    // ✅ "Claim next": any coupon of the anchor coupon's platform, so a burst of claimers doesn't all race for one row
+    private void processNextClaim(long chatId, long userId, long anchorCouponId) throws Exception {
+        if (!channelGateService.isJoined(this, userId)) {
+            sendJoinRequired(chatId, "verify_n" + anchorCouponId);
+            return;
+        }
+        String platform = couponService.platformOf(anchorCouponId);
+        if (platform == null) {
+            reply(chatId, "This list is out of date. Open 📜 Available Coupons again.");
             return;
         }
+        replyClaimResult(chatId, couponService.claimNext(platform, userId));
+    }
+
+    private void sendJoinRequired(long chatId, String verifyData) {
+        String channel = channelGateService.getRequiredChannel();
+        SendMessage msg = new SendMessage(String.valueOf(chatId), "🔒 **Join Required**");
+        List<List<InlineKeyboardButton>> rows = new ArrayList<>();
+        InlineKeyboardButton joinBtn = new InlineKeyboardButton("📢 Join Channel");
+        joinBtn.setUrl("https://t.me/" + channel.replace("@", ""));
+        InlineKeyboardButton verifyBtn = new InlineKeyboardButton("✅ I Joined");
+        verifyBtn.setCallbackData(verifyData);
+        rows.add(List.of(joinBtn));
+        rows.add(List.of(verifyBtn));
+        msg.setReplyMarkup(new InlineKeyboardMarkup(rows));
+        send(chatId, msg);
+    }
 
-        Optional<Coupon> result = couponService.claim(couponId, userId);
-        if (result.isPresent()) {
-            handleClaimResult(chatId, result.get());
-        } else {
-            reply(chatId, "❌ Sorry, this coupon was just claimed by another user.");
+    private void replyClaimResult(long chatId, ClaimResult result) throws Exception {
+        switch (result.outcome()) {
+            case CLAIMED -> handleClaimResult(chatId, result.coupon());
+            case LIMIT_REACHED -> reply(chatId, "❌ **Claim Limit Reached**\nYou can only claim up to " + couponService.getClaimLimit() + " coupons " + per(couponService.getClaimWindow()) + "!");
+            case ALREADY_TAKEN -> reply(chatId, "❌ Sorry, this coupon was just claimed by another user.");
+            case NONE_LEFT -> reply(chatId, "❌ Sorry, all coupons for this platform have been claimed.");
         }
     }
 
@@ -222,20 +636,37 @@ public class CouponTelegramBot extends TelegramLongPollingBot {
                 "`" + c.getCode() + "`\n\n" +
                 "ℹ️ **Coupon Description:**\n" +
                 "_" + c.getDetails() + "_\n\n" +
-                "Use it quickly before it expires!";
+                (c.getExpiresAt() == null
+                        ? "Use it quickly before it expires!"
+                        : "⏳ Expires " + EXPIRY_FORMAT.format(c.getExpiresAt()) + " UTC");
         reply(chatId, response);
     }
 
-    private void sendMenu(long chatId, String text) throws Exception {
+    private void sendMenu(long chatId, String text) {
         SendMessage msg = new SendMessage(String.valueOf(chatId), text);
         msg.setReplyMarkup(createMainMenu());
-        execute(msg);
+        send(chatId, msg);
     }
 
-    private void reply(long chatId, String text) throws Exception {
+    private CompletableFuture<Message> reply(long chatId, String text) {
         SendMessage msg = new SendMessage(String.valueOf(chatId), text);
         msg.setParseMode("Markdown");
-        execute(msg);
+        return send(chatId, msg);
+    }
+
+    // The claim window in words: "per day", "every 12 hours", "every 90 minutes"
+    static String per(Duration window) {
+        long minutes = window.toMinutes();
+        if (minutes < 60 || minutes % 60 != 0) return "every " + Math.max(1, minutes) + " minutes";
+        if (minutes == 24 * 60) return "per day";
+        return minutes % (24 * 60) == 0 ? "every " + window.toDays() + " days" : "every " + window.toHours() + " hours";
+    }
+
+    // ✅ All outbound messages go through the rate-limited queue; never blocks the handler
+    private CompletableFuture<Message> send(long chatId, SendMessage msg) {
+        return outbound.send(this, chatId, msg).whenComplete((sent, e) -> {
+            if (e != null) log.warn("Failed to send message to chat {}: {}", chatId, e.getMessage());
+        });
     }
 
     private ReplyKeyboardMarkup createMainMenu() {
@@ -0,0 +1,321 @@
+package com.couponbot.couponbot.bot;
+
+import com.couponbot.couponbot.metrics.TelegramApiMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous outbound queue for Bot API calls.
+ * <p>
+ * Every chat has its own lane (FIFO + token bucket) and all lanes share a global bucket,
+ * matching Telegram's ~30 msg/s global and ~1 msg/s per chat limits. A 429 pauses the lane
+ * for retry_after; when several lanes get one within a second the limit hit is the global
+ * one, so the global bucket is paused too. 5xx and network errors are retried with jittered
+ * exponential backoff, and the caller only ever gets a future back.
+ * <p>
+ * On shutdown it stops taking new sends (their futures fail at once), gives the lanes
+ * drainTimeout to empty, then fails whatever is still queued, so no future is left hanging.
+ */
+@Component
+public class OutboundSender {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboundSender.class);
+    private static final long GLOBAL_429_WINDOW = TimeUnit.SECONDS.toNanos(1);
+
+    private final ScheduledExecutorService scheduler;
+    private final TokenBucket global;
+    private final double perChatRate;
+    private final double perChatBurst;
+    private final int maxAttempts;
+    private final long baseBackoffNanos;
+    private final int globalPauseLanes;
+    private final Duration drainTimeout;
+    private final Map<Long, Lane> lanes = new ConcurrentHashMap<>();
+    private final TelegramApiMetrics apiMetrics;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong globalPauses = new AtomicLong();
+    private volatile boolean accepting = true;
+
+    public OutboundSender(TelegramApiMetrics apiMetrics,
+                          @Value("${app.outbound.workers:8}") int workers,
+                          @Value("${app.outbound.globalPerSecond:30}") double globalPerSecond,
+                          @Value("${app.outbound.perChatPerSecond:1}") double perChatRate,
+                          @Value("${app.outbound.perChatBurst:3}") double perChatBurst,
+                          @Value("${app.outbound.maxAttempts:5}") int maxAttempts,
+                          @Value("${app.outbound.baseBackoff:500ms}") Duration baseBackoff,
+                          @Value("${app.outbound.globalPauseLanes:2}") int globalPauseLanes,
+                          @Value("${app.outbound.drainTimeout:10s}") Duration drainTimeout) {
+        this.apiMetrics = apiMetrics;
+        AtomicInteger n = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(workers, r -> {
+            Thread t = new Thread(r, "outbound-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.global = new TokenBucket(globalPerSecond, globalPerSecond);
+        this.perChatRate = perChatRate;
+        this.perChatBurst = perChatBurst;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffNanos = baseBackoff.toNanos();
+        this.globalPauseLanes = globalPauseLanes;
+        this.drainTimeout = drainTimeout;
+        scheduler.scheduleWithFixedDelay(this::dropIdleLanes, 1, 1, TimeUnit.MINUTES);
+    }
+
+    public <T extends Serializable> CompletableFuture<T> send(AbsSender sender, long chatId, BotApiMethod<T> method) {
+        if (!accepting) return CompletableFuture.failedFuture(new RejectedExecutionException("outbound sender is shut down"));
+        Job<T> job = new Job<>(sender, method);
+        Lane lane = lanes.computeIfAbsent(chatId, id -> new Lane(new TokenBucket(perChatRate, perChatBurst)));
+        boolean start;
+        synchronized (lane) {
+            lane.jobs.add(job);
+            start = !lane.scheduled;
+            lane.scheduled = true;
+        }
+        pending.incrementAndGet();
+        if (start) submit(lane, 0);
+        return job.future;
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    public int getLaneCount() {
+        return lanes.size();
+    }
+
+    public long getRateLimited() {
+        return rateLimited.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public long getGlobalPauses() {
+        return globalPauses.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        accepting = false;
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+        try {
+            while (pending.get() > 0 && System.nanoTime() - deadline < 0) Thread.sleep(10);
+            scheduler.shutdownNow();
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            scheduler.shutdownNow();
+        }
+        int left = pending.get();
+        if (left > 0) log.warn("Outbound sender stopped with {} calls unsent", left);
+        RejectedExecutionException unsent = new RejectedExecutionException("outbound sender shut down before this was sent");
+        lanes.values().forEach(lane -> abandon(lane, unsent));
+    }
+
+    private void drain(Lane lane) {
+        Job<?> job;
+        synchronized (lane) {
+            job = lane.jobs.peek();
+            if (job == null) {
+                lane.scheduled = false;
+                return;
+            }
+        }
+
+        long now = System.nanoTime();
+        long wait = lane.bucket.nanosUntilAvailable(now);
+        if (wait == 0) wait = global.tryAcquire(now);
+        if (wait > 0) {
+            reschedule(lane, wait);
+            return;
+        }
+        lane.bucket.tryAcquire(now);
+        lane.lastActive = now;
+
+        long started = System.nanoTime();
+        try {
+            job.execute();
+            recordCall(job, null, started);
+            complete(lane);
+        } catch (TelegramApiRequestException e) {
+            recordCall(job, e, started);
+            Integer code = e.getErrorCode();
+            if (code != null && code == 429) {
+                Integer retryAfter = e.getParameters() == null ? null : e.getParameters().getRetryAfter();
+                long delay = TimeUnit.SECONDS.toNanos(retryAfter == null ? 1 : retryAfter);
+                long at = System.nanoTime();
+                lane.bucket.pauseUntil(at + delay);
+                lane.last429 = at;
+                if (lanesRateLimitedSince(at - GLOBAL_429_WINDOW) >= globalPauseLanes) pauseGlobal(at + delay, delay);
+                // counted once the pauses are in place, so a reader of the count sees them applied
+                rateLimited.incrementAndGet();
+                retryOrFail(lane, job, e, delay);
+            } else if (code != null && code >= 500) {
+                retryOrFail(lane, job, e, backoff(job.attempts));
+            } else {
+                fail(lane, job, e);
+            }
+        } catch (TelegramApiException e) {
+            recordCall(job, e, started);
+            // no error code: connection/IO problem, worth retrying
+            retryOrFail(lane, job, e, backoff(job.attempts));
+        } catch (RuntimeException e) {
+            recordCall(job, e, started);
+            fail(lane, job, e);
+        }
+    }
+
+    // Only runs on a 429, so walking the lanes is fine
+    private int lanesRateLimitedSince(long since) {
+        int n = 0;
+        for (Lane l : lanes.values()) {
+            if (l.last429 - since > 0) n++;
+        }
+        return n;
+    }
+
+    private void pauseGlobal(long deadline, long delay) {
+        global.pauseUntil(deadline);
+        globalPauses.incrementAndGet();
+        log.warn("429s on several chats at once: pausing all sends for {} ms", TimeUnit.NANOSECONDS.toMillis(delay));
+    }
+
+    private void recordCall(Job<?> job, Exception e, long startedNanos) {
+        apiMetrics.record(job.method.getMethod(), TelegramApiMetrics.status(e), System.nanoTime() - startedNanos);
+    }
+
+    private void retryOrFail(Lane lane, Job<?> job, Exception e, long delayNanos) {
+        if (++job.attempts >= maxAttempts) {
+            fail(lane, job, e);
+            return;
+        }
+        retries.incrementAndGet();
+        reschedule(lane, delayNanos);
+    }
+
+    private void fail(Lane lane, Job<?> job, Exception e) {
+        failures.incrementAndGet();
+        job.future.completeExceptionally(e);
+        complete(lane);
+    }
+
+    private void complete(Lane lane) {
+        pending.decrementAndGet();
+        synchronized (lane) {
+            lane.jobs.poll();
+            if (lane.jobs.isEmpty()) {
+                lane.scheduled = false;
+                return;
+            }
+        }
+        submit(lane, 0);
+    }
+
+    private void reschedule(Lane lane, long delayNanos) {
+        submit(lane, delayNanos);
+    }
+
+    // Once shut down the scheduler refuses work; fail the lane's jobs rather than strand them
+    private void submit(Lane lane, long delayNanos) {
+        try {
+            if (delayNanos > 0) scheduler.schedule(() -> drain(lane), delayNanos, TimeUnit.NANOSECONDS);
+            else scheduler.execute(() -> drain(lane));
+        } catch (RejectedExecutionException e) {
+            abandon(lane, e);
+        }
+    }
+
+    private void abandon(Lane lane, Exception cause) {
+        List<Job<?>> left;
+        synchronized (lane) {
+            left = new ArrayList<>(lane.jobs);
+            lane.jobs.clear();
+            lane.scheduled = false;
+        }
+        for (Job<?> job : left) {
+            pending.decrementAndGet();
+            failures.incrementAndGet();
+            job.future.completeExceptionally(cause);
+        }
+    }
+
+    private long backoff(int attempts) {
+        long exp = baseBackoffNanos << Math.min(attempts, 6);
+        return exp / 2 + ThreadLocalRandom.current().nextLong(exp / 2 + 1);
+    }
+
+    private void dropIdleLanes() {
+        long now = System.nanoTime();
+        lanes.forEach((chatId, lane) -> {
+            synchronized (lane) {
+                if (!lane.scheduled && lane.jobs.isEmpty() && lane.bucket.isFull(now)
+                        && now - lane.lastActive > TimeUnit.MINUTES.toNanos(1)) {
+                    lanes.remove(chatId, lane);
+                }
+            }
+        });
+    }
+
+    private static final class Lane {
+        final Deque<Job<?>> jobs = new ArrayDeque<>();
+        final TokenBucket bucket;
+        boolean scheduled;
+        volatile long lastActive = System.nanoTime();
+        volatile long last429 = System.nanoTime() - Long.MAX_VALUE / 2;
+
+        Lane(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+
+    private static final class Job<T extends Serializable> {
+        final AbsSender sender;
+        final BotApiMethod<T> method;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        int attempts;
+
+        Job(AbsSender sender, BotApiMethod<T> method) {
+            this.sender = sender;
+            this.method = method;
+        }
+
+        void execute() throws TelegramApiException {
+            future.complete(sender.execute(method));
+        }
+    }
+}
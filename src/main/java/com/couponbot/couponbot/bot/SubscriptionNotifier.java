@@ -0,0 +1,230 @@
+package com.couponbot.couponbot.bot;
+
+import com.couponbot.couponbot.service.CouponsAddedEvent;
+import com.couponbot.couponbot.service.SubscriptionService;
+import com.couponbot.couponbot.service.SubscriptionService.Subscriber;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends "new coupons" alerts to platform subscribers.
+ * <p>
+ * Everything added to a platform within the coalescing window becomes one digest, so a bulk
+ * import or a burst of submissions costs each subscriber a single message. One fan-out thread
+ * walks the subscribers in keyset pages and feeds OutboundSender through its own token bucket,
+ * set below the global limit so interactive replies keep the rest; it also holds back while
+ * the outbound queue is deep. Digests being sent take turns a page at a time, so a platform
+ * with 100k subscribers doesn't hold up another platform's alert, or the 403 cleanups queued
+ * on the same thread, until it is done. The submitter only ever updates a map.
+ */
+@Component
+public class SubscriptionNotifier {
+
+    private static final Logger log = LoggerFactory.getLogger(SubscriptionNotifier.class);
+
+    private final SubscriptionService subscriptions;
+    private final OutboundSender outbound;
+    private final CouponTelegramBot bot;
+    private final long coalesceNanos;
+    private final int pageSize;
+    private final int maxOutboundPending;
+    private final TokenBucket bucket;
+    private final ScheduledExecutorService executor;
+    private final Map<String, Digest> pending = new ConcurrentHashMap<>();
+    // digests partway through their fan-out, in turn order; only touched on the fan-out thread
+    private final Deque<FanOut> sending = new ArrayDeque<>();
+
+    private final AtomicLong digests = new AtomicLong();
+    private final AtomicLong alerts = new AtomicLong();
+    private final AtomicLong blockedRemoved = new AtomicLong();
+
+    public SubscriptionNotifier(SubscriptionService subscriptions, OutboundSender outbound, CouponTelegramBot bot,
+                                @Value("${app.subscriptions.coalesce:1m}") Duration coalesce,
+                                @Value("${app.subscriptions.pageSize:1000}") int pageSize,
+                                @Value("${app.subscriptions.perSecond:20}") double perSecond,
+                                @Value("${app.subscriptions.maxOutboundPending:500}") int maxOutboundPending) {
+        this.subscriptions = subscriptions;
+        this.outbound = outbound;
+        this.bot = bot;
+        this.coalesceNanos = coalesce.toNanos();
+        this.pageSize = pageSize;
+        this.maxOutboundPending = maxOutboundPending;
+        this.bucket = new TokenBucket(perSecond, perSecond);
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "subscription-fanout");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // ✅ The first event for a platform opens its window; later ones just add to the digest
+    @EventListener
+    public void onCouponsAdded(CouponsAddedEvent event) {
+        String key = SubscriptionService.key(event.platform());
+        boolean[] opened = new boolean[1];
+        pending.compute(key, (k, d) -> {
+            if (d != null) return d.add(event.count(), event.submittedBy());
+            opened[0] = true;
+            return new Digest(event.platform().trim(), event.count(), event.submittedBy());
+        });
+        if (opened[0]) executor.schedule(() -> flush(key), coalesceNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public int getPendingDigests() {
+        return pending.size();
+    }
+
+    public long getDigestsSent() {
+        return digests.get();
+    }
+
+    public long getAlertsSent() {
+        return alerts.get();
+    }
+
+    public long getBlockedRemoved() {
+        return blockedRemoved.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        if (!pending.isEmpty()) log.info("Dropping {} unsent coupon alert digest(s) on shutdown", pending.size());
+    }
+
+    // Coupons added while this runs open a new window, so they go out as the next digest
+    private void flush(String key) {
+        Digest digest = pending.remove(key);
+        if (digest == null) return;
+        sending.addLast(new FanOut(digest));
+        if (sending.size() == 1) executor.execute(this::nextTurn);
+    }
+
+    // ✅ One page for the digest at the head, then it goes to the back. Each turn is its own task,
+    // so flushes and cleanups queued meanwhile run in between.
+    private void nextTurn() {
+        FanOut fanOut = sending.pollFirst();
+        if (fanOut == null) return;
+        try {
+            if (!fanOut.sendPage()) return;  // interrupted: shutting down
+            if (fanOut.done) fanOut.finished();
+            else sending.addLast(fanOut);
+        } catch (RuntimeException e) {
+            log.error("Coupon alert fan-out for {} failed", fanOut.digest.platform(), e);
+        }
+        if (!sending.isEmpty()) executor.execute(this::nextTurn);
+    }
+
+    // Sleeping is fine: this thread does nothing but pace the fan-out
+    private boolean awaitSendSlot() {
+        try {
+            while (true) {
+                if (outbound.getPending() >= maxOutboundPending) {
+                    TimeUnit.MILLISECONDS.sleep(50);
+                    continue;
+                }
+                long wait = bucket.tryAcquire(System.nanoTime());
+                if (wait == 0) return true;
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // 403 = the user blocked the bot; stop paging them for every future digest
+    private void failed(Subscriber s, Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof TelegramApiRequestException r && r.getErrorCode() != null && r.getErrorCode() == 403) {
+            executor.execute(() -> blockedRemoved.addAndGet(subscriptions.removeUser(s.userId())));
+        }
+    }
+
+    private static InlineKeyboardMarkup keyboard(String platform) {
+        List<InlineKeyboardButton> row = new ArrayList<>(2);
+        if (CouponTelegramBot.fitsCallbackData("view_" + platform)) {
+            InlineKeyboardButton view = new InlineKeyboardButton("📜 View coupons");
+            view.setCallbackData("view_" + platform);
+            row.add(view);
+        }
+        if (CouponTelegramBot.fitsCallbackData("unsub_" + platform)) {
+            InlineKeyboardButton stop = new InlineKeyboardButton("🔕 Stop alerts");
+            stop.setCallbackData("unsub_" + platform);
+            row.add(stop);
+        }
+        return row.isEmpty() ? null : new InlineKeyboardMarkup(List.of(row));
+    }
+
+    private final class FanOut {
+        final Digest digest;
+        final String text;
+        final InlineKeyboardMarkup keyboard;
+        final long started = System.nanoTime();
+        long after = Long.MIN_VALUE;
+        long reached;
+        boolean done;
+
+        FanOut(Digest digest) {
+            this.digest = digest;
+            this.text = digest.count() == 1
+                    ? "🔔 A new " + digest.platform() + " coupon was just shared!"
+                    : "🔔 " + digest.count() + " new " + digest.platform() + " coupons were just shared!";
+            this.keyboard = keyboard(digest.platform());
+        }
+
+        // false if interrupted partway
+        boolean sendPage() {
+            List<Subscriber> page = subscriptions.page(digest.platform(), after, pageSize);
+            for (Subscriber s : page) {
+                if (Objects.equals(digest.onlySubmitter(), s.userId())) continue;
+                if (!awaitSendSlot()) return false;
+                SendMessage msg = new SendMessage(String.valueOf(s.chatId()), text);
+                msg.setReplyMarkup(keyboard);
+                outbound.send(bot, s.chatId(), msg).whenComplete((sent, e) -> {
+                    if (e != null) failed(s, e);
+                });
+                reached++;
+            }
+            if (!page.isEmpty()) after = page.get(page.size() - 1).userId();
+            done = page.size() < pageSize;
+            return true;
+        }
+
+        void finished() {
+            digests.incrementAndGet();
+            alerts.addAndGet(reached);
+            log.info("Queued {} coupon alert for {} new coupon(s) to {} subscriber(s) in {} ms",
+                    digest.platform(), digest.count(), reached, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        }
+    }
+
+    // onlySubmitter is null once coupons from more than one user are in the digest
+    private record Digest(String platform, int count, Long onlySubmitter) {
+        Digest add(int n, Long submittedBy) {
+            return new Digest(platform, count + n, Objects.equals(onlySubmitter, submittedBy) ? onlySubmitter : null);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.couponbot.couponbot.bot;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.regex.Pattern;
+
+// Receives pushed updates in webhook mode; acks right away and lets the dispatcher do the work.
+// A full stripe gets 503, which Telegram redelivers later, so the request thread never waits.
+@RestController
+@ConditionalOnProperty(name = "app.telegram.mode", havingValue = "webhook")
+public class TelegramWebhookController {
+
+    static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    // What Telegram accepts as secret_token; an empty secret would let anyone post updates
+    private static final Pattern VALID_SECRET = Pattern.compile("[A-Za-z0-9_-]{1,256}");
+
+    private final CouponTelegramBot bot;
+    private final byte[] secret;
+
+    public TelegramWebhookController(CouponTelegramBot bot, @Value("${app.telegram.webhook.secret}") String secret) {
+        if (secret == null || !VALID_SECRET.matcher(secret).matches()) {
+            throw new IllegalStateException("app.telegram.webhook.secret (WEBHOOK_SECRET) must be 1-256 characters of "
+                    + "A-Z, a-z, 0-9, _ and - in webhook mode");
+        }
+        this.bot = bot;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @PostMapping("${app.telegram.webhook.path}")
+    public ResponseEntity<Void> onUpdate(@RequestHeader(name = SECRET_HEADER, required = false) String token,
+                                         @RequestBody Update update) {
+        if (token == null || !MessageDigest.isEqual(secret, token.getBytes(StandardCharsets.UTF_8))) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (!bot.offerUpdate(update)) return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        return ResponseEntity.ok().build();
+    }
+}
@@ -0,0 +1,57 @@
+package com.couponbot.couponbot.bot;
+
+/**
+ * Plain token bucket on System.nanoTime(). Callers ask how long to wait instead
+ * of blocking, so the outbound scheduler can reschedule rather than sleep.
+ */
+final class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefill;
+    private long blockedUntil;
+
+    TokenBucket(double ratePerSecond, double capacity) {
+        this.capacity = capacity;
+        this.tokensPerNano = ratePerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+        this.blockedUntil = lastRefill;
+    }
+
+    // 0 if a token was taken, otherwise nanos until one should be available
+    synchronized long tryAcquire(long now) {
+        long wait = nanosUntilAvailable(now);
+        if (wait == 0) tokens -= 1;
+        return wait;
+    }
+
+    synchronized long nanosUntilAvailable(long now) {
+        if (now - blockedUntil < 0) return blockedUntil - now;
+        refill(now);
+        if (tokens >= 1) return 0;
+        return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano));
+    }
+
+    // Used for 429 retry_after: nothing goes out before the deadline, then refill restarts from empty
+    synchronized void pauseUntil(long deadline) {
+        if (deadline - blockedUntil > 0) {
+            blockedUntil = deadline;
+            tokens = 0;
+            lastRefill = deadline;
+        }
+    }
+
+    synchronized boolean isFull(long now) {
+        refill(now);
+        return tokens >= capacity;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefill;
+        if (elapsed <= 0) return;
+        tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,154 @@
+package com.couponbot.couponbot.bot;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs update handlers off the polling thread. Updates are striped by user id,
+ * so one user's steps stay in order while different users run in parallel.
+ * Each stripe has a bounded queue and dispatch never blocks: a full stripe rejects the
+ * update, so one busy user can't stall everyone else's. Producers avoid that instead:
+ * UpdatePoller only fetches as many updates as {@link #getHeadroom()} can take (the backlog
+ * stays on Telegram's side), the webhook answers 503 so Telegram redelivers, and QueueWorker
+ * releases its lease.
+ */
+@Component
+@DependsOn("outboundSender")  // shut down first, so replies from the drained updates still go out
+public class UpdateDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(UpdateDispatcher.class);
+
+    private final Stripe[] stripes;
+    private final Duration drainTimeout;
+    private final AtomicLong rejectedDispatches = new AtomicLong();
+    private volatile boolean accepting = true;
+
+    public UpdateDispatcher(@Value("${app.dispatch.stripes:16}") int stripeCount,
+                            @Value("${app.dispatch.queueCapacity:256}") int queueCapacity,
+                            @Value("${app.dispatch.drainTimeout:10s}") Duration drainTimeout) {
+        this.drainTimeout = drainTimeout;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(i, queueCapacity);
+            stripes[i].thread.start();
+        }
+    }
+
+    // Never blocks: false when the stripe is full or the dispatcher is shutting down
+    public boolean tryDispatch(long userKey, Runnable task) {
+        if (accepting && stripe(userKey).queue.offer(new Job(task, System.nanoTime()))) return true;
+        rejectedDispatches.incrementAndGet();
+        return false;
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    // Free slots on the fullest stripe: this many updates fit even if they all go to one user
+    public int getHeadroom() {
+        int min = Integer.MAX_VALUE;
+        for (Stripe s : stripes) min = Math.min(min, s.queue.remainingCapacity());
+        return accepting ? min : 0;
+    }
+
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Stripe s : stripes) depth += s.queue.size();
+        return depth;
+    }
+
+    public int getQueueDepth(int stripe) {
+        return stripes[stripe].queue.size();
+    }
+
+    // Time the most recently started job on this stripe spent waiting in its queue
+    public Duration getLag(int stripe) {
+        return Duration.ofNanos(stripes[stripe].lastLagNanos);
+    }
+
+    public Duration getMaxLag() {
+        long max = 0;
+        for (Stripe s : stripes) max = Math.max(max, s.lastLagNanos);
+        return Duration.ofNanos(max);
+    }
+
+    public long getRejectedDispatches() {
+        return rejectedDispatches.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        accepting = false;
+        for (Stripe s : stripes) s.draining = true;
+
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+        for (Stripe s : stripes) {
+            try {
+                s.thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (Stripe s : stripes) {
+            if (s.thread.isAlive()) {
+                log.warn("Stripe {} did not drain in time, {} updates left", s.index, s.queue.size());
+                s.thread.interrupt();
+            }
+        }
+    }
+
+    private Stripe stripe(long userKey) {
+        return stripes[Math.floorMod(Long.hashCode(userKey), stripes.length)];
+    }
+
+    private record Job(Runnable task, long enqueuedAt) {}
+
+    private static final class Stripe implements Runnable {
+        final int index;
+        final BlockingQueue<Job> queue;
+        final Thread thread;
+        volatile long lastLagNanos;
+        volatile boolean draining;
+
+        Stripe(int index, int capacity) {
+            this.index = index;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = new Thread(this, "update-stripe-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Job job;
+                try {
+                    job = queue.poll(200, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (job == null) {
+                    if (draining) return;
+                    continue;
+                }
+                lastLagNanos = System.nanoTime() - job.enqueuedAt;
+                try {
+                    job.task.run();
+                } catch (Exception e) {
+                    log.error("Update handler failed on stripe {}", index, e);
+                }
+            }
+        }
+    }
+}
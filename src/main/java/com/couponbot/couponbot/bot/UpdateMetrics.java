@@ -0,0 +1,63 @@
+package com.couponbot.couponbot.bot;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-update-type handling time (bot.update.handle) and failures (bot.update.errors).
+ * Meters are registered once per UpdateType up front, so recording is an array index
+ * plus a Timer.record with no tag lookup on the hot path.
+ */
+@Component
+public class UpdateMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(UpdateMetrics.class);
+
+    private final Timer[] timers;
+    private final Counter[] errors;
+    // JVM uptime when the first update finished, the "time to first update" of a deploy
+    private volatile double firstUpdateSeconds = Double.NaN;
+
+    public UpdateMetrics(MeterRegistry registry) {
+        UpdateType[] types = UpdateType.values();
+        timers = new Timer[types.length];
+        errors = new Counter[types.length];
+        for (UpdateType t : types) {
+            timers[t.ordinal()] = Timer.builder("bot.update.handle")
+                    .description("Time to handle one Telegram update, by update type")
+                    .tag("type", t.tag())
+                    .register(registry);
+            errors[t.ordinal()] = Counter.builder("bot.update.errors")
+                    .description("Updates whose handler threw")
+                    .tag("type", t.tag())
+                    .register(registry);
+        }
+        Gauge.builder("bot.startup.first.update", this, m -> m.firstUpdateSeconds)
+                .description("Seconds from JVM start until the first update was handled")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    public void record(UpdateType type, long nanos) {
+        timers[type.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+        if (Double.isNaN(firstUpdateSeconds)) firstUpdateHandled();
+    }
+
+    private synchronized void firstUpdateHandled() {
+        if (!Double.isNaN(firstUpdateSeconds)) return;
+        firstUpdateSeconds = ManagementFactory.getRuntimeMXBean().getUptime() / 1000.0;
+        log.info("First update handled {} s after JVM start", firstUpdateSeconds);
+    }
+
+    public void error(UpdateType type) {
+        errors[type.ordinal()].increment();
+    }
+}
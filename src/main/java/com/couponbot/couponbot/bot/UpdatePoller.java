@@ -0,0 +1,121 @@
+package com.couponbot.couponbot.bot;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.updates.GetUpdates;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Polling mode: long-polls getUpdates on one thread and hands each update to UpdateDispatcher.
+ * Each poll asks for no more updates than the fullest stripe still has room for, and none while
+ * any stripe is full, so under load the backlog waits on Telegram's side (it keeps updates for
+ * 24 hours) rather than in memory here. Being the only producer in this mode, every update it
+ * fetches fits and is dispatched without blocking.
+ */
+@Component
+@ConditionalOnProperty(name = "app.telegram.mode", havingValue = "polling", matchIfMissing = true)
+public class UpdatePoller {
+
+    private static final Logger log = LoggerFactory.getLogger(UpdatePoller.class);
+    private static final int MAX_LIMIT = 100;  // Bot API cap on getUpdates
+
+    private final CouponTelegramBot bot;
+    private final UpdateDispatcher dispatcher;
+    private final int timeoutSeconds;
+    private final int limit;
+    private final Duration fullWait;
+    private final Duration retry;
+    private final Thread thread;
+    private final AtomicLong heldPolls = new AtomicLong();
+    private volatile boolean running = true;
+
+    public UpdatePoller(CouponTelegramBot bot, UpdateDispatcher dispatcher,
+                        @Value("${app.telegram.polling.timeout:50s}") Duration timeout,
+                        @Value("${app.telegram.polling.limit:100}") int limit,
+                        @Value("${app.telegram.polling.fullWait:50ms}") Duration fullWait,
+                        @Value("${app.telegram.polling.retry:5s}") Duration retry) {
+        this.bot = bot;
+        this.dispatcher = dispatcher;
+        this.timeoutSeconds = (int) timeout.toSeconds();
+        this.limit = Math.min(limit, MAX_LIMIT);
+        this.fullWait = fullWait;
+        this.retry = retry;
+        this.thread = new Thread(this::run, "update-poller");
+        this.thread.setDaemon(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        thread.start();
+        log.info("Long polling started");
+    }
+
+    // Polls that had to wait for a stripe to drain before asking Telegram for more
+    public long getHeldPolls() {
+        return heldPolls.get();
+    }
+
+    private void run() {
+        int offset = 0;
+        while (running) {
+            try {
+                int room = awaitHeadroom();
+                if (room == 0) return;
+
+                GetUpdates getUpdates = new GetUpdates();
+                getUpdates.setOffset(offset);
+                getUpdates.setLimit(Math.min(limit, room));
+                getUpdates.setTimeout(timeoutSeconds);
+                List<Update> updates = bot.execute(getUpdates);
+                for (Update u : updates) {
+                    offset = Math.max(offset, u.getUpdateId() + 1);
+                    // only fails once shutdown has started; the dispatcher counts it as rejected
+                    if (!bot.offerUpdate(u)) log.warn("Dropped update {}: dispatcher is shutting down", u.getUpdateId());
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                if (!running) return;
+                log.warn("getUpdates failed: {}", e.getMessage());
+                sleep(retry);
+            }
+        }
+    }
+
+    // 0 only when stopping
+    private int awaitHeadroom() throws InterruptedException {
+        int room = dispatcher.getHeadroom();
+        if (room > 0) return room;
+        heldPolls.incrementAndGet();
+        while (running) {
+            Thread.sleep(fullWait.toMillis());
+            room = dispatcher.getHeadroom();
+            if (room > 0) return room;
+        }
+        return 0;
+    }
+
+    private static void sleep(Duration d) {
+        try {
+            Thread.sleep(d.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,78 @@
+package com.couponbot.couponbot.bot;
+
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+/**
+ * Fixed set of update kinds used as the "type" metric tag, so tag cardinality stays bounded
+ * no matter what users type or which coupon ids appear in callback data.
+ */
+public enum UpdateType {
+    START("start"),
+    BULK("bulk"),
+    MENU_SUBMIT("menu_submit"),
+    MENU_BROWSE("menu_browse"),
+    MENU_ABOUT("menu_about"),
+    SUBSCRIBE("subscribe"),
+    UNSUBSCRIBE("unsubscribe"),
+    SUBSCRIPTIONS("subscriptions"),
+    MY_CLAIMS("my_claims"),
+    MY_SUBMISSIONS("my_submissions"),
+    STATS("stats"),
+    TEXT("text"),               // wizard steps and anything else typed
+    DOCUMENT("document"),
+    CALLBACK_PLATFORM("cb_plt"),
+    CALLBACK_VIEW("cb_view"),
+    CALLBACK_PAGE("cb_pg"),
+    CALLBACK_CLAIM("cb_claim"),
+    CALLBACK_NEXT("cb_next"),
+    CALLBACK_VERIFY("cb_verify"),
+    CALLBACK_SUBSCRIBE("cb_sub"),
+    CALLBACK_UNSUBSCRIBE("cb_unsub"),
+    CALLBACK_HISTORY("cb_history"),
+    CALLBACK_OTHER("cb_other"),
+    OTHER("other");
+
+    private final String tag;
+
+    UpdateType(String tag) {
+        this.tag = tag;
+    }
+
+    public String tag() {
+        return tag;
+    }
+
+    // Mirrors the routing in CouponTelegramBot.handleUpdate
+    public static UpdateType of(Update update) {
+        if (update.hasCallbackQuery()) {
+            String data = update.getCallbackQuery().getData();
+            if (data == null) return CALLBACK_OTHER;
+            if (data.startsWith("plt_")) return CALLBACK_PLATFORM;
+            if (data.startsWith("view_")) return CALLBACK_VIEW;
+            if (data.startsWith("pg_")) return CALLBACK_PAGE;
+            if (data.startsWith("sub_")) return CALLBACK_SUBSCRIBE;
+            if (data.startsWith("unsub_")) return CALLBACK_UNSUBSCRIBE;
+            if (data.startsWith("mc_") || data.startsWith("ms_")) return CALLBACK_HISTORY;
+            if (data.startsWith("claim_")) return CALLBACK_CLAIM;
+            if (data.startsWith("next_")) return CALLBACK_NEXT;
+            if (data.startsWith("verify_")) return CALLBACK_VERIFY;
+            return CALLBACK_OTHER;
+        }
+        if (!update.hasMessage()) return OTHER;
+        if (update.getMessage().hasDocument()) return DOCUMENT;
+        if (!update.getMessage().hasText()) return OTHER;
+        String text = update.getMessage().getText().trim();
+        if (text.equals("/start")) return START;
+        if (text.equals("/bulk") || text.startsWith("/bulk ")) return BULK;
+        if (text.equals("/subscribe") || text.startsWith("/subscribe ")) return SUBSCRIBE;
+        if (text.equals("/unsubscribe") || text.startsWith("/unsubscribe ")) return UNSUBSCRIBE;
+        if (text.equals("/subscriptions")) return SUBSCRIPTIONS;
+        if (text.equals("/myclaims")) return MY_CLAIMS;
+        if (text.equals("/mysubmissions")) return MY_SUBMISSIONS;
+        if (text.equals("/stats")) return STATS;
+        if (text.equals("📤 Submit Coupon")) return MENU_SUBMIT;
+        if (text.equals("📜 Available Coupons")) return MENU_BROWSE;
+        if (text.equals("ℹ️ About Us")) return MENU_ABOUT;
+        return TEXT;
+    }
+}
@@ -0,0 +1,134 @@
+package com.couponbot.couponbot.bot.cluster;
+
+import com.couponbot.couponbot.bot.CouponTelegramBot;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.updates.GetUpdates;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Cluster mode: whichever instance holds the Postgres advisory lock long-polls Telegram and
+ * writes the updates into UpdateQueue. The lock is session-scoped, so it is held on its own
+ * connection opened outside the pool: closing it ends the session and with it the lock,
+ * whether this instance steps down, dies or loses the connection, and another instance takes
+ * over from the stored offset within leaderRetry. A pooled connection would go back to the
+ * pool still holding the lock.
+ */
+@Component
+@ConditionalOnProperty(name = "app.telegram.mode", havingValue = "cluster")
+public class ClusterLeader {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterLeader.class);
+
+    private final DataSourceProperties database;
+    private final UpdateQueue queue;
+    private final CouponTelegramBot bot;
+    private final long lockKey;
+    private final Duration retry;
+    private final int pollTimeoutSeconds;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile boolean leader;
+
+    public ClusterLeader(DataSourceProperties database, UpdateQueue queue, CouponTelegramBot bot,
+                         @Value("${app.cluster.lockKey:727001}") long lockKey,
+                         @Value("${app.cluster.leaderRetry:5s}") Duration retry,
+                         @Value("${app.cluster.pollTimeout:30s}") Duration pollTimeout) {
+        this.database = database;
+        this.queue = queue;
+        this.bot = bot;
+        this.lockKey = lockKey;
+        this.retry = retry;
+        this.pollTimeoutSeconds = (int) pollTimeout.toSeconds();
+        this.thread = new Thread(this::run, "update-leader");
+        this.thread.setDaemon(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        thread.start();
+    }
+
+    public boolean isLeader() {
+        return leader;
+    }
+
+    private void run() {
+        while (running) {
+            try (Connection lockConnection = openLockConnection()) {
+                if (tryLock(lockConnection)) {
+                    leader = true;
+                    log.info("Became update leader (advisory lock {})", lockKey);
+                    lead(lockConnection);
+                }
+            } catch (Exception e) {
+                if (running) log.warn("Update leader stepped down: {}", e.getMessage());
+            } finally {
+                if (leader) log.info("No longer update leader");
+                leader = false;
+            }
+            sleep(retry);
+        }
+    }
+
+    private void lead(Connection lockConnection) throws Exception {
+        long offset = queue.lastUpdateId() + 1;
+        while (running) {
+            // a broken connection means Postgres has already dropped our lock
+            if (!lockConnection.isValid(2)) throw new SQLException("lock connection lost");
+
+            GetUpdates getUpdates = new GetUpdates();
+            getUpdates.setOffset((int) offset);
+            getUpdates.setLimit(100);
+            getUpdates.setTimeout(pollTimeoutSeconds);
+            List<Update> updates = bot.execute(getUpdates);
+            if (updates.isEmpty()) continue;
+
+            queue.enqueue(updates);
+            for (Update u : updates) offset = Math.max(offset, u.getUpdateId() + 1L);
+        }
+    }
+
+    // Same server and credentials as the primary pool (spring.datasource), but not from it
+    private Connection openLockConnection() throws SQLException {
+        return DriverManager.getConnection(database.determineUrl(), database.determineUsername(), database.determinePassword());
+    }
+
+    private boolean tryLock(Connection c) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            ps.setLong(1, lockKey);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private static void sleep(Duration d) {
+        try {
+            Thread.sleep(d.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,146 @@
+package com.couponbot.couponbot.bot.cluster;
+
+import com.couponbot.couponbot.bot.CouponTelegramBot;
+import com.couponbot.couponbot.bot.UpdateDispatcher;
+import com.couponbot.couponbot.bot.state.ConversationStateStore;
+import com.couponbot.couponbot.bot.state.JdbcConversationStateStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs on every instance in cluster mode (the leader included): leases queued updates and
+ * hands them to the local UpdateDispatcher, deleting each row once it has been handled.
+ * Delivery is at-least-once; a row whose worker died is retried after its lease expires,
+ * and one that keeps failing is dropped after maxAttempts.
+ */
+@Component
+@ConditionalOnProperty(name = "app.telegram.mode", havingValue = "cluster")
+public class QueueWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(QueueWorker.class);
+
+    private final UpdateQueue queue;
+    private final UpdateDispatcher dispatcher;
+    private final CouponTelegramBot bot;
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName();
+    private final int maxInFlight;
+    private final Duration leaseTime;
+    private final Duration idlePoll;
+    private final int maxAttempts;
+    private final Thread thread;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong handled = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean running = true;
+
+    public QueueWorker(UpdateQueue queue, UpdateDispatcher dispatcher, CouponTelegramBot bot,
+                       ConversationStateStore userStates,
+                       @Value("${app.cluster.maxInFlight:64}") int maxInFlight,
+                       @Value("${app.cluster.lease:2m}") Duration leaseTime,
+                       @Value("${app.cluster.idlePoll:200ms}") Duration idlePoll,
+                       @Value("${app.cluster.maxAttempts:3}") int maxAttempts) {
+        // a user's next update may land on another instance, so wizard state has to be shared
+        if (!(userStates instanceof JdbcConversationStateStore)) {
+            throw new IllegalStateException("app.telegram.mode=cluster requires app.conversation.store=jdbc");
+        }
+        this.queue = queue;
+        this.dispatcher = dispatcher;
+        this.bot = bot;
+        this.maxInFlight = maxInFlight;
+        this.leaseTime = leaseTime;
+        this.idlePoll = idlePoll;
+        this.maxAttempts = maxAttempts;
+        this.thread = new Thread(this::run, "update-queue-worker");
+        this.thread.setDaemon(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        thread.start();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                int free = maxInFlight - inFlight.get();
+                List<UpdateQueue.Leased> rows = free > 0 ? queue.lease(owner, free, leaseTime) : List.of();
+                if (rows.isEmpty()) {
+                    Thread.sleep(idlePoll.toMillis());
+                    continue;
+                }
+                for (UpdateQueue.Leased row : rows) {
+                    inFlight.incrementAndGet();
+                    if (!dispatcher.tryDispatch(row.userKey(), () -> handle(row))) {
+                        // stripe full or shutting down: hand the row back rather than wait out the lease
+                        inFlight.decrementAndGet();
+                        queue.release(row.id(), owner);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("Update queue poll failed: {}", e.getMessage());
+                sleepQuietly(idlePoll.multipliedBy(5));
+            }
+        }
+    }
+
+    private void handle(UpdateQueue.Leased row) {
+        try {
+            if (row.attempts() > maxAttempts) {
+                dropped.incrementAndGet();
+                log.warn("Dropping queued update {} after {} attempts", row.id(), row.attempts() - 1);
+            } else {
+                Update update = queue.decode(row);
+                bot.handleUpdate(update);
+                handled.incrementAndGet();
+            }
+            queue.complete(row.id(), owner);
+        } catch (RuntimeException e) {
+            // leave the row leased; it is retried once the lease runs out
+            log.warn("Queued update {} failed: {}", row.id(), e.getMessage());
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getHandled() {
+        return handled.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private static void sleepQuietly(Duration d) {
+        try {
+            Thread.sleep(d.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,123 @@
+package com.couponbot.couponbot.bot.cluster;
+
+import com.couponbot.couponbot.bot.CouponTelegramBot;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The update_queue table shared by every instance in cluster mode. Only the oldest row of
+ * each user can be leased, and only while nobody else holds it, so a user's updates are
+ * handled one at a time and in order across the whole cluster while different users are
+ * spread over all workers. Leases expire, so rows held by a dead worker are picked up again.
+ */
+@Component
+@ConditionalOnProperty(name = "app.telegram.mode", havingValue = "cluster")
+public class UpdateQueue {
+
+    private static final String OFFSET_NAME = "telegram";
+
+    // heads = each user's oldest row; the lock re-checks locked_until on the row itself so two
+    // workers can't both lease a head whose lease the other has just taken
+    private static final String LEASE = """
+            WITH heads AS (
+                SELECT DISTINCT ON (user_key) id
+                  FROM update_queue
+                 ORDER BY user_key, id),
+            ready AS (
+                SELECT q.id FROM update_queue q
+                  JOIN heads h ON h.id = q.id
+                 WHERE q.locked_until IS NULL OR q.locked_until < now()
+                 ORDER BY q.id
+                 LIMIT ?
+                   FOR UPDATE OF q SKIP LOCKED)
+            UPDATE update_queue q
+               SET locked_by = ?, locked_until = now() + ? * interval '1 millisecond', attempts = q.attempts + 1
+              FROM ready
+             WHERE q.id = ready.id
+            RETURNING q.id, q.user_key, q.payload::text, q.attempts
+            """;
+
+    public record Leased(long id, long userKey, String payload, int attempts) {}
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final ObjectMapper mapper;
+
+    public UpdateQueue(JdbcTemplate jdbc, TransactionTemplate tx, ObjectMapper mapper) {
+        this.jdbc = jdbc;
+        this.tx = tx;
+        this.mapper = mapper;
+    }
+
+    // Inserts the batch and advances the stored offset atomically; re-enqueued updates are ignored
+    public void enqueue(List<Update> updates) {
+        if (updates.isEmpty()) return;
+        List<Object[]> rows = new ArrayList<>(updates.size());
+        long maxId = 0;
+        for (Update u : updates) {
+            rows.add(new Object[]{u.getUpdateId(), CouponTelegramBot.userKey(u), toJson(u)});
+            maxId = Math.max(maxId, u.getUpdateId());
+        }
+        long lastId = maxId;
+        tx.executeWithoutResult(status -> {
+            jdbc.batchUpdate("INSERT INTO update_queue (update_id, user_key, payload) VALUES (?, ?, ?::jsonb) " +
+                    "ON CONFLICT (update_id) DO NOTHING", rows);
+            jdbc.update("INSERT INTO update_offsets (name, last_update_id) VALUES (?, ?) " +
+                    "ON CONFLICT (name) DO UPDATE SET last_update_id = GREATEST(update_offsets.last_update_id, EXCLUDED.last_update_id)",
+                    OFFSET_NAME, lastId);
+        });
+    }
+
+    // 0 when nothing has been enqueued yet
+    public long lastUpdateId() {
+        List<Long> ids = jdbc.queryForList("SELECT last_update_id FROM update_offsets WHERE name = ?", Long.class, OFFSET_NAME);
+        return ids.isEmpty() ? 0 : ids.get(0);
+    }
+
+    public List<Leased> lease(String owner, int limit, Duration leaseTime) {
+        return jdbc.query(LEASE, (rs, i) -> new Leased(rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getInt(4)),
+                limit, owner, leaseTime.toMillis());
+    }
+
+    // Deleting the row is what lets the user's next update become leasable
+    public void complete(long id, String owner) {
+        jdbc.update("DELETE FROM update_queue WHERE id = ? AND locked_by = ?", id, owner);
+    }
+
+    // Un-leases a row that was never handed to a handler, without counting the attempt
+    public void release(long id, String owner) {
+        jdbc.update("UPDATE update_queue SET locked_by = NULL, locked_until = NULL, attempts = attempts - 1 " +
+                "WHERE id = ? AND locked_by = ?", id, owner);
+    }
+
+    public long depth() {
+        Long n = jdbc.queryForObject("SELECT count(*) FROM update_queue", Long.class);
+        return n == null ? 0 : n;
+    }
+
+    private String toJson(Update u) {
+        try {
+            return mapper.writeValueAsString(u);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Update decode(Leased row) {
+        try {
+            return mapper.readValue(row.payload(), Update.class);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
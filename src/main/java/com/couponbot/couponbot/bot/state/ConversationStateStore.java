@@ -0,0 +1,25 @@
+package com.couponbot.couponbot.bot.state;
+
+import java.util.Optional;
+
+/**
+ * Holds in-progress wizard state per user. Implementations bound the number of entries
+ * and forget users that have been idle longer than the configured TTL.
+ * Selected with app.conversation.store (memory | jdbc).
+ */
+public interface ConversationStateStore {
+
+    Optional<SubmissionState> get(long userId);
+
+    void put(long userId, SubmissionState state);
+
+    void remove(long userId);
+
+    long size();
+
+    // entries dropped because the store was full
+    long evictions();
+
+    // entries dropped because they sat idle past the TTL
+    long expirations();
+}
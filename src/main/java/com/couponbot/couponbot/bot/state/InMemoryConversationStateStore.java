@@ -0,0 +1,212 @@
+package com.couponbot.couponbot.bot.state;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Default store: striped open-addressing tables keyed by primitive user id, with parallel
+ * value and last-access arrays (no boxed keys or per-entry nodes).
+ * Idle entries expire lazily on read and in a periodic sweep. When a stripe is full the
+ * least recently used of a small random sample is evicted, which approximates LRU without
+ * maintaining a list.
+ */
+@Component
+@ConditionalOnProperty(name = "app.conversation.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryConversationStateStore implements ConversationStateStore {
+
+    private static final long FREE = Long.MIN_VALUE;
+    private static final int SAMPLE = 8;
+
+    private final Stripe[] stripes;
+    private final long ttlMillis;
+    private final int stripeCap;
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    public InMemoryConversationStateStore(@Value("${app.conversation.ttl:30m}") Duration ttl,
+                                          @Value("${app.conversation.maxSize:100000}") int maxSize,
+                                          @Value("${app.conversation.stripes:16}") int stripeCount) {
+        this.ttlMillis = ttl.toMillis();
+        this.stripes = new Stripe[stripeCount];
+        this.stripeCap = Math.max(1, maxSize / stripeCount);
+        for (int i = 0; i < stripeCount; i++) stripes[i] = new Stripe();
+    }
+
+    @Override
+    public Optional<SubmissionState> get(long userId) {
+        Stripe s = stripe(userId);
+        long now = System.currentTimeMillis();
+        synchronized (s) {
+            int slot = s.find(userId);
+            if (slot < 0) return Optional.empty();
+            if (now - s.lastAccess[slot] > ttlMillis) {
+                s.delete(slot);
+                expirations.incrementAndGet();
+                return Optional.empty();
+            }
+            s.lastAccess[slot] = now;
+            return Optional.of(s.values[slot]);
+        }
+    }
+
+    @Override
+    public void put(long userId, SubmissionState state) {
+        Stripe s = stripe(userId);
+        long now = System.currentTimeMillis();
+        synchronized (s) {
+            int slot = s.find(userId);
+            if (slot < 0) {
+                if (s.size >= stripeCap) {
+                    s.evictOne(now);
+                }
+                slot = s.insert(userId);
+            }
+            s.values[slot] = state;
+            s.lastAccess[slot] = now;
+        }
+    }
+
+    @Override
+    public void remove(long userId) {
+        Stripe s = stripe(userId);
+        synchronized (s) {
+            int slot = s.find(userId);
+            if (slot >= 0) s.delete(slot);
+        }
+    }
+
+    @Override
+    public long size() {
+        long n = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                n += s.size;
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public long evictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public long expirations() {
+        return expirations.get();
+    }
+
+    @Scheduled(fixedDelayString = "${app.conversation.sweepInterval:PT1M}", initialDelayString = "${app.conversation.sweepInterval:PT1M}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                for (int i = 0; i < s.keys.length; ) {
+                    // delete() shifts later entries back into i, so only advance when nothing was removed
+                    if (s.keys[i] != FREE && now - s.lastAccess[i] > ttlMillis) {
+                        s.delete(i);
+                        expirations.incrementAndGet();
+                    } else {
+                        i++;
+                    }
+                }
+            }
+        }
+    }
+
+    private Stripe stripe(long userId) {
+        return stripes[Math.floorMod(Long.hashCode(userId * 0x9E3779B97F4A7C15L), stripes.length)];
+    }
+
+    private static int hash(long key) {
+        long h = key * 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 29));
+    }
+
+    private final class Stripe {
+        long[] keys = filled(16);
+        SubmissionState[] values = new SubmissionState[16];
+        long[] lastAccess = new long[16];
+        int size;
+
+        int find(long key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+                if (keys[i] == key) return i;
+                if (keys[i] == FREE) return -1;
+            }
+        }
+
+        int insert(long key) {
+            if ((size + 1) * 2 > keys.length) grow();
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (keys[i] != FREE) i = (i + 1) & mask;
+            keys[i] = key;
+            size++;
+            return i;
+        }
+
+        // Backward-shift deletion keeps probe chains intact without tombstones
+        void delete(int slot) {
+            int mask = keys.length - 1;
+            int hole = slot;
+            for (int i = (slot + 1) & mask; keys[i] != FREE; i = (i + 1) & mask) {
+                int home = hash(keys[i]) & mask;
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    keys[hole] = keys[i];
+                    values[hole] = values[i];
+                    lastAccess[hole] = lastAccess[i];
+                    hole = i;
+                }
+            }
+            keys[hole] = FREE;
+            values[hole] = null;
+            size--;
+        }
+
+        void evictOne(long now) {
+            int victim = -1;
+            int mask = keys.length - 1;
+            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            for (int n = 0; n < SAMPLE; n++) {
+                int i = rnd.nextInt(keys.length);
+                while (keys[i] == FREE) i = (i + 1) & mask;
+                if (victim < 0 || lastAccess[i] < lastAccess[victim]) victim = i;
+            }
+            boolean expired = now - lastAccess[victim] > ttlMillis;
+            delete(victim);
+            (expired ? expirations : evictions).incrementAndGet();
+        }
+
+        void grow() {
+            long[] oldKeys = keys;
+            SubmissionState[] oldValues = values;
+            long[] oldAccess = lastAccess;
+            keys = filled(oldKeys.length * 2);
+            values = new SubmissionState[oldKeys.length * 2];
+            lastAccess = new long[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == FREE) continue;
+                int slot = insert(oldKeys[i]);
+                values[slot] = oldValues[i];
+                lastAccess[slot] = oldAccess[i];
+            }
+        }
+
+        private long[] filled(int n) {
+            long[] a = new long[n];
+            Arrays.fill(a, FREE);
+            return a;
+        }
+    }
+}
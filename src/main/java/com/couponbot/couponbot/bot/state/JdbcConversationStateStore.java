@@ -0,0 +1,98 @@
+package com.couponbot.couponbot.bot.state;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Postgres-backed store (table conversation_state) so wizard state survives restarts.
+ * Like the in-memory store, the TTL counts from the last access: a read refreshes
+ * updated_at in the same statement. Expired rows are skipped on read and deleted by a
+ * sweep, which also trims the oldest rows beyond maxSize.
+ */
+@Component
+@ConditionalOnProperty(name = "app.conversation.store", havingValue = "jdbc")
+public class JdbcConversationStateStore implements ConversationStateStore {
+
+    private final JdbcTemplate jdbc;
+    private final Duration ttl;
+    private final int maxSize;
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private volatile long size;
+
+    public JdbcConversationStateStore(JdbcTemplate jdbc,
+                                      @Value("${app.conversation.ttl:30m}") Duration ttl,
+                                      @Value("${app.conversation.maxSize:100000}") int maxSize) {
+        this.jdbc = jdbc;
+        this.ttl = ttl;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public Optional<SubmissionState> get(long userId) {
+        Instant now = Instant.now();
+        List<SubmissionState> rows = jdbc.query("""
+                UPDATE conversation_state SET updated_at = ?
+                 WHERE user_id = ? AND updated_at > ?
+                RETURNING step, platform, code
+                """,
+                (rs, i) -> new SubmissionState(rs.getString("platform"), rs.getString("code"),
+                        SubmissionState.Step.valueOf(rs.getString("step"))),
+                Timestamp.from(now), userId, Timestamp.from(now.minus(ttl)));
+        return rows.stream().findFirst();
+    }
+
+    @Override
+    public void put(long userId, SubmissionState state) {
+        jdbc.update("""
+                INSERT INTO conversation_state (user_id, step, platform, code, updated_at)
+                VALUES (?, ?, ?, ?, ?)
+                ON CONFLICT (user_id) DO UPDATE
+                   SET step = EXCLUDED.step, platform = EXCLUDED.platform,
+                       code = EXCLUDED.code, updated_at = EXCLUDED.updated_at
+                """, userId, state.step().name(), state.platform(), state.code(), Timestamp.from(Instant.now()));
+    }
+
+    @Override
+    public void remove(long userId) {
+        jdbc.update("DELETE FROM conversation_state WHERE user_id = ?", userId);
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public long evictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public long expirations() {
+        return expirations.get();
+    }
+
+    @Scheduled(fixedDelayString = "${app.conversation.sweepInterval:PT1M}", initialDelayString = "${app.conversation.sweepInterval:PT1M}")
+    public void sweep() {
+        expirations.addAndGet(jdbc.update("DELETE FROM conversation_state WHERE updated_at <= ?",
+                Timestamp.from(Instant.now().minus(ttl))));
+        evictions.addAndGet(jdbc.update("""
+                DELETE FROM conversation_state
+                 WHERE user_id IN (SELECT user_id FROM conversation_state
+                                    ORDER BY updated_at DESC OFFSET ?)
+                """, maxSize));
+        Long count = jdbc.queryForObject("SELECT count(*) FROM conversation_state", Long.class);
+        size = count == null ? 0 : count;
+    }
+}
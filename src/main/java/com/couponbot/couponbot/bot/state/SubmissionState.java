@@ -0,0 +1,7 @@
+package com.couponbot.couponbot.bot.state;
+
+// Where a user is in the submission wizard (or bulk import)
+public record SubmissionState(String platform, String code, Step step) {
+
+    public enum Step { SELECT_PLATFORM, ENTER_PLATFORM_NAME, ENTER_CODE, ENTER_DETAILS, BULK_IMPORT }
+}
@@ -8,7 +8,9 @@ import java.time.Instant;
 public class Coupon {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled sequence (not IDENTITY) so Hibernate can batch inserts, see V3 migration
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "coupons_seq")
+    @SequenceGenerator(name = "coupons_seq", sequenceName = "coupons_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "code", nullable = false, length = 120)
@@ -36,6 +38,9 @@ public class Coupon {
     @Column(name = "claimed_at")
     private Instant claimedAt;
 
+    @Column(name = "expires_at")
+    private Instant expiresAt;
+
     public enum Status { AVAILABLE, CLAIMED, EXPIRED, REMOVED }
 
     public Long getId() { return id; }
@@ -63,4 +68,7 @@ public class Coupon {
 
     public Instant getClaimedAt() { return claimedAt; }
     public void setClaimedAt(Instant claimedAt) { this.claimedAt = claimedAt; }
+
+    public Instant getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
 }
@@ -0,0 +1,87 @@
+package com.couponbot.couponbot.db.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+/**
+ * Connection pools. The primary pool (spring.datasource) always exists; with
+ * app.datasource.replica.url set there is also a replica pool, and the DataSource everything
+ * else uses becomes a router between the two (see ReplicaRoutingDataSource).
+ * <p>
+ * Pool sizes follow the update dispatcher: each stripe is one handler thread that holds at most
+ * one connection at a time, so the primary gets stripes + backgroundConnections (sweepers,
+ * reconcile, fan-out; the cluster leader's lock has its own connection outside the pool) and the replica gets stripes + 1 (fan-out
+ * paging). spring.datasource.hikari.* / app.datasource.replica.hikari.* override either.
+ * <p>
+ * In an AOT-processed jar (-Pfaststart) whether ReplicaRouting exists was decided at build
+ * time by faststart.replicaUrl; setting REPLICA_URL only at run time is then ignored.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties,
+                                              @Value("${app.dispatch.stripes:16}") int stripes,
+                                              @Value("${app.datasource.backgroundConnections:4}") int background) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName("primary");
+        pool.setMaximumPoolSize(stripes + background);
+        return pool;
+    }
+
+    @Configuration
+    @ConditionalOnExpression("!'${app.datasource.replica.url:}'.isEmpty()")
+    static class ReplicaRouting {
+
+        @Bean
+        @ConfigurationProperties("app.datasource.replica.hikari")
+        public HikariDataSource replicaDataSource(DataSourceProperties primary,
+                                                  @Value("${app.datasource.replica.url}") String url,
+                                                  @Value("${app.datasource.replica.username:}") String username,
+                                                  @Value("${app.datasource.replica.password:}") String password,
+                                                  @Value("${app.dispatch.stripes:16}") int stripes) {
+            HikariDataSource pool = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(url)
+                    .username(username.isEmpty() ? primary.determineUsername() : username)
+                    .password(password.isEmpty() ? primary.determinePassword() : password)
+                    .build();
+            pool.setPoolName("replica");
+            pool.setReadOnly(true);
+            pool.setMaximumPoolSize(stripes + 1);
+            return pool;
+        }
+
+        @Bean
+        public ReplicaRoutingDataSource replicaRoutingDataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                                                 @Qualifier("replicaDataSource") DataSource replica) {
+            return new ReplicaRoutingDataSource(primary, replica);
+        }
+
+        // What JPA, JdbcTemplate and the transaction manager see
+        @Bean
+        @Primary
+        public DataSource dataSource(ReplicaRoutingDataSource routing) {
+            LazyConnectionDataSourceProxy lazy = new LazyConnectionDataSourceProxy(routing);
+            // known up front, so the proxy never has to open a connection just to read them
+            lazy.setDefaultAutoCommit(true);
+            lazy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            return lazy;
+        }
+    }
+}
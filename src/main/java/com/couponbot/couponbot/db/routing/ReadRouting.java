@@ -0,0 +1,37 @@
+package com.couponbot.couponbot.db.routing;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread override for the replica routing: reads made inside {@link #primary} go to the
+ * primary even in a read-only transaction. The connection is picked when a transaction first
+ * touches the database, so this has to wrap the whole transaction, not a call inside one.
+ * Without a replica configured it changes nothing.
+ */
+public final class ReadRouting {
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private ReadRouting() {}
+
+    public static <T> T primary(Supplier<T> read) {
+        Boolean outer = PINNED.get();
+        PINNED.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            if (outer == null) PINNED.remove();
+        }
+    }
+
+    public static void primary(Runnable read) {
+        primary(() -> {
+            read.run();
+            return null;
+        });
+    }
+
+    static boolean isPinned() {
+        return PINNED.get() != null;
+    }
+}
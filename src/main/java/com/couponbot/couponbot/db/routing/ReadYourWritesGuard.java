@@ -0,0 +1,35 @@
+package com.couponbot.couponbot.db.routing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Remembers users who wrote in the last maxLag, so their next reads go to the primary and
+ * they never see a replica from before their own claim. Everyone else reads the replica.
+ */
+@Component
+public class ReadYourWritesGuard {
+
+    private final Cache<Long, Boolean> recentWriters;
+
+    public ReadYourWritesGuard(@Value("${app.datasource.replica.maxLag:5s}") Duration maxLag,
+                               @Value("${app.datasource.replica.trackedWriters:100000}") long maxTracked) {
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(maxLag)
+                .maximumSize(maxTracked)
+                .build();
+    }
+
+    public void recordWrite(long userId) {
+        recentWriters.put(userId, Boolean.TRUE);
+    }
+
+    public <T> T read(long userId, Supplier<T> read) {
+        return recentWriters.getIfPresent(userId) != null ? ReadRouting.primary(read) : read.get();
+    }
+}
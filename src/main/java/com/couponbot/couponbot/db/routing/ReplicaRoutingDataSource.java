@@ -0,0 +1,57 @@
+package com.couponbot.couponbot.db.routing;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends connections for read-only transactions to the replica pool and everything else
+ * (writes, and JDBC calls outside any transaction) to the primary. Must sit behind a
+ * LazyConnectionDataSourceProxy: the transaction manager asks for a connection before it
+ * marks the transaction read-only, the proxy defers that until the first statement.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target { PRIMARY, REPLICA }
+
+    private final LongAdder primary = new LongAdder();
+    private final LongAdder replica = new LongAdder();
+    private final LongAdder pinned = new LongAdder();
+
+    public ReplicaRoutingDataSource(DataSource primaryPool, DataSource replicaPool) {
+        setTargetDataSources(Map.<Object, Object>of(Target.PRIMARY, primaryPool, Target.REPLICA, replicaPool));
+        setDefaultTargetDataSource(primaryPool);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            primary.increment();
+            return Target.PRIMARY;
+        }
+        if (ReadRouting.isPinned()) {
+            pinned.increment();
+            return Target.PRIMARY;
+        }
+        replica.increment();
+        return Target.REPLICA;
+    }
+
+    public long getPrimaryConnections() {
+        return primary.sum();
+    }
+
+    public long getReplicaConnections() {
+        return replica.sum();
+    }
+
+    // read-only transactions sent to the primary by ReadRouting / ReadYourWritesGuard
+    public long getPinnedConnections() {
+        return pinned.sum();
+    }
+}
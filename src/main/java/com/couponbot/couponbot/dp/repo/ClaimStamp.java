@@ -0,0 +1,6 @@
+package com.couponbot.couponbot.db.repo;
+
+import java.time.Instant;
+
+// (user, time) of a past claim, used to seed the in-memory claim limiter
+public record ClaimStamp(Long userId, Instant claimedAt) {}
@@ -0,0 +1,12 @@
+package com.couponbot.couponbot.db.repo;
+
+import java.util.Locale;
+
+// (platform, code) identity of a coupon, used for duplicate detection
+public record CouponKey(String platform, String code) {
+
+    // Same normalization as the ux_coupons_platform_code index: trimmed, lower-cased
+    public String normalized() {
+        return platform.trim().toLowerCase(Locale.ROOT) + '\n' + code.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -4,6 +4,8 @@ import com.couponbot.couponbot.db.entity.Coupon;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query; // Added for @Query
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant; // Added for threshold
 import java.util.List;
@@ -19,7 +21,6 @@ public interface CouponRepo extends JpaRepository<Coupon, Long> {
 
     Optional<Coupon> findByIdAndStatus(Long id, Coupon.Status status);
 
-    List<Coupon> findBySubmittedByOrderBySubmittedAtDesc(Long submittedBy, Pageable pageable);
 
     Optional<Coupon> findByIdAndStatusAndClaimedByIsNull(Long id, Coupon.Status status);
 
@@ -35,4 +36,123 @@ public interface CouponRepo extends JpaRepository<Coupon, Long> {
     // ✅ STEP 2: Find unique platforms that currently have AVAILABLE coupons
     @Query("SELECT DISTINCT c.platform FROM Coupon c WHERE c.status = 'AVAILABLE'")
     List<String> findDistinctPlatformsWithAvailableCoupons();
-}
\ No newline at end of file
+
+    // ✅ Used to build and reconcile the in-memory inventory index
+    @Query("SELECT new com.couponbot.couponbot.db.repo.CouponSummary(c.id, c.platform, c.details, c.submittedAt) " +
+            "FROM Coupon c WHERE c.status = 'AVAILABLE' AND c.claimedBy IS NULL")
+    List<CouponSummary> findAvailableSummaries();
+
+    // ✅ Keyset browse pages (seek, never OFFSET), served by ix_coupons_available_platform_keyset.
+    // Older than the cursor, newest first:
+    @Query("SELECT new com.couponbot.couponbot.db.repo.CouponSummary(c.id, c.platform, c.details, c.submittedAt) " +
+            "FROM Coupon c WHERE c.status = 'AVAILABLE' AND c.claimedBy IS NULL " +
+            "AND upper(c.platform) = upper(:platform) AND (c.submittedAt, c.id) < (:submittedAt, :id) " +
+            "ORDER BY c.submittedAt DESC, c.id DESC")
+    List<CouponSummary> findAvailablePageAfter(@Param("platform") String platform,
+                                               @Param("submittedAt") Instant submittedAt,
+                                               @Param("id") Long id,
+                                               Pageable pageable);
+
+    // Newer than the cursor, nearest first (the caller reverses it back to newest first)
+    @Query("SELECT new com.couponbot.couponbot.db.repo.CouponSummary(c.id, c.platform, c.details, c.submittedAt) " +
+            "FROM Coupon c WHERE c.status = 'AVAILABLE' AND c.claimedBy IS NULL " +
+            "AND upper(c.platform) = upper(:platform) AND (c.submittedAt, c.id) > (:submittedAt, :id) " +
+            "ORDER BY c.submittedAt ASC, c.id ASC")
+    List<CouponSummary> findAvailablePageBefore(@Param("platform") String platform,
+                                                @Param("submittedAt") Instant submittedAt,
+                                                @Param("id") Long id,
+                                                Pageable pageable);
+
+    @Query("SELECT new com.couponbot.couponbot.db.repo.CouponSummary(c.id, c.platform, c.details, c.submittedAt) " +
+            "FROM Coupon c WHERE c.status = 'AVAILABLE' AND c.claimedBy IS NULL " +
+            "AND upper(c.platform) = upper(:platform) ORDER BY c.submittedAt DESC, c.id DESC")
+    List<CouponSummary> findAvailableFirstPage(@Param("platform") String platform, Pageable pageable);
+
+    @Query("SELECT c.platform FROM Coupon c WHERE c.id = :id")
+    Optional<String> findPlatformById(@Param("id") Long id);
+
+    // ✅ Duplicate check, served by ux_coupons_platform_code
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM coupons WHERE lower(platform) = lower(:platform) " +
+            "AND lower(code) = lower(:code) AND status <> 'REMOVED')", nativeQuery = true)
+    boolean existsActiveByPlatformAndCode(@Param("platform") String platform, @Param("code") String code);
+
+    @Query("SELECT new com.couponbot.couponbot.db.repo.CouponKey(c.platform, c.code) FROM Coupon c WHERE c.status <> 'REMOVED'")
+    List<CouponKey> findActiveKeys();
+
+    @Query("SELECT new com.couponbot.couponbot.db.repo.ClaimStamp(c.claimedBy, c.claimedAt) " +
+            "FROM Coupon c WHERE c.claimedBy IS NOT NULL AND c.claimedAt > :since")
+    List<ClaimStamp> findClaimsSince(@Param("since") Instant since);
+
+    // ✅ /mysubmissions, newest first with keyset paging; index-only on ix_coupons_submitted_by_keyset
+    @Query("SELECT new com.couponbot.couponbot.db.repo.SubmissionRow(c.id, c.platform, c.code, c.status, c.submittedAt) " +
+            "FROM Coupon c WHERE c.submittedBy = :userId ORDER BY c.submittedAt DESC, c.id DESC")
+    List<SubmissionRow> findSubmissionsFirstPage(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT new com.couponbot.couponbot.db.repo.SubmissionRow(c.id, c.platform, c.code, c.status, c.submittedAt) " +
+            "FROM Coupon c WHERE c.submittedBy = :userId AND (c.submittedAt, c.id) < (:submittedAt, :id) " +
+            "ORDER BY c.submittedAt DESC, c.id DESC")
+    List<SubmissionRow> findSubmissionsPageAfter(@Param("userId") Long userId,
+                                                 @Param("submittedAt") Instant submittedAt,
+                                                 @Param("id") Long id,
+                                                 Pageable pageable);
+
+    // ✅ Atomic claim: conditional update in one statement, empty when the coupon is gone.
+    // The per-user limit is enforced by ClaimLimiter before this runs; a coupon past its
+    // expiry can't be claimed even if ExpirySweeper hasn't reached it yet.
+    @Transactional
+    @Query(value = """
+            UPDATE coupons
+               SET status = 'CLAIMED', claimed_by = :userId, claimed_at = :now
+             WHERE id = :couponId
+               AND status = 'AVAILABLE'
+               AND claimed_by IS NULL
+               AND (expires_at IS NULL OR expires_at > :now)
+            RETURNING *
+            """, nativeQuery = true)
+    Optional<Coupon> claimIfAvailable(@Param("couponId") Long couponId,
+                                      @Param("userId") Long userId,
+                                      @Param("now") Instant now);
+
+    // ✅ Claim-next: hand out any available coupon of the platform in one statement. Rows another
+    // claimer has locked are skipped, so concurrent claimers spread over the shelf instead of
+    // queueing on the same row. Both orders walk ix_coupons_available_platform_keyset.
+    @Transactional
+    @Query(value = """
+            WITH pick AS (
+                SELECT id FROM coupons
+                 WHERE upper(platform) = upper(:platform)
+                   AND status = 'AVAILABLE' AND claimed_by IS NULL
+                   AND (expires_at IS NULL OR expires_at > :now)
+                 ORDER BY submitted_at ASC, id ASC
+                 LIMIT 1
+                   FOR UPDATE SKIP LOCKED)
+            UPDATE coupons c
+               SET status = 'CLAIMED', claimed_by = :userId, claimed_at = :now
+              FROM pick
+             WHERE c.id = pick.id
+            RETURNING c.*
+            """, nativeQuery = true)
+    Optional<Coupon> claimOldestByPlatform(@Param("platform") String platform,
+                                           @Param("userId") Long userId,
+                                           @Param("now") Instant now);
+
+    @Transactional
+    @Query(value = """
+            WITH pick AS (
+                SELECT id FROM coupons
+                 WHERE upper(platform) = upper(:platform)
+                   AND status = 'AVAILABLE' AND claimed_by IS NULL
+                   AND (expires_at IS NULL OR expires_at > :now)
+                 ORDER BY submitted_at DESC, id DESC
+                 LIMIT 1
+                   FOR UPDATE SKIP LOCKED)
+            UPDATE coupons c
+               SET status = 'CLAIMED', claimed_by = :userId, claimed_at = :now
+              FROM pick
+             WHERE c.id = pick.id
+            RETURNING c.*
+            """, nativeQuery = true)
+    Optional<Coupon> claimNewestByPlatform(@Param("platform") String platform,
+                                           @Param("userId") Long userId,
+                                           @Param("now") Instant now);
+}
@@ -0,0 +1,13 @@
+package com.couponbot.couponbot.db.repo;
+
+import com.couponbot.couponbot.db.entity.Coupon;
+
+import java.time.Instant;
+
+// Lightweight projection of an available coupon, enough to render browse buttons
+public record CouponSummary(Long id, String platform, String details, Instant submittedAt) {
+
+    public static CouponSummary of(Coupon c) {
+        return new CouponSummary(c.getId(), c.getPlatform(), c.getDetails(), c.getSubmittedAt());
+    }
+}
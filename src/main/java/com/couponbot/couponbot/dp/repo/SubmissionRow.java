@@ -0,0 +1,8 @@
+package com.couponbot.couponbot.db.repo;
+
+import com.couponbot.couponbot.db.entity.Coupon;
+
+import java.time.Instant;
+
+// One line of /mysubmissions: only columns carried by ix_coupons_submitted_by_keyset
+public record SubmissionRow(Long id, String platform, String code, Coupon.Status status, Instant submittedAt) {}
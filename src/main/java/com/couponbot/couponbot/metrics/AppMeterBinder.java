@@ -0,0 +1,137 @@
+package com.couponbot.couponbot.metrics;
+
+import com.couponbot.couponbot.bot.OutboundSender;
+import com.couponbot.couponbot.bot.SubscriptionNotifier;
+import com.couponbot.couponbot.bot.UpdateDispatcher;
+import com.couponbot.couponbot.bot.UpdatePoller;
+import com.couponbot.couponbot.bot.cluster.ClusterLeader;
+import com.couponbot.couponbot.bot.cluster.QueueWorker;
+import com.couponbot.couponbot.bot.cluster.UpdateQueue;
+import com.couponbot.couponbot.bot.state.ConversationStateStore;
+import com.couponbot.couponbot.db.routing.ReplicaRoutingDataSource;
+import com.couponbot.couponbot.service.ChannelGateService;
+import com.couponbot.couponbot.service.ClaimLimiter;
+import com.couponbot.couponbot.service.DuplicateGuard;
+import com.couponbot.couponbot.service.EventJournal;
+import com.couponbot.couponbot.service.InventoryIndex;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Queue, cache and in-memory structure gauges. Every value is read from the component's
+ * existing getters at scrape time, so none of this touches the request path.
+ */
+@Component
+public class AppMeterBinder implements MeterBinder {
+
+    private final UpdateDispatcher dispatcher;
+    private final OutboundSender outbound;
+    private final ConversationStateStore states;
+    private final InventoryIndex inventory;
+    private final ClaimLimiter claimLimiter;
+    private final DuplicateGuard duplicateGuard;
+    private final ChannelGateService channelGate;
+    private final SubscriptionNotifier notifier;
+    private final EventJournal journal;
+    private final ObjectProvider<UpdatePoller> poller;
+    private final ObjectProvider<UpdateQueue> updateQueue;
+    private final ObjectProvider<QueueWorker> queueWorker;
+    private final ObjectProvider<ClusterLeader> clusterLeader;
+    private final ObjectProvider<ReplicaRoutingDataSource> routing;
+
+    public AppMeterBinder(UpdateDispatcher dispatcher, OutboundSender outbound, ConversationStateStore states,
+                          InventoryIndex inventory, ClaimLimiter claimLimiter, DuplicateGuard duplicateGuard,
+                          ChannelGateService channelGate, SubscriptionNotifier notifier, EventJournal journal,
+                          ObjectProvider<UpdatePoller> poller, ObjectProvider<UpdateQueue> updateQueue,
+                          ObjectProvider<QueueWorker> queueWorker, ObjectProvider<ClusterLeader> clusterLeader,
+                          ObjectProvider<ReplicaRoutingDataSource> routing) {
+        this.dispatcher = dispatcher;
+        this.outbound = outbound;
+        this.states = states;
+        this.inventory = inventory;
+        this.claimLimiter = claimLimiter;
+        this.duplicateGuard = duplicateGuard;
+        this.channelGate = channelGate;
+        this.notifier = notifier;
+        this.journal = journal;
+        this.poller = poller;
+        this.updateQueue = updateQueue;
+        this.queueWorker = queueWorker;
+        this.clusterLeader = clusterLeader;
+        this.routing = routing;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        gauge(registry, "bot.dispatch.queue.depth", dispatcher, UpdateDispatcher::getQueueDepth);
+        gauge(registry, "bot.dispatch.max.lag.seconds", dispatcher, d -> d.getMaxLag().toNanos() / 1e9);
+        gauge(registry, "bot.dispatch.headroom", dispatcher, UpdateDispatcher::getHeadroom);
+        counter(registry, "bot.dispatch.rejected", dispatcher, UpdateDispatcher::getRejectedDispatches);
+        poller.ifAvailable(p -> counter(registry, "bot.poll.held", p, UpdatePoller::getHeldPolls));
+
+        gauge(registry, "telegram.outbound.pending", outbound, OutboundSender::getPending);
+        gauge(registry, "telegram.outbound.lanes", outbound, OutboundSender::getLaneCount);
+        counter(registry, "telegram.outbound.rate.limited", outbound, OutboundSender::getRateLimited);
+        counter(registry, "telegram.outbound.retries", outbound, OutboundSender::getRetries);
+        counter(registry, "telegram.outbound.failures", outbound, OutboundSender::getFailures);
+        counter(registry, "telegram.outbound.global.pauses", outbound, OutboundSender::getGlobalPauses);
+
+        gauge(registry, "bot.conversations.size", states, ConversationStateStore::size);
+        counter(registry, "bot.conversations.evictions", states, ConversationStateStore::evictions);
+        counter(registry, "bot.conversations.expirations", states, ConversationStateStore::expirations);
+
+        gauge(registry, "coupons.inventory.size", inventory, InventoryIndex::size);
+        gauge(registry, "coupons.claim.limiter.users", claimLimiter, ClaimLimiter::getTrackedUsers);
+        gauge(registry, "coupons.claim.limiter.bytes", claimLimiter, ClaimLimiter::getMemoryBytes);
+
+        counter(registry, "coupons.dedup.checks", duplicateGuard, g -> g.stats().checks());
+        counter(registry, "coupons.dedup.db.checks", duplicateGuard, g -> g.stats().dbChecks());
+        counter(registry, "coupons.dedup.false.positives", duplicateGuard, g -> g.stats().falsePositives());
+        gauge(registry, "coupons.dedup.keys", duplicateGuard, g -> g.stats().keys());
+        gauge(registry, "coupons.dedup.bytes", duplicateGuard, g -> g.stats().memoryBytes());
+
+        gauge(registry, "membership.cache.size", channelGate, ChannelGateService::getMembershipCacheSize);
+        counter(registry, "membership.cache.hits", channelGate, c -> c.getMembershipStats().hitCount());
+        counter(registry, "membership.cache.misses", channelGate, c -> c.getMembershipStats().missCount());
+        counter(registry, "membership.cache.evictions", channelGate, c -> c.getMembershipStats().evictionCount());
+
+        gauge(registry, "subscriptions.digests.pending", notifier, SubscriptionNotifier::getPendingDigests);
+        counter(registry, "subscriptions.digests", notifier, SubscriptionNotifier::getDigestsSent);
+        counter(registry, "subscriptions.alerts", notifier, SubscriptionNotifier::getAlertsSent);
+        counter(registry, "subscriptions.blocked.removed", notifier, SubscriptionNotifier::getBlockedRemoved);
+
+        gauge(registry, "journal.buffered", journal, EventJournal::getBuffered);
+        counter(registry, "journal.written", journal, EventJournal::getWritten);
+        counter(registry, "journal.dropped", journal, EventJournal::getDropped);
+        counter(registry, "journal.batches", journal, EventJournal::getBatches);
+
+        updateQueue.ifAvailable(q -> gauge(registry, "cluster.queue.depth", q, UpdateQueue::depth));
+        queueWorker.ifAvailable(w -> {
+            gauge(registry, "cluster.worker.in.flight", w, QueueWorker::getInFlight);
+            counter(registry, "cluster.worker.handled", w, QueueWorker::getHandled);
+            counter(registry, "cluster.worker.dropped", w, QueueWorker::getDropped);
+        });
+        clusterLeader.ifAvailable(l -> gauge(registry, "cluster.leader", l, c -> c.isLeader() ? 1 : 0));
+
+        // pool waits come from Boot's hikaricp.connections.acquire / .pending, tagged pool=primary|replica
+        routing.ifAvailable(r -> {
+            counter(registry, "db.routing.primary", r, ReplicaRoutingDataSource::getPrimaryConnections);
+            counter(registry, "db.routing.replica", r, ReplicaRoutingDataSource::getReplicaConnections);
+            counter(registry, "db.routing.pinned", r, ReplicaRoutingDataSource::getPinnedConnections);
+        });
+    }
+
+    private static <T> void gauge(MeterRegistry registry, String name, T obj, ToDoubleFunction<T> f) {
+        Gauge.builder(name, obj, f).register(registry);
+    }
+
+    private static <T> void counter(MeterRegistry registry, String name, T obj, ToDoubleFunction<T> f) {
+        FunctionCounter.builder(name, obj, f).register(registry);
+    }
+}
@@ -0,0 +1,27 @@
+package com.couponbot.couponbot.metrics;
+
+import com.couponbot.couponbot.service.StatsAggregator;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * GET /actuator/couponstats: the same live numbers as the admin /stats command, as JSON.
+ * Lists submitter user ids, so it is left out of the web exposure in application.yaml;
+ * add it there only behind a private management.server.port/address.
+ */
+@Component
+@Endpoint(id = "couponstats")
+public class CouponStatsEndpoint {
+
+    private final StatsAggregator stats;
+
+    public CouponStatsEndpoint(StatsAggregator stats) {
+        this.stats = stats;
+    }
+
+    @ReadOperation
+    public StatsAggregator.Snapshot stats() {
+        return stats.snapshot();
+    }
+}
@@ -0,0 +1,49 @@
+package com.couponbot.couponbot.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of every Bot API call (telegram.api.requests), tagged by method and a bounded
+ * status: ok, 429, 5xx, a handful of specific 4xx codes, other 4xx, io or error.
+ */
+@Component
+public class TelegramApiMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public TelegramApiMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    // method is the Bot API method name (BotApiMethod.getMethod()), a fixed set
+    public void record(String method, String status, long nanos) {
+        timers.computeIfAbsent(method + '|' + status, k -> Timer.builder("telegram.api.requests")
+                        .description("Bot API call latency by method and outcome")
+                        .tag("method", method)
+                        .tag("status", status)
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public static String status(Throwable e) {
+        if (e == null) return "ok";
+        if (e instanceof TelegramApiRequestException r && r.getErrorCode() != null) {
+            int code = r.getErrorCode();
+            if (code >= 500) return "5xx";
+            return switch (code) {
+                case 400, 401, 403, 404, 409, 429 -> String.valueOf(code);
+                default -> "4xx";
+            };
+        }
+        return e instanceof TelegramApiException ? "io" : "error";
+    }
+}
@@ -0,0 +1,168 @@
+package com.couponbot.couponbot.service;
+
+import com.couponbot.couponbot.db.entity.Coupon;
+import com.couponbot.couponbot.db.repo.CouponKey;
+import com.couponbot.couponbot.db.repo.CouponRepo;
+import com.couponbot.couponbot.db.repo.CouponSummary;
+import com.couponbot.couponbot.util.CouponParser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Imports many coupons at once from a pasted list or an uploaded text/CSV file.
+ * Lines are streamed through CouponParser, validated, de-duplicated (within the upload and
+ * against the DB via DuplicateGuard) and written in chunks; with the pooled id sequence
+ * Hibernate sends each chunk as JDBC batches.
+ */
+@Service
+public class BulkImportService {
+
+    private static final int MAX_REPORTED_PROBLEMS = 15;
+
+    public record Result(int added, int duplicates, int invalid, int truncatedAt, List<String> problems) {}
+
+    private final CouponRepo couponRepo;
+    private final InventoryIndex inventory;
+    private final DuplicateGuard duplicateGuard;
+    private final ExpiryPolicy expiryPolicy;
+    private final TransactionTemplate tx;
+    private final ApplicationEventPublisher events;
+    private final EventJournal journal;
+    private final int maxLines;
+    private final int chunkSize;
+
+    public BulkImportService(CouponRepo couponRepo, InventoryIndex inventory, DuplicateGuard duplicateGuard,
+                             ExpiryPolicy expiryPolicy, TransactionTemplate tx, ApplicationEventPublisher events,
+                             EventJournal journal,
+                             @Value("${app.bulk.maxLines:10000}") int maxLines,
+                             @Value("${app.bulk.chunkSize:500}") int chunkSize) {
+        this.couponRepo = couponRepo;
+        this.inventory = inventory;
+        this.duplicateGuard = duplicateGuard;
+        this.expiryPolicy = expiryPolicy;
+        this.tx = tx;
+        this.events = events;
+        this.journal = journal;
+        this.maxLines = maxLines;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param defaultPlatform used when the parser can't tell the platform from a line (may be null)
+     */
+    public Result importLines(Long submittedBy, String defaultPlatform, Reader source) throws IOException {
+        BufferedReader reader = source instanceof BufferedReader b ? b : new BufferedReader(source);
+        Instant now = Instant.now();
+        Set<String> seen = new HashSet<>();
+        List<Coupon> chunk = new ArrayList<>(chunkSize);
+        List<Integer> chunkLines = new ArrayList<>(chunkSize);
+        List<String> problems = new ArrayList<>();
+        int added = 0, duplicates = 0, invalid = 0, lineNo = 0, truncatedAt = 0;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (lineNo > maxLines) {
+                truncatedAt = maxLines;
+                break;
+            }
+            String trimmed = line.strip();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+
+            CouponParser.Parsed parsed = CouponParser.parseFromText(trimmed);
+            String problem = null;
+            if (parsed == null) {
+                problem = "no coupon code found";
+            } else if (parsed.code().length() > CouponService.MAX_CODE_LENGTH) {
+                problem = "code longer than " + CouponService.MAX_CODE_LENGTH + " characters";
+            } else if (trimmed.length() > 500) {
+                problem = "line longer than 500 characters";
+            }
+            if (problem != null) {
+                invalid++;
+                report(problems, lineNo, problem);
+                continue;
+            }
+
+            String platform = parsed.platform();
+            if ("General".equals(platform) && defaultPlatform != null) platform = defaultPlatform;
+            if (platform.length() > CouponService.MAX_PLATFORM_LENGTH) platform = platform.substring(0, CouponService.MAX_PLATFORM_LENGTH);
+
+            if (!seen.add(new CouponKey(platform, parsed.code()).normalized())) {
+                duplicates++;
+                report(problems, lineNo, "duplicate of an earlier line");
+                continue;
+            }
+            if (duplicateGuard.isDuplicate(platform, parsed.code())) {
+                duplicates++;
+                report(problems, lineNo, "already in the database");
+                continue;
+            }
+
+            chunk.add(CouponService.newCoupon(submittedBy, parsed.code(), platform, parsed.details(), now,
+                    expiryPolicy.expiresAt(platform, parsed.details(), now)));
+            chunkLines.add(lineNo);
+            if (chunk.size() >= chunkSize) {
+                int n = flush(chunk, chunkLines, problems);
+                added += n;
+                duplicates += chunkLines.size() - n;
+                chunk.clear();
+                chunkLines.clear();
+            }
+        }
+        int n = flush(chunk, chunkLines, problems);
+        added += n;
+        duplicates += chunkLines.size() - n;
+        return new Result(added, duplicates, invalid, truncatedAt, problems);
+    }
+
+    // Saves a chunk as one batched transaction. If a concurrent submission slipped in a duplicate,
+    // the unique index rejects the batch and we retry row by row to keep everything else.
+    private int flush(List<Coupon> chunk, List<Integer> lines, List<String> problems) {
+        if (chunk.isEmpty()) return 0;
+        List<Coupon> saved = new ArrayList<>(chunk.size());
+        try {
+            saved.addAll(tx.execute(status -> couponRepo.saveAll(chunk)));
+        } catch (DataIntegrityViolationException e) {
+            for (int i = 0; i < chunk.size(); i++) {
+                Coupon c = chunk.get(i);
+                try {
+                    saved.add(couponRepo.save(CouponService.newCoupon(
+                            c.getSubmittedBy(), c.getCode(), c.getPlatform(), c.getDetails(), c.getSubmittedAt(),
+                            c.getExpiresAt())));
+                } catch (DataIntegrityViolationException dup) {
+                    if (!CouponService.isDuplicateCode(dup)) throw dup;
+                    report(problems, lines.get(i), "already in the database");
+                }
+            }
+        }
+        Map<String, Integer> perPlatform = new HashMap<>();
+        for (Coupon c : saved) {
+            duplicateGuard.record(c.getPlatform(), c.getCode());
+            inventory.add(CouponSummary.of(c));
+            journal.append(CouponEvent.submitted(c));
+            perPlatform.merge(c.getPlatform(), 1, Integer::sum);
+        }
+        Long submittedBy = chunk.get(0).getSubmittedBy();
+        perPlatform.forEach((platform, n) -> events.publishEvent(new CouponsAddedEvent(platform, n, submittedBy)));
+        return saved.size();
+    }
+
+    private static void report(List<String> problems, int lineNo, String problem) {
+        if (problems.size() < MAX_REPORTED_PROBLEMS) problems.add("line " + lineNo + ": " + problem);
+    }
+}
@@ -1,18 +1,60 @@
 package com.couponbot.couponbot.service;
 
+import com.couponbot.couponbot.metrics.TelegramApiMetrics;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.meta.api.methods.groupadministration.GetChatMember;
 import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMember;
 import org.telegram.telegrambots.meta.bots.AbsSender;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @Service
 public class ChannelGateService {
 
     private final String requiredChannel;
+    private final TelegramApiMetrics apiMetrics;
+
+    // userId -> joined?  Concurrent lookups for the same user share one in-flight future.
+    private final AsyncCache<Long, Boolean> membership;
+    // GetChatMember blocks on HTTP, so it gets its own threads rather than the common pool
+    private final ExecutorService lookups;
 
-    public ChannelGateService(@Value("${app.requiredChannel}") String requiredChannel) {
+    public ChannelGateService(TelegramApiMetrics apiMetrics,
+                              @Value("${app.requiredChannel}") String requiredChannel,
+                              @Value("${app.membership.maxSize:100000}") long maxSize,
+                              @Value("${app.membership.joinedTtl:10m}") Duration joinedTtl,
+                              @Value("${app.membership.notJoinedTtl:15s}") Duration notJoinedTtl,
+                              @Value("${app.membership.lookupThreads:16}") int lookupThreads) {
         this.requiredChannel = requiredChannel;
+        this.apiMetrics = apiMetrics;
+        AtomicInteger n = new AtomicInteger();
+        this.lookups = Executors.newFixedThreadPool(lookupThreads, r -> {
+            Thread t = new Thread(r, "membership-lookup-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.membership = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new MembershipExpiry(joinedTtl.toNanos(), notJoinedTtl.toNanos()))
+                .executor(lookups)
+                .recordStats()
+                .buildAsync();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lookups.shutdownNow();
     }
 
     public String getRequiredChannel() {
@@ -20,12 +62,61 @@ public class ChannelGateService {
     }
 
     public boolean isJoined(AbsSender sender, Long userId) {
+        return isJoined(sender, userId, false);
+    }
+
+    // ✅ forceRefresh drops the cached answer first (used by the "I Joined" button)
+    public boolean isJoined(AbsSender sender, Long userId, boolean forceRefresh) {
+        if (forceRefresh) {
+            membership.synchronous().invalidate(userId);
+        }
+        CompletableFuture<Boolean> joined = membership.get(userId,
+                (id, executor) -> CompletableFuture.supplyAsync(() -> fetchMembership(sender, id), executor));
+        try {
+            return joined.join();
+        } catch (CompletionException e) {
+            // failed lookups are not cached (Caffeine drops failed futures), treat as not joined
+            return false;
+        }
+    }
+
+    public CacheStats getMembershipStats() {
+        return membership.synchronous().stats();
+    }
+
+    public long getMembershipCacheSize() {
+        return membership.synchronous().estimatedSize();
+    }
+
+    private boolean fetchMembership(AbsSender sender, Long userId) {
+        GetChatMember request = new GetChatMember(requiredChannel, userId);
+        long started = System.nanoTime();
         try {
-            ChatMember member = sender.execute(new GetChatMember(requiredChannel, userId));
+            ChatMember member = sender.execute(request);
+            apiMetrics.record(request.getMethod(), "ok", System.nanoTime() - started);
             String status = member.getStatus();
             return "creator".equals(status) || "administrator".equals(status) || "member".equals(status) || "restricted".equals(status);
         } catch (Exception e) {
-            return false;
+            apiMetrics.record(request.getMethod(), TelegramApiMetrics.status(e), System.nanoTime() - started);
+            throw new CompletionException(e);
+        }
+    }
+
+    // Positive answers are stable, negative ones flip as soon as the user joins
+    private record MembershipExpiry(long joinedNanos, long notJoinedNanos) implements Expiry<Long, Boolean> {
+        @Override
+        public long expireAfterCreate(Long key, Boolean joined, long currentTime) {
+            return joined ? joinedNanos : notJoinedNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Long key, Boolean joined, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, joined, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Long key, Boolean joined, long currentTime, long currentDuration) {
+            return currentDuration;
         }
     }
 }
@@ -0,0 +1,95 @@
+package com.couponbot.couponbot.service;
+
+import com.couponbot.couponbot.db.repo.ClaimStamp;
+import com.couponbot.couponbot.db.repo.CouponRepo;
+import com.couponbot.couponbot.db.routing.ReadRouting;
+import com.couponbot.couponbot.util.SlidingWindowLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * The "N claims per window" rule without a COUNT query per claim.
+ * Seeded from recent claims at startup; until then CouponService falls back to the DB count.
+ * In cluster mode it only sees this instance's claims, so the DB count is always checked too.
+ */
+@Component
+public class ClaimLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(ClaimLimiter.class);
+
+    private final CouponRepo couponRepo;
+    private final SlidingWindowLimiter limiter;
+    private final Duration window;
+    private final boolean clustered;
+    private volatile boolean ready;
+
+    public ClaimLimiter(CouponRepo couponRepo,
+                        @Value("${app.claims.limit:2}") int limit,
+                        @Value("${app.claims.window:24h}") Duration window,
+                        @Value("${app.claims.stripes:64}") int stripes,
+                        @Value("${app.telegram.mode:polling}") String mode) {
+        this.couponRepo = couponRepo;
+        this.window = window;
+        this.clustered = "cluster".equals(mode);
+        this.limiter = new SlidingWindowLimiter(limit, window.toMillis(), stripes);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        long now = System.currentTimeMillis();
+        int seeded = 0;
+        Instant since = Instant.ofEpochMilli(now).minus(window);
+        for (ClaimStamp c : ReadRouting.primary(() -> couponRepo.findClaimsSince(since))) {
+            limiter.record(c.userId(), c.claimedAt().toEpochMilli(), now);
+            seeded++;
+        }
+        ready = true;
+        log.info("Claim limiter seeded with {} recent claims for {} users", seeded, limiter.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // False when other instances also record claims that this limiter never sees
+    public boolean seesAllClaims() {
+        return !clustered;
+    }
+
+    public int getLimit() {
+        return limiter.getLimit();
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public boolean tryAcquire(long userId, long nowMillis) {
+        return limiter.tryAcquire(userId, nowMillis);
+    }
+
+    public void release(long userId, long stampMillis) {
+        limiter.release(userId, stampMillis);
+    }
+
+    public long getTrackedUsers() {
+        return limiter.size();
+    }
+
+    public long getMemoryBytes() {
+        return limiter.memoryBytes();
+    }
+
+    @Scheduled(fixedDelayString = "${app.claims.purgeInterval:PT10M}", initialDelayString = "${app.claims.purgeInterval:PT10M}")
+    public void purge() {
+        limiter.purge(System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,8 @@
+package com.couponbot.couponbot.service;
+
+// Which coupon "claim next" hands out (app.claims.nextPolicy)
+public enum ClaimPolicy {
+    // oldest first, so coupons get used before they go stale
+    OLDEST,
+    NEWEST
+}
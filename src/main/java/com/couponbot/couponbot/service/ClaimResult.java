@@ -0,0 +1,30 @@
+package com.couponbot.couponbot.service;
+
+import com.couponbot.couponbot.db.entity.Coupon;
+
+// Typed outcome of a claim attempt; coupon is only set when outcome == CLAIMED
+public record ClaimResult(Outcome outcome, Coupon coupon) {
+
+    public enum Outcome { CLAIMED, ALREADY_TAKEN, NONE_LEFT, LIMIT_REACHED }
+
+    public static ClaimResult claimed(Coupon coupon) {
+        return new ClaimResult(Outcome.CLAIMED, coupon);
+    }
+
+    public static ClaimResult alreadyTaken() {
+        return new ClaimResult(Outcome.ALREADY_TAKEN, null);
+    }
+
+    // claim-next found nothing left on the platform
+    public static ClaimResult noneLeft() {
+        return new ClaimResult(Outcome.NONE_LEFT, null);
+    }
+
+    public static ClaimResult limitReached() {
+        return new ClaimResult(Outcome.LIMIT_REACHED, null);
+    }
+
+    public boolean isClaimed() {
+        return outcome == Outcome.CLAIMED;
+    }
+}
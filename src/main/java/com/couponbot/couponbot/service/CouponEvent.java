@@ -0,0 +1,19 @@
+package com.couponbot.couponbot.service;
+
+import com.couponbot.couponbot.db.entity.Coupon;
+
+import java.time.Instant;
+
+/** One row of the coupon_events journal. userId is the submitter, the claimer, or for EXPIRED the submitter. */
+public record CouponEvent(Kind kind, Instant occurredAt, long userId, long couponId, String platform, String code) {
+
+    public enum Kind { SUBMITTED, CLAIMED, EXPIRED }
+
+    public static CouponEvent submitted(Coupon c) {
+        return new CouponEvent(Kind.SUBMITTED, c.getSubmittedAt(), c.getSubmittedBy(), c.getId(), c.getPlatform(), c.getCode());
+    }
+
+    public static CouponEvent claimed(Coupon c, long userId, Instant at) {
+        return new CouponEvent(Kind.CLAIMED, at, userId, c.getId(), c.getPlatform(), c.getCode());
+    }
+}
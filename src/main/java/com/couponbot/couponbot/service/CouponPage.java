@@ -0,0 +1,17 @@
+package com.couponbot.couponbot.service;
+
+import com.couponbot.couponbot.db.repo.CouponSummary;
+
+import java.util.List;
+
+// One page of a platform's browse list, newest first
+public record CouponPage(String platform, List<CouponSummary> coupons, boolean hasPrev, boolean hasNext) {
+
+    public PageCursor prevCursor() {
+        return hasPrev && !coupons.isEmpty() ? PageCursor.before(coupons.get(0)) : null;
+    }
+
+    public PageCursor nextCursor() {
+        return hasNext && !coupons.isEmpty() ? PageCursor.after(coupons.get(coupons.size() - 1)) : null;
+    }
+}
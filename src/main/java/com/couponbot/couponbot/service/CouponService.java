@@ -2,59 +2,246 @@ package com.couponbot.couponbot.service;
 
 import com.couponbot.couponbot.db.entity.Coupon;
 import com.couponbot.couponbot.db.repo.CouponRepo;
+import com.couponbot.couponbot.db.repo.CouponSummary;
+import com.couponbot.couponbot.db.routing.ReadRouting;
+import com.couponbot.couponbot.db.routing.ReadYourWritesGuard;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.SQLException;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
 @Service
 public class CouponService {
 
+    // column sizes in V1__create_coupons.sql
+    public static final int MAX_CODE_LENGTH = 120;
+    public static final int MAX_PLATFORM_LENGTH = 80;
+
+    private static final String DUPLICATE_INDEX = "ux_coupons_platform_code";
+    private static final String UNIQUE_VIOLATION = "23505";
+
     private final CouponRepo couponRepo;
+    private final InventoryIndex inventory;
+    private final ClaimLimiter claimLimiter;
+    private final DuplicateGuard duplicateGuard;
+    private final ExpiryPolicy expiryPolicy;
+    private final ClaimPolicy nextPolicy;
+    private final ApplicationEventPublisher events;
+    private final ReadYourWritesGuard readYourWrites;
+    private final EventJournal journal;
+    private final StatsAggregator stats;
+    // coupons.claims{kind=coupon|next, outcome=...}
+    private final Map<ClaimResult.Outcome, Counter> couponClaims = new EnumMap<>(ClaimResult.Outcome.class);
+    private final Map<ClaimResult.Outcome, Counter> nextClaims = new EnumMap<>(ClaimResult.Outcome.class);
 
-    public CouponService(CouponRepo couponRepo) {
+    public CouponService(CouponRepo couponRepo, InventoryIndex inventory, ClaimLimiter claimLimiter,
+                         DuplicateGuard duplicateGuard, ExpiryPolicy expiryPolicy,
+                         @Value("${app.claims.nextPolicy:OLDEST}") ClaimPolicy nextPolicy,
+                         ApplicationEventPublisher events, ReadYourWritesGuard readYourWrites,
+                         EventJournal journal, StatsAggregator stats, MeterRegistry registry) {
         this.couponRepo = couponRepo;
+        this.inventory = inventory;
+        this.claimLimiter = claimLimiter;
+        this.duplicateGuard = duplicateGuard;
+        this.expiryPolicy = expiryPolicy;
+        this.nextPolicy = nextPolicy;
+        this.events = events;
+        this.readYourWrites = readYourWrites;
+        this.journal = journal;
+        this.stats = stats;
+        for (ClaimResult.Outcome o : ClaimResult.Outcome.values()) {
+            couponClaims.put(o, claimCounter(registry, "coupon", o));
+            nextClaims.put(o, claimCounter(registry, "next", o));
+        }
+    }
+
+    // ✅ Empty when the same (platform, code) already exists
+    public Optional<Coupon> saveCoupon(Long submittedBy, String code, String platform, String details) {
+        if (duplicateGuard.isDuplicate(platform, code)) return Optional.empty();
+        Instant now = Instant.now();
+        Coupon saved;
+        try {
+            saved = couponRepo.save(newCoupon(submittedBy, code, platform, details, now,
+                    expiryPolicy.expiresAt(platform, details, now)));
+        } catch (DataIntegrityViolationException e) {
+            if (!isDuplicateCode(e)) throw e;
+            // lost a race with a concurrent submission of the same code
+            duplicateGuard.record(platform, code);
+            return Optional.empty();
+        }
+        duplicateGuard.record(platform, code);
+        readYourWrites.recordWrite(submittedBy);
+        journal.append(CouponEvent.submitted(saved));
+        inventory.add(CouponSummary.of(saved));
+        events.publishEvent(new CouponsAddedEvent(saved.getPlatform(), 1, submittedBy));
+        return Optional.of(saved);
+    }
+
+    // Only the (platform, code) unique index means "already shared"; a value too long for its
+    // column and the like are real errors and must not be recorded in the DuplicateGuard
+    static boolean isDuplicateCode(DataIntegrityViolationException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ConstraintViolationException cve && cve.getConstraintName() != null) {
+                return DUPLICATE_INDEX.equalsIgnoreCase(cve.getConstraintName());
+            }
+            if (t instanceof SQLException sql && sql.getSQLState() != null) {
+                return UNIQUE_VIOLATION.equals(sql.getSQLState())
+                        && sql.getMessage() != null && sql.getMessage().contains(DUPLICATE_INDEX);
+            }
+        }
+        return false;
     }
 
-    public Coupon saveCoupon(Long submittedBy, String code, String platform, String details) {
+    static Coupon newCoupon(Long submittedBy, String code, String platform, String details,
+                            Instant submittedAt, Instant expiresAt) {
         Coupon c = new Coupon();
         c.setSubmittedBy(submittedBy);
         c.setCode(code.trim());
         c.setPlatform(platform.trim());
         c.setDetails(details == null ? null : details.trim());
-        c.setSubmittedAt(Instant.now());
+        // Postgres keeps microseconds; truncating here keeps index and DB cursors identical
+        c.setSubmittedAt(submittedAt.truncatedTo(ChronoUnit.MICROS));
+        c.setExpiresAt(expiresAt);
         c.setStatus(Coupon.Status.AVAILABLE);
-        return couponRepo.save(c);
+        return c;
     }
 
-    public List<String> getAvailablePlatforms() {
-        return couponRepo.findDistinctPlatformsWithAvailableCoupons();
+    // ✅ Served from the inventory index; the DB is only hit before the index has loaded (count = -1)
+    @Transactional(readOnly = true)
+    public List<InventoryIndex.PlatformCount> getAvailablePlatforms() {
+        if (inventory.isReady()) return inventory.platforms();
+        return couponRepo.findDistinctPlatformsWithAvailableCoupons().stream()
+                .map(p -> new InventoryIndex.PlatformCount(p, -1))
+                .toList();
     }
 
-    // ✅ Added helper for the bot to check limits
+    // ✅ Added helper for the bot to check limits. Always the primary: the guard only knows this
+    // instance's writes, and a replica lagging behind a claim made elsewhere would undercount
     public long getClaimCount(Long userId, Instant threshold) {
-        return couponRepo.countByClaimedByAndClaimedAtAfter(userId, threshold);
+        return ReadRouting.primary(() -> couponRepo.countByClaimedByAndClaimedAtAfter(userId, threshold));
+    }
+
+    // ✅ Limit is checked in memory (ClaimLimiter); the claim itself is a single UPDATE ... RETURNING
+    public ClaimResult claim(Long couponId, Long userId) {
+        ClaimResult result = claimWith(userId, now -> couponRepo.claimIfAvailable(couponId, userId, now));
+        if (result.outcome() == ClaimResult.Outcome.NONE_LEFT) {
+            inventory.remove(couponId);
+            result = ClaimResult.alreadyTaken();
+        }
+        couponClaims.get(result.outcome()).increment();
+        return result;
+    }
+
+    // ✅ Any available coupon of the platform, picked by nextPolicy with SKIP LOCKED
+    public ClaimResult claimNext(String platform, Long userId) {
+        ClaimResult result = claimWith(userId, now -> nextPolicy == ClaimPolicy.NEWEST
+                ? couponRepo.claimNewestByPlatform(platform, userId, now)
+                : couponRepo.claimOldestByPlatform(platform, userId, now));
+        nextClaims.get(result.outcome()).increment();
+        return result;
+    }
+
+    private static Counter claimCounter(MeterRegistry registry, String kind, ClaimResult.Outcome outcome) {
+        return Counter.builder("coupons.claims")
+                .description("Claim attempts by kind and outcome")
+                .tag("kind", kind)
+                .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                .register(registry);
+    }
+
+    private ClaimResult claimWith(Long userId, Function<Instant, Optional<Coupon>> attempt) {
+        long now = System.currentTimeMillis();
+        // in cluster mode a user's updates are serialized cluster-wide, so this count can't race
+        if ((!claimLimiter.isReady() || !claimLimiter.seesAllClaims())
+                && getClaimCount(userId, Instant.ofEpochMilli(now).minus(claimLimiter.getWindow())) >= claimLimiter.getLimit()) {
+            return ClaimResult.limitReached();
+        }
+        if (!claimLimiter.tryAcquire(userId, now)) return ClaimResult.limitReached();
+
+        Optional<Coupon> claimed;
+        try {
+            claimed = attempt.apply(Instant.ofEpochMilli(now));
+        } catch (RuntimeException e) {
+            claimLimiter.release(userId, now);
+            throw e;
+        }
+        if (claimed.isPresent()) {
+            readYourWrites.recordWrite(userId);
+            journal.append(CouponEvent.claimed(claimed.get(), userId, Instant.ofEpochMilli(now)));
+            stats.claimed(claimed.get().getPlatform(), now);
+            inventory.remove(claimed.get().getId());
+            return ClaimResult.claimed(claimed.get());
+        }
+        claimLimiter.release(userId, now);
+        return ClaimResult.noneLeft();
+    }
+
+    // Null when the coupon doesn't exist at all
+    @Transactional(readOnly = true)
+    public String platformOf(long couponId) {
+        String platform = inventory.platformOf(couponId);
+        return platform != null ? platform : couponRepo.findPlatformById(couponId).orElse(null);
+    }
+
+    public int getClaimLimit() {
+        return claimLimiter.getLimit();
+    }
+
+    public Duration getClaimWindow() {
+        return claimLimiter.getWindow();
+    }
+
+    // ✅ Keyset paging: a page is found by seeking from the cursor, so deep pages cost the same as the first
+    @Transactional(readOnly = true)
+    public CouponPage firstPage(String platform, int size) {
+        List<CouponSummary> rows = inventory.isReady()
+                ? inventory.list(platform, size + 1)
+                : couponRepo.findAvailableFirstPage(platform, PageRequest.of(0, size + 1));
+        return new CouponPage(platform, trim(rows, size), false, rows.size() > size);
     }
 
-    // ✅ Updated claim logic to return the full Coupon object
-    public Optional<Coupon> claim(Long couponId, Long userId) {
-        Optional<Coupon> opt = couponRepo.findByIdAndStatusAndClaimedByIsNull(couponId, Coupon.Status.AVAILABLE);
-        if (opt.isEmpty()) return Optional.empty();
+    // Empty when the cursor's coupon is unknown (so its platform can't be resolved)
+    @Transactional(readOnly = true)
+    public Optional<CouponPage> page(PageCursor cursor, int size) {
+        String platform = platformOf(cursor.id());
+        if (platform == null) return Optional.empty();
 
-        Coupon c = opt.get();
-        c.setClaimedBy(userId);
-        c.setClaimedAt(Instant.now());
-        c.setStatus(Coupon.Status.CLAIMED);
-        return Optional.of(couponRepo.save(c));
+        boolean useIndex = inventory.isReady();
+        if (cursor.direction() == PageCursor.Direction.NEXT) {
+            List<CouponSummary> rows = useIndex
+                    ? inventory.listAfter(platform, cursor.submittedAt(), cursor.id(), size + 1)
+                    : couponRepo.findAvailablePageAfter(platform, cursor.submittedAt(), cursor.id(), PageRequest.of(0, size + 1));
+            return Optional.of(new CouponPage(platform, trim(rows, size), true, rows.size() > size));
+        }
+        List<CouponSummary> rows = useIndex
+                ? inventory.listBefore(platform, cursor.submittedAt(), cursor.id(), size + 1)
+                : couponRepo.findAvailablePageBefore(platform, cursor.submittedAt(), cursor.id(), PageRequest.of(0, size + 1));
+        // Nothing newer left beyond this page: show a full first page rather than a short one
+        if (rows.size() <= size) return Optional.of(firstPage(platform, size));
+        List<CouponSummary> page = new ArrayList<>(rows.subList(0, size));
+        Collections.reverse(page);
+        return Optional.of(new CouponPage(platform, page, true, true));
     }
 
-    public List<Coupon> listAvailableByPlatform(String platform, int limit) {
-        return couponRepo.findByStatusAndClaimedByIsNullAndPlatformIgnoreCaseOrderBySubmittedAtDesc(
-                Coupon.Status.AVAILABLE,
-                platform,
-                PageRequest.of(0, limit)
-        );
+    private static List<CouponSummary> trim(List<CouponSummary> rows, int size) {
+        return rows.size() > size ? rows.subList(0, size) : rows;
     }
-}
\ No newline at end of file
+}
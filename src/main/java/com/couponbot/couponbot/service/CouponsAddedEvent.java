@@ -0,0 +1,7 @@
+package com.couponbot.couponbot.service;
+
+/**
+ * Published after new coupons are stored: one event per single submission and one per
+ * platform per bulk-import chunk. submittedBy lets the submitter be left out of the alert.
+ */
+public record CouponsAddedEvent(String platform, int count, Long submittedBy) {}
@@ -0,0 +1,115 @@
+package com.couponbot.couponbot.service;
+
+import com.couponbot.couponbot.db.repo.CouponKey;
+import com.couponbot.couponbot.db.repo.CouponRepo;
+import com.couponbot.couponbot.util.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cheap duplicate pre-check for (platform, code). A Bloom filter of every active key answers
+ * "definitely new" without touching the DB; a "maybe" is confirmed with an indexed EXISTS.
+ * The unique index ux_coupons_platform_code remains the source of truth for concurrent inserts.
+ */
+@Component
+public class DuplicateGuard {
+
+    private static final Logger log = LoggerFactory.getLogger(DuplicateGuard.class);
+
+    private final CouponRepo couponRepo;
+    private final long minCapacity;
+    private final double targetFpp;
+
+    private volatile BloomFilter filter;
+    private volatile BloomFilter rebuilding;
+    private volatile long capacity;
+
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong dbChecks = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+
+    public DuplicateGuard(CouponRepo couponRepo,
+                          @Value("${app.dedup.minCapacity:100000}") long minCapacity,
+                          @Value("${app.dedup.falsePositiveRate:0.01}") double targetFpp) {
+        this.couponRepo = couponRepo;
+        this.minCapacity = minCapacity;
+        this.targetFpp = targetFpp;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    // True if (platform, code) already exists. Before the filter is loaded every check goes to the DB.
+    public boolean isDuplicate(String platform, String code) {
+        checks.incrementAndGet();
+        BloomFilter f = filter;
+        CouponKey key = new CouponKey(platform, code);
+        if (f != null && !f.mightContain(key.normalized())) return false;
+
+        dbChecks.incrementAndGet();
+        boolean exists = couponRepo.existsActiveByPlatformAndCode(platform.trim(), code.trim());
+        if (exists) {
+            duplicates.incrementAndGet();
+        } else if (f != null) {
+            falsePositives.incrementAndGet();
+        }
+        return exists;
+    }
+
+    public void record(String platform, String code) {
+        String key = new CouponKey(platform, code).normalized();
+        BloomFilter f = filter, r = rebuilding;
+        if (f != null) f.put(key);
+        if (r != null) r.put(key);
+    }
+
+    // Bloom filters can't grow; once the live one is past its sizing, rebuild it twice as large
+    @Scheduled(fixedDelayString = "${app.dedup.resizeCheckInterval:PT10M}", initialDelayString = "${app.dedup.resizeCheckInterval:PT10M}")
+    public void resizeIfNeeded() {
+        BloomFilter f = filter;
+        if (f != null && f.getInserted() > capacity) rebuild();
+    }
+
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        long size = Math.max(minCapacity, couponRepo.count() * 2L);
+        BloomFilter next = new BloomFilter(size, targetFpp);
+        rebuilding = next;  // keys recorded while we read the table land in both filters
+        try {
+            List<CouponKey> keys = couponRepo.findActiveKeys();
+            for (CouponKey k : keys) next.put(k.normalized());
+            filter = next;
+            capacity = size;
+        } finally {
+            rebuilding = null;
+        }
+        log.info("Duplicate filter built: {} keys, capacity {}, {} KB, {} ms",
+                next.getInserted(), size, next.memoryBytes() / 1024, System.currentTimeMillis() - started);
+    }
+
+    public record Stats(long checks, long dbChecks, long duplicates, long falsePositives,
+                        double observedFalsePositiveRate, double expectedFalsePositiveRate,
+                        long keys, long memoryBytes) {}
+
+    public Stats stats() {
+        BloomFilter f = filter;
+        long fp = falsePositives.get();
+        long negatives = checks.get() - duplicates.get();  // checks for keys that turned out to be new
+        return new Stats(checks.get(), dbChecks.get(), duplicates.get(), fp,
+                negatives == 0 ? 0 : (double) fp / negatives,
+                f == null ? 0 : f.expectedFalsePositiveRate(),
+                f == null ? 0 : f.getInserted(),
+                f == null ? 0 : f.memoryBytes());
+    }
+}
@@ -0,0 +1,150 @@
+package com.couponbot.couponbot.service;
+
+import com.couponbot.couponbot.util.MpscRingBuffer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes coupon_events off the request path. Callers drop events into a bounded ring buffer
+ * (one CAS, never blocks); a single writer thread drains it and inserts up to batchSize rows
+ * per multi-row INSERT, flushing a partial batch once its oldest event has waited flushInterval.
+ * When the buffer is full, or the database stays unreachable past maxAttempts, events are
+ * dropped and counted rather than slowing down claims.
+ */
+@Component
+public class EventJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(EventJournal.class);
+    private static final String INSERT = "INSERT INTO coupon_events (occurred_at, kind, user_id, coupon_id, platform, code) VALUES ";
+    private static final int COLUMNS = 6;
+
+    private final JdbcTemplate jdbc;
+    private final MpscRingBuffer<CouponEvent> buffer;
+    private final int batchSize;
+    private final long flushNanos;
+    private final int maxAttempts;
+    private final String fullBatchSql;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    public EventJournal(JdbcTemplate jdbc,
+                        @Value("${app.journal.bufferSize:65536}") int bufferSize,
+                        @Value("${app.journal.batchSize:500}") int batchSize,
+                        @Value("${app.journal.flushInterval:200ms}") Duration flushInterval,
+                        @Value("${app.journal.maxAttempts:3}") int maxAttempts) {
+        this.jdbc = jdbc;
+        this.buffer = new MpscRingBuffer<>(bufferSize);
+        this.batchSize = batchSize;
+        this.flushNanos = flushInterval.toNanos();
+        this.maxAttempts = maxAttempts;
+        this.fullBatchSql = insertSql(batchSize);
+        this.writer = new Thread(this::run, "event-journal");
+        this.writer.setDaemon(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        writer.start();
+    }
+
+    // ✅ Safe on the hot path: no lock, no I/O
+    public void append(CouponEvent event) {
+        if (!buffer.offer(event)) dropped.incrementAndGet();
+    }
+
+    public int getBuffered() {
+        return buffer.size();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private void run() {
+        List<CouponEvent> batch = new ArrayList<>(batchSize);
+        long batchStarted = 0;
+        // after a stop, keep going until what was buffered is written
+        while (running || buffer.size() > 0 || !batch.isEmpty()) {
+            int n = buffer.drainTo(batch, batchSize - batch.size());
+            if (n > 0 && batchStarted == 0) batchStarted = System.nanoTime();
+            boolean due = !batch.isEmpty()
+                    && (batch.size() >= batchSize || !running || System.nanoTime() - batchStarted >= flushNanos);
+            if (due) {
+                write(batch);
+                batch.clear();
+                batchStarted = 0;
+            } else if (n == 0) {
+                LockSupport.parkNanos(Math.max(1_000_000L, flushNanos / 4));
+            }
+        }
+    }
+
+    private void write(List<CouponEvent> batch) {
+        String sql = batch.size() == batchSize ? fullBatchSql : insertSql(batch.size());
+        Object[] args = new Object[batch.size() * COLUMNS];
+        int a = 0;
+        for (CouponEvent e : batch) {
+            args[a++] = Timestamp.from(e.occurredAt());
+            args[a++] = e.kind().name();
+            args[a++] = e.userId();
+            args[a++] = e.couponId();
+            args[a++] = e.platform();
+            args[a++] = e.code();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                jdbc.update(sql, args);
+                written.addAndGet(batch.size());
+                batches.incrementAndGet();
+                return;
+            } catch (DataAccessException e) {
+                if (attempt >= maxAttempts || !running) {
+                    dropped.addAndGet(batch.size());
+                    log.warn("Dropped {} journal events after {} attempts: {}", batch.size(), attempt, e.getMessage());
+                    return;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(500L * attempt));
+            }
+        }
+    }
+
+    private static String insertSql(int rows) {
+        StringBuilder sb = new StringBuilder(INSERT.length() + rows * 20).append(INSERT);
+        for (int i = 0; i < rows; i++) sb.append(i == 0 ? "(?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?)");
+        return sb.toString();
+    }
+}
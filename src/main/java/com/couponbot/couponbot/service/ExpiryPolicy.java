@@ -0,0 +1,52 @@
+package com.couponbot.couponbot.service;
+
+import com.couponbot.couponbot.util.CouponParser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Decides when a new coupon expires: a date stated in its details wins, otherwise the
+ * platform's TTL (app.expiry.platformTtl, e.g. "Netflix=7d,Canva=30d"), otherwise the
+ * default TTL. A zero TTL means "never".
+ */
+@Component
+public class ExpiryPolicy {
+
+    private final Duration defaultTtl;
+    private final Map<String, Duration> platformTtl = new HashMap<>();
+    private final ZoneId zone;
+
+    public ExpiryPolicy(@Value("${app.expiry.defaultTtl:0}") Duration defaultTtl,
+                        @Value("${app.expiry.platformTtl:}") String platformTtl,
+                        @Value("${app.expiry.zone:UTC}") ZoneId zone) {
+        this.defaultTtl = defaultTtl;
+        this.zone = zone;
+        for (String entry : platformTtl.split(",")) {
+            int eq = entry.indexOf('=');
+            if (eq < 0) continue;
+            this.platformTtl.put(entry.substring(0, eq).trim().toLowerCase(Locale.ROOT),
+                    DurationStyle.detectAndParse(entry.substring(eq + 1).trim()));
+        }
+    }
+
+    // null when the coupon never expires; a stated date covers that whole day in app.expiry.zone
+    public Instant expiresAt(String platform, String details, Instant submittedAt) {
+        LocalDate lastDay = CouponParser.expiryFromText(details, LocalDate.ofInstant(submittedAt, zone));
+        if (lastDay != null) return lastDay.plusDays(1).atStartOfDay(zone).toInstant();
+        Duration ttl = platformTtl.getOrDefault(platform.trim().toLowerCase(Locale.ROOT), defaultTtl);
+        return ttl.isZero() || ttl.isNegative() ? null : submittedAt.plus(ttl);
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+}
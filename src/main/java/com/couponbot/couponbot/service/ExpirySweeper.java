@@ -0,0 +1,154 @@
+package com.couponbot.couponbot.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves AVAILABLE coupons past their expires_at to EXPIRED. Each batch is one short
+ * UPDATE ... RETURNING over the next batchSize due rows in (expires_at, id) order, served by
+ * ix_coupons_available_expiry; rows locked by an in-flight claim are skipped and picked up
+ * on the next run. The keyset cursor means a run never revisits rows it has already passed.
+ */
+@Component
+public class ExpirySweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpirySweeper.class);
+
+    private static final String EXPIRE_FIRST_BATCH = """
+            WITH due AS (
+                SELECT id FROM coupons
+                 WHERE status = 'AVAILABLE' AND expires_at IS NOT NULL AND expires_at <= ?
+                 ORDER BY expires_at, id
+                 LIMIT ?
+                 FOR UPDATE SKIP LOCKED)
+            UPDATE coupons c SET status = 'EXPIRED'
+              FROM due WHERE c.id = due.id
+            RETURNING c.id, c.expires_at, c.submitted_by, c.platform, c.code
+            """;
+
+    private static final String EXPIRE_NEXT_BATCH = """
+            WITH due AS (
+                SELECT id FROM coupons
+                 WHERE status = 'AVAILABLE' AND expires_at IS NOT NULL AND expires_at <= ?
+                   AND (expires_at, id) > (?, ?)
+                 ORDER BY expires_at, id
+                 LIMIT ?
+                 FOR UPDATE SKIP LOCKED)
+            UPDATE coupons c SET status = 'EXPIRED'
+              FROM due WHERE c.id = due.id
+            RETURNING c.id, c.expires_at, c.submitted_by, c.platform, c.code
+            """;
+
+    private record Expired(long id, Timestamp expiresAt, long submittedBy, String platform, String code) {}
+
+    private static final RowMapper<Expired> EXPIRED = (rs, i) ->
+            new Expired(rs.getLong(1), rs.getTimestamp(2), rs.getLong(3), rs.getString(4), rs.getString(5));
+
+    private final JdbcTemplate jdbc;
+    private final InventoryIndex inventory;
+    private final EventJournal journal;
+    private final StatsAggregator stats;
+    private final int batchSize;
+    private final int maxBatches;
+
+    private final Timer sweepTimer;
+    private final DistributionSummary expiredPerRun;
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong totalExpired = new AtomicLong();
+    private volatile long lastRunExpired;
+    private volatile long lastRunMillis;
+    private volatile Instant lastRunAt;
+
+    public ExpirySweeper(JdbcTemplate jdbc, InventoryIndex inventory, EventJournal journal, StatsAggregator stats,
+                         MeterRegistry registry,
+                         @Value("${app.expiry.batchSize:500}") int batchSize,
+                         @Value("${app.expiry.maxBatchesPerRun:200}") int maxBatches) {
+        this.jdbc = jdbc;
+        this.inventory = inventory;
+        this.journal = journal;
+        this.stats = stats;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.sweepTimer = Timer.builder("coupons.expiry.sweep")
+                .description("Duration of one expiry sweep")
+                .register(registry);
+        this.expiredPerRun = DistributionSummary.builder("coupons.expiry.rows")
+                .description("Coupons expired per sweep")
+                .register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.expiry.sweepInterval:PT1M}", initialDelayString = "${app.expiry.initialDelay:PT30S}")
+    public void sweep() {
+        long started = System.currentTimeMillis();
+        Timestamp now = Timestamp.from(Instant.ofEpochMilli(started));
+        long expired = 0;
+        Expired cursor = null;
+        try {
+            for (int batch = 0; batch < maxBatches; batch++) {
+                List<Expired> rows = cursor == null
+                        ? jdbc.query(EXPIRE_FIRST_BATCH, EXPIRED, now, batchSize)
+                        : jdbc.query(EXPIRE_NEXT_BATCH, EXPIRED, now, cursor.expiresAt(), cursor.id(), batchSize);
+                if (rows.isEmpty()) break;
+                for (Expired row : rows) {
+                    inventory.remove(row.id());
+                    journal.append(new CouponEvent(CouponEvent.Kind.EXPIRED, row.expiresAt().toInstant(),
+                            row.submittedBy(), row.id(), row.platform(), row.code()));
+                    stats.expired(row.platform());
+                    if (cursor == null || isAfter(row, cursor)) cursor = row;
+                }
+                expired += rows.size();
+                if (rows.size() < batchSize) break;
+            }
+        } finally {
+            long took = System.currentTimeMillis() - started;
+            runs.incrementAndGet();
+            totalExpired.addAndGet(expired);
+            lastRunExpired = expired;
+            lastRunMillis = took;
+            lastRunAt = Instant.ofEpochMilli(started);
+            sweepTimer.record(took, TimeUnit.MILLISECONDS);
+            expiredPerRun.record(expired);
+            if (expired > 0) log.info("Expired {} coupons in {} ms", expired, took);
+        }
+    }
+
+    // RETURNING order isn't guaranteed, so the cursor is the largest (expires_at, id) seen
+    private static boolean isAfter(Expired a, Expired b) {
+        int c = a.expiresAt().compareTo(b.expiresAt());
+        return c > 0 || (c == 0 && a.id() > b.id());
+    }
+
+    public long getRuns() {
+        return runs.get();
+    }
+
+    public long getTotalExpired() {
+        return totalExpired.get();
+    }
+
+    public long getLastRunExpired() {
+        return lastRunExpired;
+    }
+
+    public long getLastRunMillis() {
+        return lastRunMillis;
+    }
+
+    public Instant getLastRunAt() {
+        return lastRunAt;
+    }
+}
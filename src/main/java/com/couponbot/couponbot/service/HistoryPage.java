@@ -0,0 +1,11 @@
+package com.couponbot.couponbot.service;
+
+import java.time.Instant;
+import java.util.List;
+
+// One page of a user's own history, newest first; next is null on the last page
+public record HistoryPage(List<Entry> entries, PageCursor next) {
+
+    // status is the coupon's current status for submissions, null for claims
+    public record Entry(long id, Instant at, String platform, String code, String status) {}
+}
@@ -0,0 +1,85 @@
+package com.couponbot.couponbot.service;
+
+import com.couponbot.couponbot.db.repo.CouponRepo;
+import com.couponbot.couponbot.db.repo.SubmissionRow;
+import com.couponbot.couponbot.db.routing.ReadYourWritesGuard;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * /myclaims and /mysubmissions. Claims come from the coupon_events journal, submissions from
+ * coupons (so they show each coupon's current status); both are keyset pages over a covering
+ * index, so a deep page costs the same as the first. A claim shows up once the journal has
+ * flushed it (app.journal.flushInterval).
+ */
+@Service
+public class HistoryService {
+
+    private static final String CLAIMS_FIRST = """
+            SELECT id, occurred_at, platform, code FROM coupon_events
+             WHERE user_id = ? AND kind = 'CLAIMED'
+             ORDER BY occurred_at DESC, id DESC
+             LIMIT ?
+            """;
+
+    private static final String CLAIMS_AFTER = """
+            SELECT id, occurred_at, platform, code FROM coupon_events
+             WHERE user_id = ? AND kind = 'CLAIMED' AND (occurred_at, id) < (?, ?)
+             ORDER BY occurred_at DESC, id DESC
+             LIMIT ?
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final CouponRepo couponRepo;
+    private final ReadYourWritesGuard readYourWrites;
+    private final TransactionTemplate readOnly;
+
+    public HistoryService(JdbcTemplate jdbc, CouponRepo couponRepo, ReadYourWritesGuard readYourWrites,
+                          PlatformTransactionManager txManager) {
+        this.jdbc = jdbc;
+        this.couponRepo = couponRepo;
+        this.readYourWrites = readYourWrites;
+        this.readOnly = new TransactionTemplate(txManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    // after = null for the first page
+    public HistoryPage claims(long userId, PageCursor after, int size) {
+        return readYourWrites.read(userId, () -> readOnly.execute(status -> {
+            List<HistoryPage.Entry> rows = after == null
+                    ? jdbc.query(CLAIMS_FIRST, HistoryService::claimEntry, userId, size + 1)
+                    : jdbc.query(CLAIMS_AFTER, HistoryService::claimEntry,
+                            userId, Timestamp.from(after.submittedAt()), after.id(), size + 1);
+            return page(rows, size);
+        }));
+    }
+
+    public HistoryPage submissions(long userId, PageCursor after, int size) {
+        return readYourWrites.read(userId, () -> readOnly.execute(status -> {
+            List<SubmissionRow> rows = after == null
+                    ? couponRepo.findSubmissionsFirstPage(userId, PageRequest.of(0, size + 1))
+                    : couponRepo.findSubmissionsPageAfter(userId, after.submittedAt(), after.id(), PageRequest.of(0, size + 1));
+            return page(rows.stream()
+                    .map(r -> new HistoryPage.Entry(r.id(), r.submittedAt(), r.platform(), r.code(), r.status().name()))
+                    .toList(), size);
+        }));
+    }
+
+    private static HistoryPage.Entry claimEntry(ResultSet rs, int i) throws SQLException {
+        return new HistoryPage.Entry(rs.getLong(1), rs.getTimestamp(2).toInstant(), rs.getString(3), rs.getString(4), null);
+    }
+
+    private static HistoryPage page(List<HistoryPage.Entry> rows, int size) {
+        if (rows.size() <= size) return new HistoryPage(rows, null);
+        HistoryPage.Entry last = rows.get(size - 1);
+        return new HistoryPage(rows.subList(0, size), new PageCursor(PageCursor.Direction.NEXT, last.at(), last.id()));
+    }
+}
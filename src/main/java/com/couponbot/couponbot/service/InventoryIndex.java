@@ -0,0 +1,184 @@
+package com.couponbot.couponbot.service;
+
+import com.couponbot.couponbot.db.repo.CouponRepo;
+import com.couponbot.couponbot.db.repo.CouponSummary;
+import com.couponbot.couponbot.db.routing.ReadRouting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process view of AVAILABLE coupons, grouped by platform (case-insensitive) and kept
+ * newest-first. Loaded once at startup, updated by CouponService on save/claim/expiry,
+ * and periodically reconciled against the coupons table to repair drift.
+ */
+@Component
+public class InventoryIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryIndex.class);
+
+    static final Comparator<CouponSummary> NEWEST_FIRST = Comparator
+            .comparing(CouponSummary::submittedAt, Comparator.reverseOrder())
+            .thenComparing(CouponSummary::id, Comparator.reverseOrder());
+
+    public record PlatformCount(String platform, int count) {}
+
+    private final CouponRepo couponRepo;
+    private final Map<String, Shelf> shelves = new ConcurrentHashMap<>();
+    private final Map<Long, Entry> byId = new ConcurrentHashMap<>();
+    // bumped by every add; callers add after their insert commits, so entries numbered up to
+    // the value read before a reconcile's snapshot were visible to that snapshot
+    private final AtomicLong addSeq = new AtomicLong();
+    // ids removed while a reconcile is reading the table, so the stale snapshot can't re-add them
+    private final Map<Long, Boolean> tombstones = new ConcurrentHashMap<>();
+    private volatile boolean reconciling;
+    private volatile boolean ready;
+
+    public InventoryIndex(CouponRepo couponRepo) {
+        this.couponRepo = couponRepo;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reconcile();
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void add(CouponSummary c) {
+        if (byId.putIfAbsent(c.id(), new Entry(c, addSeq.incrementAndGet())) != null) return;
+        Shelf shelf = shelves.computeIfAbsent(key(c.platform()), k -> new Shelf());
+        shelf.displayName = c.platform();
+        if (shelf.coupons.add(c)) shelf.count.incrementAndGet();
+    }
+
+    public void remove(Long couponId) {
+        if (reconciling) tombstones.put(couponId, Boolean.TRUE);
+        Entry e = byId.remove(couponId);
+        if (e == null) return;
+        CouponSummary c = e.coupon();
+        Shelf shelf = shelves.get(key(c.platform()));
+        if (shelf != null && shelf.coupons.remove(c)) shelf.count.decrementAndGet();
+    }
+
+    public List<PlatformCount> platforms() {
+        List<PlatformCount> out = new ArrayList<>();
+        for (Shelf shelf : shelves.values()) {
+            int count = shelf.count.get();
+            if (count > 0) out.add(new PlatformCount(shelf.displayName, count));
+        }
+        out.sort(Comparator.comparingInt(PlatformCount::count).reversed().thenComparing(PlatformCount::platform));
+        return out;
+    }
+
+    public List<CouponSummary> list(String platform, int limit) {
+        Shelf shelf = shelves.get(key(platform));
+        if (shelf == null) return List.of();
+        List<CouponSummary> out = new ArrayList<>(Math.min(limit, 16));
+        Iterator<CouponSummary> it = shelf.coupons.iterator();
+        while (it.hasNext() && out.size() < limit) out.add(it.next());
+        return out;
+    }
+
+    // Up to limit coupons strictly older than the cursor position, newest first
+    public List<CouponSummary> listAfter(String platform, Instant submittedAt, long id, int limit) {
+        Shelf shelf = shelves.get(key(platform));
+        if (shelf == null) return List.of();
+        List<CouponSummary> out = new ArrayList<>(Math.min(limit, 16));
+        Iterator<CouponSummary> it = shelf.coupons.tailSet(probe(submittedAt, id), false).iterator();
+        while (it.hasNext() && out.size() < limit) out.add(it.next());
+        return out;
+    }
+
+    // Up to limit coupons strictly newer than the cursor position, nearest first
+    public List<CouponSummary> listBefore(String platform, Instant submittedAt, long id, int limit) {
+        Shelf shelf = shelves.get(key(platform));
+        if (shelf == null) return List.of();
+        List<CouponSummary> out = new ArrayList<>(Math.min(limit, 16));
+        Iterator<CouponSummary> it = shelf.coupons.headSet(probe(submittedAt, id), false).descendingIterator();
+        while (it.hasNext() && out.size() < limit) out.add(it.next());
+        return out;
+    }
+
+    // Null once the coupon has left the index (claimed, expired)
+    public String platformOf(long couponId) {
+        Entry e = byId.get(couponId);
+        return e == null ? null : e.coupon().platform();
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    // ✅ Compare with the DB and fix drift in both directions
+    @Scheduled(initialDelayString = "${app.inventory.reconcileInterval:PT5M}",
+            fixedDelayString = "${app.inventory.reconcileInterval:PT5M}")
+    public synchronized void reconcile() {
+        long seqAtStart = addSeq.get();
+        reconciling = true;
+        try {
+            Map<Long, CouponSummary> fresh = new HashMap<>();
+            // a lagging replica would look like drift, so the snapshot always comes from the primary
+            for (CouponSummary c : ReadRouting.primary(couponRepo::findAvailableSummaries)) fresh.put(c.id(), c);
+
+            int added = 0, removed = 0;
+            for (CouponSummary c : fresh.values()) {
+                if (!tombstones.containsKey(c.id()) && !byId.containsKey(c.id())) {
+                    add(c);
+                    added++;
+                }
+            }
+            for (Entry e : byId.values()) {
+                // anything added after the snapshot started may simply not have been visible to it
+                // (submittedAt can't tell: it is stamped before the insert commits)
+                if (!fresh.containsKey(e.coupon().id()) && e.seq() <= seqAtStart) {
+                    remove(e.coupon().id());
+                    removed++;
+                }
+            }
+            if (added + removed > 0 && ready) {
+                log.info("Inventory reconcile fixed drift: +{} -{}", added, removed);
+            }
+        } finally {
+            reconciling = false;
+            tombstones.clear();
+        }
+    }
+
+    // NEWEST_FIRST only looks at submittedAt and id
+    private static CouponSummary probe(Instant submittedAt, long id) {
+        return new CouponSummary(id, null, null, submittedAt);
+    }
+
+    private static String key(String platform) {
+        return platform.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Entry(CouponSummary coupon, long seq) {}
+
+    private static final class Shelf {
+        final NavigableSet<CouponSummary> coupons = new ConcurrentSkipListSet<>(NEWEST_FIRST);
+        final AtomicInteger count = new AtomicInteger();
+        volatile String displayName;
+    }
+}
@@ -0,0 +1,50 @@
+package com.couponbot.couponbot.service;
+
+import com.couponbot.couponbot.db.repo.CouponSummary;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Keyset position in a platform's newest-first coupon list: the (submittedAt, id) of the
+ * boundary coupon plus which way to move from it. Encoded as "n.&lt;micros36&gt;.&lt;id36&gt;"
+ * (about 25 chars) so it fits in Telegram's 64-byte callback data; the platform is not
+ * carried and is looked up from the boundary coupon's id instead.
+ */
+public record PageCursor(Direction direction, Instant submittedAt, long id) {
+
+    public enum Direction { NEXT, PREV }
+
+    public static PageCursor after(CouponSummary last) {
+        return new PageCursor(Direction.NEXT, last.submittedAt(), last.id());
+    }
+
+    public static PageCursor before(CouponSummary first) {
+        return new PageCursor(Direction.PREV, first.submittedAt(), first.id());
+    }
+
+    public String encode() {
+        long micros = ChronoUnit.MICROS.between(Instant.EPOCH, submittedAt);
+        return (direction == Direction.NEXT ? "n." : "p.")
+                + Long.toString(micros, 36) + "." + Long.toString(id, 36);
+    }
+
+    // null for anything that isn't a cursor we produced
+    public static PageCursor decode(String s) {
+        if (s == null || s.length() < 5 || s.charAt(1) != '.') return null;
+        Direction dir = switch (s.charAt(0)) {
+            case 'n' -> Direction.NEXT;
+            case 'p' -> Direction.PREV;
+            default -> null;
+        };
+        int dot = s.indexOf('.', 2);
+        if (dir == null || dot < 0) return null;
+        try {
+            long micros = Long.parseLong(s, 2, dot, 36);
+            long id = Long.parseLong(s, dot + 1, s.length(), 36);
+            return new PageCursor(dir, Instant.EPOCH.plus(micros, ChronoUnit.MICROS), id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.couponbot.couponbot.service;
+
+import com.couponbot.couponbot.db.entity.Coupon;
+import com.couponbot.couponbot.db.routing.ReadRouting;
+import com.couponbot.couponbot.util.MinuteCounter;
+import com.couponbot.couponbot.util.SpaceSaving;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live coupon statistics for /stats and the couponstats actuator endpoint.
+ * <p>
+ * Seeded once at startup from three grouped queries, then kept current by CouponService,
+ * bulk imports and the expiry sweeper: per-platform counts by status in LongAdders, claim and
+ * submission counts per minute in {@link MinuteCounter} rings, and the heaviest submitters
+ * in a {@link SpaceSaving} sketch. Reading a snapshot never touches the DB.
+ * Updates that arrive before seeding finishes are dropped; the seed already covers them, bar
+ * whatever commits while its queries run. In cluster mode each instance sees only its own
+ * updates after the seed.
+ */
+@Component
+public class StatsAggregator {
+
+    private static final Logger log = LoggerFactory.getLogger(StatsAggregator.class);
+
+    private static final String SEED_STATUS_COUNTS = """
+            SELECT platform, status, count(*) FROM coupons GROUP BY platform, status
+            """;
+
+    // Served by the BRIN index on occurred_at from V11
+    private static final String SEED_MINUTE_COUNTS = """
+            SELECT kind, floor(extract(epoch FROM occurred_at) / 60)::bigint AS minute, count(*)
+              FROM coupon_events
+             WHERE occurred_at > ? AND kind IN ('SUBMITTED', 'CLAIMED')
+             GROUP BY kind, minute
+            """;
+
+    // Grouped straight off ix_coupons_submitted_by_keyset (index-only scan)
+    private static final String SEED_TOP_SUBMITTERS = """
+            SELECT submitted_by, count(*) FROM coupons
+             GROUP BY submitted_by
+             ORDER BY count(*) DESC
+             LIMIT ?
+            """;
+
+    public record PlatformStats(String platform, long available, long claimed, long expired) {}
+
+    public record Rates(long lastHour, long lastWindow, double perMinute) {}
+
+    // maxOvercount: how far coupons may overstate the true count (the sketch's error bound)
+    public record Submitter(long userId, long coupons, long maxOvercount) {}
+
+    public record Snapshot(Instant seededAt, Duration window, long available, List<PlatformStats> platforms,
+                           Rates claims, Rates submissions, List<Submitter> topSubmitters) {}
+
+    private final JdbcTemplate jdbc;
+    private final int topSize;
+    private final int rateMinutes;
+    private final int trackedSubmitters;
+    private final Map<String, Counts> platforms = new ConcurrentHashMap<>();
+    private final MinuteCounter claims;
+    private final MinuteCounter submissions;
+    private final SpaceSaving submitters;
+    private volatile boolean ready;
+    private volatile Instant seededAt;
+
+    public StatsAggregator(JdbcTemplate jdbc,
+                           @Value("${app.stats.window:PT24H}") Duration window,
+                           @Value("${app.stats.rateMinutes:5}") int rateMinutes,
+                           @Value("${app.stats.trackedSubmitters:256}") int trackedSubmitters,
+                           @Value("${app.stats.topSubmitters:10}") int topSize) {
+        this.jdbc = jdbc;
+        this.topSize = topSize;
+        this.rateMinutes = rateMinutes;
+        this.trackedSubmitters = Math.max(topSize, trackedSubmitters);
+        int minutes = (int) Math.max(60, window.toMinutes());
+        this.claims = new MinuteCounter(minutes);
+        this.submissions = new MinuteCounter(minutes);
+        this.submitters = new SpaceSaving(this.trackedSubmitters);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        long started = System.currentTimeMillis();
+        ReadRouting.primary(() -> {
+            jdbc.query(SEED_STATUS_COUNTS, rs -> {
+                Counts c = counts(rs.getString(1));
+                long n = rs.getLong(3);
+                switch (Coupon.Status.valueOf(rs.getString(2))) {
+                    case AVAILABLE -> c.available.add(n);
+                    case CLAIMED -> c.claimed.add(n);
+                    case EXPIRED -> c.expired.add(n);
+                    case REMOVED -> { }
+                }
+            });
+            Timestamp since = new Timestamp(started - claims.windowMinutes() * 60_000L);
+            jdbc.query(SEED_MINUTE_COUNTS, rs -> {
+                MinuteCounter target = "CLAIMED".equals(rs.getString(1)) ? claims : submissions;
+                target.add(rs.getLong(2) * 60_000, rs.getLong(3));
+            }, since);
+            // seeding the sketch with the true top N makes those counts exact to start with
+            synchronized (submitters) {
+                jdbc.query(SEED_TOP_SUBMITTERS, rs -> {
+                    submitters.offer(rs.getLong(1), rs.getLong(2));
+                }, trackedSubmitters);
+            }
+        });
+        seededAt = Instant.ofEpochMilli(started);
+        ready = true;
+        log.info("Stats seeded for {} platforms in {} ms", platforms.size(), System.currentTimeMillis() - started);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // ✅ One event per single submission and per platform per bulk chunk
+    @EventListener
+    public void onCouponsAdded(CouponsAddedEvent event) {
+        if (!ready) return;
+        counts(event.platform()).available.add(event.count());
+        submissions.add(System.currentTimeMillis(), event.count());
+        if (event.submittedBy() == null) return;
+        synchronized (submitters) {
+            submitters.offer(event.submittedBy(), event.count());
+        }
+    }
+
+    public void claimed(String platform, long atMillis) {
+        if (!ready) return;
+        Counts c = counts(platform);
+        c.available.decrement();
+        c.claimed.increment();
+        claims.add(atMillis, 1);
+    }
+
+    public void expired(String platform) {
+        if (!ready) return;
+        Counts c = counts(platform);
+        c.available.decrement();
+        c.expired.increment();
+    }
+
+    public Snapshot snapshot() {
+        long now = System.currentTimeMillis();
+        List<PlatformStats> out = new ArrayList<>(platforms.size());
+        long available = 0;
+        for (Counts c : platforms.values()) {
+            PlatformStats p = new PlatformStats(c.displayName, Math.max(0, c.available.sum()),
+                    c.claimed.sum(), c.expired.sum());
+            available += p.available();
+            out.add(p);
+        }
+        out.sort(Comparator.comparingLong(PlatformStats::available).reversed()
+                .thenComparing(Comparator.comparingLong(PlatformStats::claimed).reversed())
+                .thenComparing(PlatformStats::platform));
+        List<Submitter> top = new ArrayList<>(topSize);
+        synchronized (submitters) {
+            for (SpaceSaving.Entry e : submitters.top(topSize)) top.add(new Submitter(e.key(), e.count(), e.error()));
+        }
+        return new Snapshot(seededAt, Duration.ofMinutes(claims.windowMinutes()), available, out, rates(claims, now), rates(submissions, now), top);
+    }
+
+    private Rates rates(MinuteCounter counter, long now) {
+        return new Rates(counter.sum(now, 60), counter.sum(now, counter.windowMinutes()),
+                (double) counter.sum(now, rateMinutes) / rateMinutes);
+    }
+
+    private Counts counts(String platform) {
+        Counts c = platforms.computeIfAbsent(platform.trim().toUpperCase(Locale.ROOT), k -> new Counts(platform.trim()));
+        c.displayName = platform.trim();
+        return c;
+    }
+
+    private static final class Counts {
+        final LongAdder available = new LongAdder();
+        final LongAdder claimed = new LongAdder();
+        final LongAdder expired = new LongAdder();
+        volatile String displayName;
+
+        Counts(String displayName) {
+            this.displayName = displayName;
+        }
+    }
+}
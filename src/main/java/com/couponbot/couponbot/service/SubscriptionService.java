@@ -0,0 +1,84 @@
+package com.couponbot.couponbot.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Per-platform alert subscriptions (table platform_subscriptions). Subscribers are read in
+ * keyset pages by user_id, so walking 100k of them never uses OFFSET and never holds more
+ * than one page in memory.
+ */
+@Service
+public class SubscriptionService {
+
+    public enum Outcome { SUBSCRIBED, ALREADY_SUBSCRIBED, LIMIT_REACHED }
+
+    public record Subscriber(long userId, long chatId) {}
+
+    private final JdbcTemplate jdbc;
+    private final int maxPerUser;
+
+    public SubscriptionService(JdbcTemplate jdbc, @Value("${app.subscriptions.maxPerUser:20}") int maxPerUser) {
+        this.jdbc = jdbc;
+        this.maxPerUser = maxPerUser;
+    }
+
+    public Outcome subscribe(long userId, long chatId, String platform) {
+        String name = platform.trim();
+        // chat_id is refreshed on re-subscribe in case the user now talks to the bot from another chat
+        if (jdbc.update("UPDATE platform_subscriptions SET chat_id = ? WHERE platform_key = ? AND user_id = ?",
+                chatId, key(name), userId) > 0) {
+            return Outcome.ALREADY_SUBSCRIBED;
+        }
+        Long count = jdbc.queryForObject("SELECT count(*) FROM platform_subscriptions WHERE user_id = ?", Long.class, userId);
+        if (count != null && count >= maxPerUser) return Outcome.LIMIT_REACHED;
+        int inserted = jdbc.update("""
+                INSERT INTO platform_subscriptions (platform_key, user_id, chat_id, platform)
+                VALUES (?, ?, ?, ?)
+                ON CONFLICT (platform_key, user_id) DO NOTHING
+                """, key(name), userId, chatId, name);
+        return inserted > 0 ? Outcome.SUBSCRIBED : Outcome.ALREADY_SUBSCRIBED;
+    }
+
+    // False when there was nothing to remove
+    public boolean unsubscribe(long userId, String platform) {
+        return jdbc.update("DELETE FROM platform_subscriptions WHERE platform_key = ? AND user_id = ?",
+                key(platform), userId) > 0;
+    }
+
+    // The user blocked the bot or deleted their account: nothing can reach them any more
+    public int removeUser(long userId) {
+        return jdbc.update("DELETE FROM platform_subscriptions WHERE user_id = ?", userId);
+    }
+
+    public List<String> platformsOf(long userId) {
+        return jdbc.queryForList("SELECT platform FROM platform_subscriptions WHERE user_id = ? ORDER BY platform_key",
+                String.class, userId);
+    }
+
+    // Subscribers of a platform with user_id > afterUserId, in user_id order (start with Long.MIN_VALUE).
+    // Read-only so it is served by the replica when there is one; a moment of lag doesn't matter here.
+    @Transactional(readOnly = true)
+    public List<Subscriber> page(String platform, long afterUserId, int limit) {
+        return jdbc.query("""
+                SELECT user_id, chat_id FROM platform_subscriptions
+                 WHERE platform_key = ? AND user_id > ?
+                 ORDER BY user_id
+                 LIMIT ?
+                """, (rs, i) -> new Subscriber(rs.getLong(1), rs.getLong(2)), key(platform), afterUserId, limit);
+    }
+
+    public int getMaxPerUser() {
+        return maxPerUser;
+    }
+
+    // Same normalization as upper(platform) in browsing
+    public static String key(String platform) {
+        return platform.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,87 @@
+package com.couponbot.couponbot.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter over strings. Sized from the expected number of keys and the
+ * target false-positive rate; bits live in an AtomicLongArray so puts never need a lock.
+ * Uses double hashing (h1 + i * h2) over a 64-bit hash of the key's chars.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLong inserted = new AtomicLong();
+
+    public BloomFilter(long expectedKeys, double falsePositiveRate) {
+        long n = Math.max(1, expectedKeys);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) >>> 6));
+        this.words = new AtomicLongArray(words);
+        this.bitCount = (long) words << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    public void put(CharSequence key) {
+        long h1 = hash(key);
+        long h2 = fmix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            int w = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long prev;
+            do {
+                prev = words.get(w);
+                if ((prev & mask) != 0) break;
+            } while (!words.compareAndSet(w, prev, prev | mask));
+        }
+        inserted.incrementAndGet();
+    }
+
+    public boolean mightContain(CharSequence key) {
+        long h1 = hash(key);
+        long h2 = fmix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /** False-positive rate implied by the current fill, (1 - e^(-kn/m))^k. */
+    public double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashCount * inserted.get() / bitCount), hashCount);
+    }
+
+    public long getInserted() {
+        return inserted.get();
+    }
+
+    public long memoryBytes() {
+        return bitCount >>> 3;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    private static long hash(CharSequence s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return fmix(h);
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -1,6 +1,14 @@
 package com.couponbot.couponbot.util;
 
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -8,11 +16,65 @@ public class CouponParser {
 
     // accept lowercase too
     private static final Pattern URL_PATTERN = Pattern.compile("https?://\\S+");
-    private static final Pattern TOKEN_PATTERN = Pattern.compile("\\b[a-zA-Z0-9]{5,30}\\b");
+
+    // "valid till 31 Dec", "expires 2025-12-31", "exp: 31/12/25", "valid until Dec 31st, 2025".
+    // Numeric d/m dates are read day-first; without a year only d/m with a slash counts, so
+    // "until 2-3 days" or "until 1.5x points" aren't dates. A month is its abbreviation or
+    // full name and nothing longer, so "till 5 marketing emails" isn't 5 March.
+    private static final String MONTHS = "jan|feb|mar|apr|may|jun|jul|aug|sep|oct|nov|dec";
+    private static final String MONTH_NAME = "(?:jan(?:uary)?|feb(?:ruary)?|mar(?:ch)?|apr(?:il)?|may|june?|july?"
+            + "|aug(?:ust)?|sep(?:t(?:ember)?)?|oct(?:ober)?|nov(?:ember)?|dec(?:ember)?)\\b";
+    private static final Pattern EXPIRY_PATTERN = Pattern.compile(
+            "(?i)\\b(?:valid\\s+(?:till|until|upto|up\\s+to|thru|through)|expir(?:es|y|ing)?(?:\\s+(?:on|date))?|exp\\.?|till|until|ends?(?:\\s+on)?)"
+                    + "\\s*[:\\-]?\\s*"
+                    + "(?:(?<isoY>\\d{4})-(?<isoM>\\d{1,2})-(?<isoD>\\d{1,2})"
+                    + "|(?<numD>\\d{1,2})(?<sep>[/.\\-])(?<numM>\\d{1,2})(?:\\k<sep>(?<numY>\\d{4}|\\d{2}))?"
+                    + "|(?<dmD>\\d{1,2})(?:st|nd|rd|th)?\\s*(?:of\\s+)?(?<dmM>" + MONTH_NAME + ")\\.?,?(?:\\s+(?<dmY>\\d{4}))?"
+                    + "|(?<mdM>" + MONTH_NAME + ")\\.?\\s+(?<mdD>\\d{1,2})(?:st|nd|rd|th)?,?(?:\\s+(?<mdY>\\d{4}))?)"
+                    + "(?!\\d)");
+
+    // same limits as the old \b[a-zA-Z0-9]{5,30}\b token regex
+    private static final int MIN_TOKEN = 5;
+    private static final int MAX_TOKEN = 30;
 
     public record Parsed(String code, String platform, String details) {}
 
+    // keyword -> platform, in priority order (first one found in the text wins)
+    private static final Map<String, String> DEFAULT_PLATFORMS = orderedMap(
+            "linkedin", "LinkedIn",
+            "canva", "Canva",
+            "adobe", "Adobe",
+            "netflix", "Netflix",
+            "spotify", "Spotify",
+            "amazon", "Amazon");
+
+    // platform words and common command words are never coupon codes
+    private static final List<String> DEFAULT_STOP_WORDS = List.of(
+            "canva", "adobe", "linkedin", "amazon", "netflix", "spotify", "start", "save", "claim");
+
+    private static final CouponParser DEFAULT = new CouponParser(DEFAULT_PLATFORMS, DEFAULT_STOP_WORDS, "General");
+
+    private final KeywordAutomaton platformMatcher;
+    private final String[] platformNames;
+    private final KeywordAutomaton stopWords;
+    private final String fallbackPlatform;
+
+    public CouponParser(Map<String, String> platformKeywords, Collection<String> stopWords, String fallbackPlatform) {
+        this.platformMatcher = new KeywordAutomaton(new ArrayList<>(platformKeywords.keySet()));
+        this.platformNames = platformKeywords.values().toArray(new String[0]);
+        this.stopWords = new KeywordAutomaton(new ArrayList<>(stopWords));
+        this.fallbackPlatform = fallbackPlatform;
+    }
+
+    public static CouponParser defaults() {
+        return DEFAULT;
+    }
+
     public static Parsed parseFromText(String text) {
+        return DEFAULT.parse(text);
+    }
+
+    public Parsed parse(String text) {
         if (text == null) return null;
         String t = text.trim();
         if (t.isEmpty()) return null;
@@ -20,50 +82,115 @@ public class CouponParser {
         String platform = guessPlatform(t);
         String details = t;
 
-        // 1) Prefer URL if present
-        Matcher url = URL_PATTERN.matcher(t);
-        if (url.find()) {
-            return new Parsed(url.group(), platform, details);
+        // 1) Prefer URL if present (the regex needs a literal "http", so skip it when there is none)
+        if (t.contains("http")) {
+            Matcher url = URL_PATTERN.matcher(t);
+            if (url.find()) {
+                return new Parsed(url.group(), platform, details);
+            }
         }
 
-        // 2) Collect best token as coupon code
-        Matcher m = TOKEN_PATTERN.matcher(t);
-
-        String best = null;
+        // 2) Collect best token as coupon code: one pass over the chars, no per-token strings
+        int bestStart = -1, bestEnd = -1;
         int bestScore = -1;
 
-        while (m.find()) {
-            String token = m.group();
-
-            // ignore platform words and common command words
-            String low = token.toLowerCase(Locale.ROOT);
-            if (low.equals("canva") || low.equals("adobe") || low.equals("linkedin") ||
-                    low.equals("amazon") || low.equals("netflix") || low.equals("spotify") ||
-                    low.equals("start") || low.equals("save") || low.equals("claim")) {
+        int len = t.length();
+        int i = 0;
+        while (i < len) {
+            char c = t.charAt(i);
+            if (c < 128 ? !isAsciiWord(c) : !isWordChar(t.codePointAt(i))) {
+                i += c < 128 ? 1 : Character.charCount(t.codePointAt(i));
                 continue;
             }
+            // a run of regex word chars; it is a token only if it is all ASCII alnum and 5..30 long
+            int start = i;
+            boolean ascii = true, hasDigit = false, hasLetter = false;
+            boolean prevLetterOrDigit = true;
+            while (i < len) {
+                c = t.charAt(i);
+                if (c < 128) {
+                    if (c >= '0' && c <= '9') hasDigit = true;
+                    else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) hasLetter = true;
+                    else if (c == '_') ascii = false;
+                    else break;
+                    prevLetterOrDigit = c != '_';
+                    i++;
+                    continue;
+                }
+                int cp = t.codePointAt(i);
+                boolean nsm = Character.getType(cp) == Character.NON_SPACING_MARK;
+                if (!isWordChar(cp) && !(nsm && prevLetterOrDigit)) break;
+                // the regex looks back one char, not one code point, for a mark's base: after a
+                // surrogate pair it sees the low surrogate, so a mark there starts a new word
+                if (!nsm) prevLetterOrDigit = Character.isLetterOrDigit(cp) && Character.isBmpCodePoint(cp);
+                ascii = false;
+                i += Character.charCount(cp);
+            }
+            int tokenLen = i - start;
+            if (!ascii || tokenLen < MIN_TOKEN || tokenLen > MAX_TOKEN) continue;
+            if (stopWords.exactMatch(t, start, i) >= 0) continue;
 
-            int score = scoreToken(token);
+            int score = scoreToken(tokenLen, hasDigit, hasLetter);
             if (score > bestScore) {
                 bestScore = score;
-                best = token;
+                bestStart = start;
+                bestEnd = i;
             }
         }
 
-        if (best == null) return null;
+        if (bestStart < 0) return null;
 
         // store codes uppercase for consistency (optional)
-        return new Parsed(best.toUpperCase(Locale.ROOT), platform, details);
+        return new Parsed(t.substring(bestStart, bestEnd).toUpperCase(Locale.ROOT), platform, details);
+    }
+
+    /**
+     * Last valid day stated in the text ("valid till 31 Dec"), or null. A date without a year
+     * is taken as the next such day on or after {@code today}.
+     */
+    public static LocalDate expiryFromText(String text, LocalDate today) {
+        if (text == null || text.isEmpty()) return null;
+        Matcher m = EXPIRY_PATTERN.matcher(text);
+        while (m.find()) {
+            try {
+                if (m.group("isoY") != null) return LocalDate.of(num(m.group("isoY")), num(m.group("isoM")), num(m.group("isoD")));
+                if (m.group("numD") != null) {
+                    if (m.group("numY") == null && !m.group("sep").equals("/")) continue;
+                    return dayMonth(today, num(m.group("numD")), num(m.group("numM")), m.group("numY"));
+                }
+                if (m.group("dmD") != null) return dayMonth(today, num(m.group("dmD")), month(m.group("dmM")), m.group("dmY"));
+                return dayMonth(today, num(m.group("mdD")), month(m.group("mdM")), m.group("mdY"));
+            } catch (DateTimeException e) {
+                // "31/02" and the like: keep looking
+            }
+        }
+        return null;
+    }
+
+    private static LocalDate dayMonth(LocalDate today, int day, int month, String year) {
+        if (year != null) {
+            int y = num(year);
+            return LocalDate.of(year.length() == 2 ? 2000 + y : y, month, day);
+        }
+        // this year's, unless it has passed or doesn't exist this year (29 Feb)
+        int y = today.getYear();
+        if (!YearMonth.of(y, month).isValidDay(day) || LocalDate.of(y, month, day).isBefore(today)) y++;
+        return LocalDate.of(y, month, day);
+    }
+
+    private static int month(String name) {
+        return MONTHS.indexOf(name.substring(0, 3).toLowerCase(Locale.ROOT)) / 4 + 1;
+    }
+
+    private static int num(String digits) {
+        return Integer.parseInt(digits);
     }
 
     // Prefer tokens that look like real coupons: has digits, mixed letters+digits, etc.
-    private static int scoreToken(String token) {
-        boolean hasDigit = token.chars().anyMatch(Character::isDigit);
-        boolean hasLetter = token.chars().anyMatch(Character::isLetter);
+    private static int scoreToken(int len, boolean hasDigit, boolean hasLetter) {
         boolean allLetters = hasLetter && !hasDigit;
         boolean allDigits = !hasLetter && hasDigit;
 
-        int len = token.length();
         int score = 0;
 
         if (hasDigit) score += 50;                 // big boost if digits exist
@@ -75,14 +202,23 @@ public class CouponParser {
         return score;
     }
 
-    private static String guessPlatform(String t) {
-        String s = t.toLowerCase(Locale.ROOT);
-        if (s.contains("linkedin")) return "LinkedIn";
-        if (s.contains("canva")) return "Canva";
-        if (s.contains("adobe")) return "Adobe";
-        if (s.contains("netflix")) return "Netflix";
-        if (s.contains("spotify")) return "Spotify";
-        if (s.contains("amazon")) return "Amazon";
-        return "General";
+    private String guessPlatform(String t) {
+        int id = platformMatcher.firstMatch(t, 0, t.length());
+        return id < 0 ? fallbackPlatform : platformNames[id];
+    }
+
+    private static boolean isAsciiWord(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    // What java.util.regex treats as a word char for \b
+    private static boolean isWordChar(int cp) {
+        return cp == '_' || Character.isLetterOrDigit(cp);
+    }
+
+    private static Map<String, String> orderedMap(String... kv) {
+        Map<String, String> m = new LinkedHashMap<>();
+        for (int i = 0; i < kv.length; i += 2) m.put(kv[i], kv[i + 1]);
+        return m;
     }
 }
@@ -0,0 +1,146 @@
+package com.couponbot.couponbot.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Case-insensitive Aho-Corasick automaton compiled to a full DFA (no failure-link
+ * walking at match time). Keyword ids are their position in the constructor list,
+ * so a lower id means higher priority.
+ * <p>
+ * Supports two queries without allocating:
+ * {@link #firstMatch} - lowest keyword id occurring anywhere in a range (substring search), and
+ * {@link #exactMatch} - keyword id equal to the whole range (dictionary lookup).
+ */
+public final class KeywordAutomaton {
+
+    private static final int NONE = Integer.MAX_VALUE;
+
+    private final int[] asciiClass = new int[128];
+    private final Map<Character, Integer> otherClass = new HashMap<>();
+    private final int classes;
+    private final int[] delta;      // state * classes + class -> state
+    private final int[] best;       // lowest keyword id ending at state (own or via suffix)
+    private final int[] exact;      // keyword id spelled exactly by the path to state
+    private final int[] depth;
+
+    public KeywordAutomaton(List<String> keywords) {
+        // character classes: 0 = "not in any keyword"
+        int nextClass = 1;
+        for (String k : keywords) {
+            for (int i = 0; i < k.length(); i++) {
+                char c = fold(k.charAt(i));
+                if (classOf(c) == 0) {
+                    if (c < 128) asciiClass[c] = nextClass++;
+                    else otherClass.put(c, nextClass++);
+                }
+            }
+        }
+        this.classes = nextClass;
+
+        // trie
+        List<int[]> go = new ArrayList<>();
+        List<Integer> bestL = new ArrayList<>(), exactL = new ArrayList<>(), depthL = new ArrayList<>();
+        go.add(new int[classes]);
+        bestL.add(NONE);
+        exactL.add(NONE);
+        depthL.add(0);
+        for (int id = 0; id < keywords.size(); id++) {
+            String k = keywords.get(id);
+            if (k.isEmpty()) continue;
+            int s = 0;
+            for (int i = 0; i < k.length(); i++) {
+                int cls = classOf(fold(k.charAt(i)));
+                if (go.get(s)[cls] == 0) {
+                    go.get(s)[cls] = go.size();
+                    go.add(new int[classes]);
+                    bestL.add(NONE);
+                    exactL.add(NONE);
+                    depthL.add(i + 1);
+                }
+                s = go.get(s)[cls];
+            }
+            if (exactL.get(s) == NONE) exactL.set(s, id);
+            bestL.set(s, Math.min(bestL.get(s), id));
+        }
+
+        int states = go.size();
+        this.delta = new int[states * classes];
+        this.best = new int[states];
+        this.exact = new int[states];
+        this.depth = new int[states];
+        int[] fail = new int[states];
+        for (int s = 0; s < states; s++) {
+            best[s] = bestL.get(s);
+            exact[s] = exactL.get(s);
+            depth[s] = depthL.get(s);
+        }
+
+        // BFS: complete the transition table and fold suffix outputs into best[]
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int cls = 1; cls < classes; cls++) {
+            int t = go.get(0)[cls];
+            delta[cls] = t;
+            if (t != 0) queue.add(t);
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            best[s] = Math.min(best[s], best[fail[s]]);
+            for (int cls = 1; cls < classes; cls++) {
+                int t = go.get(s)[cls];
+                if (t != 0) {
+                    fail[t] = delta[fail[s] * classes + cls];
+                    delta[s * classes + cls] = t;
+                    queue.add(t);
+                } else {
+                    delta[s * classes + cls] = delta[fail[s] * classes + cls];
+                }
+            }
+        }
+    }
+
+    /** Lowest keyword id found as a substring of text[from, to), or -1. */
+    public int firstMatch(CharSequence text, int from, int to) {
+        int s = 0, found = NONE;
+        for (int i = from; i < to; i++) {
+            s = delta[s * classes + classOf(fold(text.charAt(i)))];
+            if (best[s] < found) {
+                found = best[s];
+                if (found == 0) break;
+            }
+        }
+        return found == NONE ? -1 : found;
+    }
+
+    /** Keyword id equal (case-insensitively) to text[from, to), or -1. */
+    public int exactMatch(CharSequence text, int from, int to) {
+        int s = 0;
+        for (int i = from; i < to; i++) {
+            s = delta[s * classes + classOf(fold(text.charAt(i)))];
+            if (depth[s] != i - from + 1) return -1; // fell off the trie path
+        }
+        return exact[s] == NONE ? -1 : exact[s];
+    }
+
+    public int stateCount() {
+        return depth.length;
+    }
+
+    private int classOf(char c) {
+        if (c < 128) return asciiClass[c];
+        if (otherClass.isEmpty()) return 0;
+        Integer cls = otherClass.get(c);
+        return cls == null ? 0 : cls;
+    }
+
+    // Per-char lower-casing. U+0130 is left alone because String.toLowerCase turns it into
+    // two chars, which never matched a keyword in the old contains()-based code either.
+    static char fold(char c) {
+        if (c < 128) return (c >= 'A' && c <= 'Z') ? (char) (c | 0x20) : c;
+        if (c == 'İ') return c;
+        return Character.toLowerCase(c);
+    }
+}
@@ -0,0 +1,62 @@
+package com.couponbot.couponbot.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Event counts per minute over a fixed window, kept in a ring of buckets keyed by epoch minute.
+ * <p>
+ * A bucket is cleared when the ring comes back round to it, so nothing needs a timer, and
+ * reads only sum buckets whose minute is inside the asked-for range. Each bucket is a
+ * LongAdder, so concurrent writers to the current minute don't contend on one cache line.
+ */
+public class MinuteCounter {
+
+    private static final long MINUTE = 60_000;
+
+    private final LongAdder[] counts;
+    private final AtomicLongArray minutes;
+
+    public MinuteCounter(int windowMinutes) {
+        this.counts = new LongAdder[windowMinutes];
+        this.minutes = new AtomicLongArray(windowMinutes);
+        for (int i = 0; i < windowMinutes; i++) {
+            counts[i] = new LongAdder();
+            minutes.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    public void add(long epochMillis, long n) {
+        long minute = Math.floorDiv(epochMillis, MINUTE);
+        int i = (int) Math.floorMod(minute, (long) counts.length);
+        long current = minutes.get(i);
+        if (current != minute) {
+            if (current > minute) return;  // older than the window
+            roll(i, minute);
+        }
+        counts[i].add(n);
+    }
+
+    /** Total over the last {@code lastMinutes} minutes, the current (partial) minute included. */
+    public long sum(long nowMillis, int lastMinutes) {
+        long to = Math.floorDiv(nowMillis, MINUTE);
+        long from = to - Math.min(lastMinutes, counts.length) + 1;
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            long m = minutes.get(i);
+            if (m >= from && m <= to) total += counts[i].sum();
+        }
+        return total;
+    }
+
+    public int windowMinutes() {
+        return counts.length;
+    }
+
+    // Rare (once per bucket per lap), so a lock is simpler than making reset-and-restamp atomic
+    private synchronized void roll(int i, long minute) {
+        if (minutes.get(i) >= minute) return;
+        counts[i].reset();
+        minutes.set(i, minute);
+    }
+}
@@ -0,0 +1,75 @@
+package com.couponbot.couponbot.util;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer, single-consumer ring buffer.
+ * <p>
+ * Every slot carries a sequence number (Vyukov's bounded queue): a producer claims the next
+ * position with one CAS, writes the item and publishes it by advancing the slot's sequence,
+ * so the consumer can tell a finished slot from one still being written. Producers never
+ * block or allocate; {@link #offer} returns false when the buffer is full.
+ */
+public class MpscRingBuffer<E> {
+
+    private final Object[] items;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // only the consumer writes it; volatile so size() can be read from anywhere
+    private volatile long head;
+
+    public MpscRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.items = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) sequences.set(i, i);
+    }
+
+    public boolean offer(E item) {
+        long t;
+        while (true) {
+            t = tail.get();
+            long diff = sequences.get((int) t & mask) - t;
+            if (diff == 0) {
+                if (tail.compareAndSet(t, t + 1)) break;
+            } else if (diff < 0) {
+                return false;  // the consumer hasn't freed this slot yet: full
+            }
+            // diff > 0: another producer took t, try the next position
+        }
+        int i = (int) t & mask;
+        items[i] = item;
+        sequences.lazySet(i, t + 1);
+        return true;
+    }
+
+    /** Consumer only. Moves up to max published items into out, oldest first. */
+    @SuppressWarnings("unchecked")
+    public int drainTo(Collection<? super E> out, int max) {
+        long h = head;
+        int n = 0;
+        while (n < max) {
+            int i = (int) h & mask;
+            if (sequences.get(i) != h + 1) break;
+            out.add((E) items[i]);
+            items[i] = null;
+            sequences.lazySet(i, h + items.length);
+            h++;
+            n++;
+        }
+        head = h;
+        return n;
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public int capacity() {
+        return items.length;
+    }
+}
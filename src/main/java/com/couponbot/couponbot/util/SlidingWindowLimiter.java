@@ -0,0 +1,214 @@
+package com.couponbot.couponbot.util;
+
+import java.util.Arrays;
+
+/**
+ * Per-key sliding-window limiter: at most {@code limit} events per {@code windowMillis}.
+ * <p>
+ * Keys are primitive longs stored in striped open-addressing tables; each key owns
+ * {@code limit} consecutive slots of a flat long[] holding event timestamps (0 = free).
+ * There are no per-key objects, so a user costs 8 * (limit + 1) bytes plus table slack.
+ * Keys whose timestamps have all left the window are dropped by {@link #purge(long)}
+ * and whenever a stripe would otherwise grow.
+ */
+public class SlidingWindowLimiter {
+
+    private static final long EMPTY = 0L;
+    private static final long FREE_KEY = Long.MIN_VALUE;
+
+    private final int limit;
+    private final long windowMillis;
+    private final Stripe[] stripes;
+
+    public SlidingWindowLimiter(int limit, long windowMillis, int stripeCount) {
+        if (limit < 1) throw new IllegalArgumentException("limit must be >= 1");
+        this.limit = limit;
+        this.windowMillis = windowMillis;
+        this.stripes = new Stripe[Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1];
+        for (int i = 0; i < stripes.length; i++) stripes[i] = new Stripe(16);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /** Takes a slot at {@code now} if fewer than {@code limit} events fall inside the window. */
+    public boolean tryAcquire(long key, long now) {
+        Stripe s = stripe(key);
+        synchronized (s) {
+            int slot = s.findOrInsert(key, now - windowMillis);
+            int base = slot * limit;
+            int oldest = -1, used = 0;
+            for (int i = base; i < base + limit; i++) {
+                long t = s.stamps[i];
+                if (t > now - windowMillis) {
+                    used++;
+                } else if (oldest < 0 || t < s.stamps[oldest]) {
+                    oldest = i;
+                }
+            }
+            if (used >= limit) return false;
+            s.stamps[oldest] = now;
+            return true;
+        }
+    }
+
+    /** Gives back a slot taken by {@link #tryAcquire} when the guarded action did not happen. */
+    public void release(long key, long stamp) {
+        Stripe s = stripe(key);
+        synchronized (s) {
+            int slot = s.find(key);
+            if (slot < 0) return;
+            int base = slot * limit;
+            for (int i = base; i < base + limit; i++) {
+                if (s.stamps[i] == stamp) {
+                    s.stamps[i] = EMPTY;
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Records a past event (used for seeding); keeps the newest {@code limit} stamps per key. */
+    public void record(long key, long stamp, long now) {
+        if (stamp <= now - windowMillis) return;
+        Stripe s = stripe(key);
+        synchronized (s) {
+            int slot = s.findOrInsert(key, now - windowMillis);
+            int base = slot * limit;
+            int oldest = base;
+            for (int i = base; i < base + limit; i++) {
+                if (s.stamps[i] == stamp) return;
+                if (s.stamps[i] < s.stamps[oldest]) oldest = i;
+            }
+            if (s.stamps[oldest] < stamp) s.stamps[oldest] = stamp;
+        }
+    }
+
+    public int count(long key, long now) {
+        Stripe s = stripe(key);
+        synchronized (s) {
+            int slot = s.find(key);
+            if (slot < 0) return 0;
+            int used = 0;
+            for (int i = slot * limit; i < slot * limit + limit; i++) {
+                if (s.stamps[i] > now - windowMillis) used++;
+            }
+            return used;
+        }
+    }
+
+    /** Drops keys with no events left in the window. Returns the number of keys still tracked. */
+    public long purge(long now) {
+        long total = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                long expiredBefore = now - windowMillis;
+                int live = s.countLive(expiredBefore);
+                int capacity = 16;
+                while (capacity < live * 2 + 2) capacity <<= 1;
+                s.rehash(capacity, expiredBefore);
+                total += s.size;
+            }
+        }
+        return total;
+    }
+
+    public long size() {
+        long total = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                total += s.size;
+            }
+        }
+        return total;
+    }
+
+    public long memoryBytes() {
+        long total = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                total += 8L * s.keys.length + 8L * s.stamps.length;
+            }
+        }
+        return total;
+    }
+
+    private Stripe stripe(long key) {
+        return stripes[(int) mix(key) & (stripes.length - 1)];
+    }
+
+    private static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    private final class Stripe {
+        long[] keys;
+        long[] stamps;
+        int size;
+
+        Stripe(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, FREE_KEY);
+            stamps = new long[capacity * limit];
+        }
+
+        int find(long key) {
+            int mask = keys.length - 1;
+            for (int i = (int) (mix(key) >>> 16) & mask; ; i = (i + 1) & mask) {
+                if (keys[i] == key) return i;
+                if (keys[i] == FREE_KEY) return -1;
+            }
+        }
+
+        int findOrInsert(long key, long expiredBefore) {
+            int slot = find(key);
+            if (slot >= 0) return slot;
+            if ((size + 1) * 2 > keys.length) {
+                // drop expired keys first; only grow if the live set really needs it
+                rehash(keys.length, expiredBefore);
+                if ((size + 1) * 2 > keys.length) rehash(keys.length * 2, expiredBefore);
+            }
+            int mask = keys.length - 1;
+            int i = (int) (mix(key) >>> 16) & mask;
+            while (keys[i] != FREE_KEY) i = (i + 1) & mask;
+            keys[i] = key;
+            size++;
+            return i;
+        }
+
+        void rehash(int capacity, long expiredBefore) {
+            long[] oldKeys = keys;
+            long[] oldStamps = stamps;
+            keys = new long[capacity];
+            Arrays.fill(keys, FREE_KEY);
+            stamps = new long[capacity * limit];
+            size = 0;
+            int mask = capacity - 1;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] == FREE_KEY || !live(oldStamps, slot * limit, expiredBefore)) continue;
+                int i = (int) (mix(oldKeys[slot]) >>> 16) & mask;
+                while (keys[i] != FREE_KEY) i = (i + 1) & mask;
+                keys[i] = oldKeys[slot];
+                System.arraycopy(oldStamps, slot * limit, stamps, i * limit, limit);
+                size++;
+            }
+        }
+
+        int countLive(long expiredBefore) {
+            int n = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != FREE_KEY && live(stamps, slot * limit, expiredBefore)) n++;
+            }
+            return n;
+        }
+
+        private boolean live(long[] s, int base, long expiredBefore) {
+            for (int i = base; i < base + limit; i++) {
+                if (s[i] > expiredBefore) return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.couponbot.couponbot.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy hitters (Metwally, Agrawal, El Abbadi): at most {@code capacity} counters,
+ * and a key that isn't tracked takes over the smallest one, inheriting its count as the error.
+ * <p>
+ * Every key whose true count exceeds total/capacity is guaranteed to be tracked, and for each
+ * tracked key {@code count - error <= true count <= count}. Eviction scans for the minimum,
+ * which is fine at a few hundred counters and submission-rate updates. Not thread-safe.
+ */
+public class SpaceSaving {
+
+    public record Entry(long key, long count, long error) {}
+
+    private final int capacity;
+    private final Map<Long, long[]> counters;  // key -> {count, error}
+
+    public SpaceSaving(int capacity) {
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public void offer(long key, long n) {
+        long[] c = counters.get(key);
+        if (c != null) {
+            c[0] += n;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(key, new long[]{n, 0});
+            return;
+        }
+        Long minKey = null;
+        long[] min = null;
+        for (Map.Entry<Long, long[]> e : counters.entrySet()) {
+            if (min == null || e.getValue()[0] < min[0]) {
+                minKey = e.getKey();
+                min = e.getValue();
+            }
+        }
+        counters.remove(minKey);
+        counters.put(key, new long[]{min[0] + n, min[0]});
+    }
+
+    public List<Entry> top(int k) {
+        List<Entry> out = new ArrayList<>(counters.size());
+        counters.forEach((key, c) -> out.add(new Entry(key, c[0], c[1])));
+        out.sort(Comparator.comparingLong(Entry::count).reversed().thenComparingLong(Entry::key));
+        return out.size() > k ? new ArrayList<>(out.subList(0, k)) : out;
+    }
+
+    public int size() {
+        return counters.size();
+    }
+}
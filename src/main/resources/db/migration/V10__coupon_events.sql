@@ -0,0 +1,37 @@
+-- Append-only history of what happened to coupons. Written in batches by EventJournal;
+-- rows are never updated, so claims stay on record whatever later happens to the coupon.
+CREATE TABLE IF NOT EXISTS coupon_events (
+    id          BIGSERIAL PRIMARY KEY,
+    occurred_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    kind        VARCHAR(16) NOT NULL,   -- SUBMITTED, CLAIMED, EXPIRED
+    user_id     BIGINT      NOT NULL,   -- submitter, claimer, or for EXPIRED the submitter
+    coupon_id   BIGINT      NOT NULL,
+    platform    TEXT        NOT NULL,
+    code        TEXT        NOT NULL
+);
+
+-- /myclaims: one user's events of one kind, newest first, keyset by (occurred_at, id).
+-- Everything the page shows is in the index, so it is an index-only scan.
+CREATE INDEX IF NOT EXISTS ix_coupon_events_user_kind_keyset
+    ON coupon_events (user_id, kind, occurred_at DESC, id DESC)
+    INCLUDE (platform, code);
+
+-- /mysubmissions reads coupons directly (it shows each coupon's current status); this replaces
+-- ix_coupons_submitted_by from V2 with a keyset-ordered covering version
+CREATE INDEX IF NOT EXISTS ix_coupons_submitted_by_keyset
+    ON coupons (submitted_by, submitted_at DESC, id DESC)
+    INCLUDE (platform, code, status);
+
+DROP INDEX IF EXISTS ix_coupons_submitted_by;
+
+-- History from before the journal existed, as far as the coupons table still knows it
+INSERT INTO coupon_events (occurred_at, kind, user_id, coupon_id, platform, code)
+SELECT submitted_at, 'SUBMITTED', submitted_by, id, platform, code FROM coupons;
+
+INSERT INTO coupon_events (occurred_at, kind, user_id, coupon_id, platform, code)
+SELECT claimed_at, 'CLAIMED', claimed_by, id, platform, code FROM coupons
+ WHERE claimed_by IS NOT NULL AND claimed_at IS NOT NULL;
+
+INSERT INTO coupon_events (occurred_at, kind, user_id, coupon_id, platform, code)
+SELECT expires_at, 'EXPIRED', submitted_by, id, platform, code FROM coupons
+ WHERE status = 'EXPIRED' AND expires_at IS NOT NULL;
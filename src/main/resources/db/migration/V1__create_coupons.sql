@@ -0,0 +1,14 @@
+-- Matches the Coupon entity. IF NOT EXISTS so databases previously created by
+-- ddl-auto=update are adopted (Flyway baselines them at version 0).
+CREATE TABLE IF NOT EXISTS coupons (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    code         VARCHAR(120)                NOT NULL,
+    platform     VARCHAR(80)                 NOT NULL,
+    details      VARCHAR(500),
+    submitted_by BIGINT                      NOT NULL,
+    submitted_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    status       VARCHAR(20)                 NOT NULL
+        CHECK (status IN ('AVAILABLE', 'CLAIMED', 'EXPIRED', 'REMOVED')),
+    claimed_by   BIGINT,
+    claimed_at   TIMESTAMP(6) WITH TIME ZONE
+);
@@ -0,0 +1,31 @@
+-- One index per access path in CouponRepo. Spring Data's IgnoreCase compiles to
+-- upper(platform) = upper(?), so the platform expression indexes use upper().
+
+-- findByStatusAndClaimedByIsNullAndPlatformIgnoreCaseOrderBySubmittedAtDesc (browse list)
+CREATE INDEX IF NOT EXISTS ix_coupons_available_platform_submitted
+    ON coupons (upper(platform), submitted_at DESC)
+    WHERE status = 'AVAILABLE' AND claimed_by IS NULL;
+
+-- findDistinctPlatformsWithAvailableCoupons, findAvailableSummaries (index/reconcile load)
+CREATE INDEX IF NOT EXISTS ix_coupons_available_platform
+    ON coupons (platform)
+    WHERE status = 'AVAILABLE';
+
+-- findByStatusOrderBySubmittedAtDesc, findByStatusAndClaimedByIsNullOrderBySubmittedAtDesc,
+-- findByStatusAndPlatformIgnoreCaseOrderBySubmittedAtDesc (status first, then filter)
+CREATE INDEX IF NOT EXISTS ix_coupons_status_submitted
+    ON coupons (status, submitted_at DESC);
+
+-- countByClaimedByAndClaimedAtAfter (limit fallback before the limiter is seeded)
+CREATE INDEX IF NOT EXISTS ix_coupons_claimed_by_at
+    ON coupons (claimed_by, claimed_at)
+    WHERE claimed_by IS NOT NULL;
+
+-- findClaimsSince (limiter seeding)
+CREATE INDEX IF NOT EXISTS ix_coupons_claimed_at
+    ON coupons (claimed_at)
+    WHERE claimed_by IS NOT NULL;
+
+-- findBySubmittedByOrderBySubmittedAtDesc
+CREATE INDEX IF NOT EXISTS ix_coupons_submitted_by
+    ON coupons (submitted_by, submitted_at DESC);
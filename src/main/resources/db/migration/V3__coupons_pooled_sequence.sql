@@ -0,0 +1,9 @@
+-- Coupon ids now come from a pooled sequence (allocationSize = 50) so Hibernate can
+-- batch inserts. The sequence starts past the current max id; with the pooled
+-- optimizer the first nextval (max + 50) hands out max+1 .. max+50.
+CREATE SEQUENCE IF NOT EXISTS coupons_seq INCREMENT BY 50;
+SELECT setval('coupons_seq', COALESCE((SELECT MAX(id) FROM coupons), 0) + 50, false);
+
+-- Mixing the identity default with pooled ids would collide, so inserts must go
+-- through the sequence from here on.
+ALTER TABLE coupons ALTER COLUMN id DROP IDENTITY IF EXISTS;
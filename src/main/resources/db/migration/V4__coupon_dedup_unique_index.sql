@@ -0,0 +1,16 @@
+-- A coupon is identified by (platform, code), case-insensitively. Existing repeats are
+-- retired as REMOVED before the unique index goes on. The copy kept is a CLAIMED/EXPIRED
+-- one if there is any (so claim history and claim counts stay as they were), else the oldest.
+UPDATE coupons c
+   SET status = 'REMOVED'
+  FROM (SELECT id,
+               row_number() OVER (PARTITION BY lower(platform), lower(code)
+                                  ORDER BY CASE WHEN status IN ('CLAIMED', 'EXPIRED') THEN 0 ELSE 1 END, id) AS rank
+          FROM coupons
+         WHERE status <> 'REMOVED') r
+ WHERE c.id = r.id
+   AND r.rank > 1;
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_coupons_platform_code
+    ON coupons (lower(platform), lower(code))
+    WHERE status <> 'REMOVED';
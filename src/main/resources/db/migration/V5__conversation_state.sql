@@ -0,0 +1,11 @@
+-- Persisted wizard state for app.conversation.store=jdbc, so redeploys don't lose
+-- half-finished submissions. One row per user; updated_at drives TTL and size capping.
+CREATE TABLE IF NOT EXISTS conversation_state (
+    user_id    BIGINT PRIMARY KEY,
+    step       VARCHAR(32)                 NOT NULL,
+    platform   TEXT,
+    code       TEXT,
+    updated_at TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS ix_conversation_state_updated ON conversation_state (updated_at);
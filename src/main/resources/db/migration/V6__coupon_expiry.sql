@@ -0,0 +1,8 @@
+-- Optional expiry per coupon; NULL means it never expires on its own.
+ALTER TABLE coupons ADD COLUMN IF NOT EXISTS expires_at TIMESTAMP(6) WITH TIME ZONE;
+
+-- ExpirySweeper walks due AVAILABLE rows in (expires_at, id) order; expired rows
+-- drop out of this partial index, so each sweep only touches what is due.
+CREATE INDEX IF NOT EXISTS ix_coupons_available_expiry
+    ON coupons (expires_at, id)
+    WHERE status = 'AVAILABLE' AND expires_at IS NOT NULL;
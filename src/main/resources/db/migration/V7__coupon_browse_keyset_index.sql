@@ -0,0 +1,8 @@
+-- Browse pages seek on (submitted_at, id) instead of using OFFSET, so the id tiebreaker
+-- has to be in the index for the row comparison to be an index condition.
+CREATE INDEX IF NOT EXISTS ix_coupons_available_platform_keyset
+    ON coupons (upper(platform), submitted_at DESC, id DESC)
+    WHERE status = 'AVAILABLE' AND claimed_by IS NULL;
+
+-- Superseded: same leading columns, used by the first page only
+DROP INDEX IF EXISTS ix_coupons_available_platform_submitted;
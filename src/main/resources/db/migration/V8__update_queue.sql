@@ -0,0 +1,22 @@
+-- Cluster mode: the leader writes every Telegram update here and all instances work it off.
+CREATE TABLE IF NOT EXISTS update_queue (
+    id           BIGSERIAL PRIMARY KEY,
+    update_id    BIGINT NOT NULL,
+    user_key     BIGINT NOT NULL,
+    payload      JSONB NOT NULL,
+    enqueued_at  TIMESTAMP(6) WITH TIME ZONE NOT NULL DEFAULT now(),
+    locked_by    TEXT,
+    locked_until TIMESTAMP(6) WITH TIME ZONE,
+    attempts     INT NOT NULL DEFAULT 0,
+    CONSTRAINT ux_update_queue_update_id UNIQUE (update_id)
+);
+
+-- A user's oldest row is the only one that can be leased, which keeps their updates in order
+CREATE INDEX IF NOT EXISTS ix_update_queue_user_key_id ON update_queue (user_key, id);
+
+-- getUpdates offset, advanced in the same transaction that enqueues the batch,
+-- so a new leader resumes exactly where the old one stopped
+CREATE TABLE IF NOT EXISTS update_offsets (
+    name           TEXT PRIMARY KEY,
+    last_update_id BIGINT NOT NULL
+);
@@ -0,0 +1,15 @@
+-- "Tell me about new <platform> coupons". platform_key is upper(platform), the same
+-- normalization browsing uses; platform keeps the spelling the user picked.
+CREATE TABLE IF NOT EXISTS platform_subscriptions (
+    platform_key TEXT   NOT NULL,
+    user_id      BIGINT NOT NULL,
+    chat_id      BIGINT NOT NULL,
+    platform     TEXT   NOT NULL,
+    created_at   TIMESTAMP(6) WITH TIME ZONE NOT NULL DEFAULT now(),
+    -- fan-out pages through one platform's subscribers by user_id; chat_id rides along
+    -- in the index so each page is an index-only scan
+    CONSTRAINT pk_platform_subscriptions PRIMARY KEY (platform_key, user_id) INCLUDE (chat_id)
+);
+
+-- /subscriptions and the per-user cap, and dropping everything for a user who blocked the bot
+CREATE INDEX IF NOT EXISTS ix_platform_subscriptions_user ON platform_subscriptions (user_id);
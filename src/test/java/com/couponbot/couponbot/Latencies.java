@@ -0,0 +1,50 @@
+package com.couponbot.couponbot;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency samples for the *Benchmark classes (run with -Pperf): record nanos, then read
+ * percentiles in milliseconds. Thread-safe for recording from many threads.
+ */
+public final class Latencies {
+
+    private long[] nanos;
+    private int size;
+    private boolean sorted;
+
+    public Latencies(int expected) {
+        this.nanos = new long[Math.max(16, expected)];
+    }
+
+    public synchronized void add(long elapsedNanos) {
+        if (size == nanos.length) nanos = Arrays.copyOf(nanos, size * 2);
+        nanos[size++] = elapsedNanos;
+        sorted = false;
+    }
+
+    public synchronized int count() {
+        return size;
+    }
+
+    public synchronized double percentileMillis(double p) {
+        if (size == 0) return 0;
+        if (!sorted) {
+            Arrays.sort(nanos, 0, size);
+            sorted = true;
+        }
+        int i = (int) Math.ceil(p * size) - 1;
+        return nanos[Math.max(0, Math.min(size - 1, i))] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public synchronized double meanMillis() {
+        long total = 0;
+        for (int i = 0; i < size; i++) total += nanos[i];
+        return size == 0 ? 0 : total / (double) size / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public String summary() {
+        return String.format("n=%d mean=%.3f p50=%.3f p99=%.3f max=%.3f ms",
+                count(), meanMillis(), percentileMillis(0.50), percentileMillis(0.99), percentileMillis(1.0));
+    }
+}
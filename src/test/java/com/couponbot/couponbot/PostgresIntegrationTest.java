@@ -0,0 +1,58 @@
+package com.couponbot.couponbot;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * Base for tests that need the real schema: the full context (Telegram off) on a Postgres
+ * started by Testcontainers, or on an existing server given with -Dtest.postgres.url
+ * (plus test.postgres.username / test.postgres.password). Skipped when neither is there.
+ * Flyway migrates the database once and test classes share it, so tests use their own
+ * platform names and user ids instead of cleaning up.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public abstract class PostgresIntegrationTest {
+
+    private static final String EXTERNAL_URL = System.getProperty("test.postgres.url");
+    private static PostgreSQLContainer<?> container;
+
+    @BeforeAll
+    static void requirePostgres() {
+        Assumptions.assumeTrue(EXTERNAL_URL != null || DockerClientFactory.instance().isDockerAvailable(),
+                "needs Docker or -Dtest.postgres.url");
+    }
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        if (EXTERNAL_URL != null) {
+            registry.add("spring.datasource.url", () -> EXTERNAL_URL);
+            registry.add("spring.datasource.username", () -> System.getProperty("test.postgres.username", "postgres"));
+            registry.add("spring.datasource.password", () -> System.getProperty("test.postgres.password", ""));
+            return;
+        }
+        registry.add("spring.datasource.url", () -> container().getJdbcUrl());
+        registry.add("spring.datasource.username", () -> container().getUsername());
+        registry.add("spring.datasource.password", () -> container().getPassword());
+    }
+
+    // One container for the whole run; Ryuk removes it when the JVM exits
+    private static synchronized PostgreSQLContainer<?> container() {
+        if (container == null) {
+            container = new PostgreSQLContainer<>("postgres:16-alpine");
+            container.start();
+        }
+        return container;
+    }
+
+    // Unique per run, so reruns against the same external database don't collide
+    protected static String unique(String prefix) {
+        return prefix + Long.toString(System.nanoTime(), 36).toUpperCase();
+    }
+}
@@ -0,0 +1,135 @@
+package com.couponbot.couponbot.bot;
+
+import com.couponbot.couponbot.metrics.TelegramApiMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.ResponseParameters;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OutboundSenderTest {
+
+    private final AbsSender sender = mock(AbsSender.class);
+    private final Set<String> rateLimitedOnce = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> sentAt = new ConcurrentHashMap<>();
+    private OutboundSender outbound;
+
+    @AfterEach
+    void stop() {
+        if (outbound != null) outbound.shutdown();
+    }
+
+    @Test
+    void rateLimitsOnSeveralChatsPauseEveryChat() throws Exception {
+        outbound = sender(2);
+        stub(Set.of("1", "2"));
+
+        outbound.send(sender, 1, new SendMessage("1", "a"));
+        outbound.send(sender, 2, new SendMessage("2", "b"));
+        awaitRateLimited(2);
+        long pausedAt = System.nanoTime();
+        outbound.send(sender, 3, new SendMessage("3", "c")).get(5, TimeUnit.SECONDS);
+
+        assertThat(Duration.ofNanos(sentAt.get("3") - pausedAt)).isGreaterThan(Duration.ofMillis(700));
+        assertThat(outbound.getGlobalPauses()).isPositive();
+    }
+
+    @Test
+    void oneRateLimitedChatDoesNotHoldUpOthers() throws Exception {
+        outbound = sender(2);
+        stub(Set.of("1"));
+
+        outbound.send(sender, 1, new SendMessage("1", "a"));
+        awaitRateLimited(1);
+        long pausedAt = System.nanoTime();
+        outbound.send(sender, 3, new SendMessage("3", "c")).get(5, TimeUnit.SECONDS);
+
+        assertThat(Duration.ofNanos(sentAt.get("3") - pausedAt)).isLessThan(Duration.ofMillis(500));
+        assertThat(outbound.getGlobalPauses()).isZero();
+    }
+
+    @Test
+    void sendAfterShutdownFailsTheFutureInsteadOfThrowing() {
+        outbound = sender(2);
+        outbound.shutdown();
+
+        CompletableFuture<Message> sent = outbound.send(sender, 1, new SendMessage("1", "a"));
+
+        assertThat(sent).isCompletedExceptionally();
+        assertThatThrownBy(sent::join).hasCauseInstanceOf(RejectedExecutionException.class);
+        assertThat(outbound.getPending()).isZero();
+    }
+
+    @Test
+    void shutdownSendsWhatItCanThenFailsTheRest() throws Exception {
+        outbound = sender(2);
+        doAnswer(inv -> {
+            String chat = ((SendMessage) inv.getArgument(0)).getChatId();
+            if (chat.equals("1")) throw tooManyRequests(30);  // paused far past the drain timeout
+            sentAt.put(chat, System.nanoTime());
+            return new Message();
+        }).when(sender).execute(any(SendMessage.class));
+
+        CompletableFuture<Message> stuck = outbound.send(sender, 1, new SendMessage("1", "a"));
+        awaitRateLimited(1);
+        CompletableFuture<Message> queued = outbound.send(sender, 2, new SendMessage("2", "b"));
+        long started = System.nanoTime();
+        outbound.shutdown();
+
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(3));
+        assertThat(queued.get(1, TimeUnit.SECONDS)).isNotNull();
+        assertThat(stuck).isCompletedExceptionally();
+        assertThatThrownBy(stuck::join).hasCauseInstanceOf(RejectedExecutionException.class);
+        assertThat(outbound.getPending()).isZero();
+    }
+
+    private OutboundSender sender(int globalPauseLanes) {
+        return new OutboundSender(new TelegramApiMetrics(new SimpleMeterRegistry()), 4, 1000, 1000, 1000, 5,
+                Duration.ofMillis(10), globalPauseLanes, Duration.ofMillis(300));
+    }
+
+    // chats in rateLimited get one 429 (retry_after 1s) before their send goes through
+    private void stub(Set<String> rateLimited) throws Exception {
+        doAnswer(inv -> {
+            String chat = ((SendMessage) inv.getArgument(0)).getChatId();
+            if (rateLimited.contains(chat) && rateLimitedOnce.add(chat)) throw tooManyRequests();
+            sentAt.put(chat, System.nanoTime());
+            return new Message();
+        }).when(sender).execute(any(SendMessage.class));
+    }
+
+    private void awaitRateLimited(int chats) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (outbound.getRateLimited() < chats && System.nanoTime() < deadline) Thread.sleep(5);
+        assertThat(outbound.getRateLimited()).isEqualTo(chats);
+    }
+
+    private static TelegramApiRequestException tooManyRequests() {
+        return tooManyRequests(1);
+    }
+
+    private static TelegramApiRequestException tooManyRequests(int retryAfter) {
+        TelegramApiRequestException e = mock(TelegramApiRequestException.class);
+        when(e.getErrorCode()).thenReturn(429);
+        when(e.getParameters()).thenReturn(new ResponseParameters(null, retryAfter));
+        return e;
+    }
+}
@@ -0,0 +1,88 @@
+package com.couponbot.couponbot.bot;
+
+import com.couponbot.couponbot.service.CouponsAddedEvent;
+import com.couponbot.couponbot.service.SubscriptionService;
+import com.couponbot.couponbot.service.SubscriptionService.Subscriber;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class SubscriptionNotifierTest {
+
+    private static final int PAGE = 2;
+
+    private final SubscriptionService subscriptions = mock(SubscriptionService.class);
+    private final OutboundSender outbound = mock(OutboundSender.class);
+    private final SubscriptionNotifier notifier = new SubscriptionNotifier(subscriptions, outbound,
+            mock(CouponTelegramBot.class), Duration.ZERO, PAGE, 1_000_000, 500);
+
+    private final List<Long> sentTo = new CopyOnWriteArrayList<>();
+    private final CountDownLatch firstSent = new CountDownLatch(1);
+    private final CountDownLatch smallAdded = new CountDownLatch(1);
+    private final CountDownLatch allSent = new CountDownLatch(7);
+
+    @AfterEach
+    void stop() {
+        smallAdded.countDown();
+        notifier.shutdown();
+    }
+
+    @Test
+    void aSmallPlatformsAlertGoesOutBetweenTheBigOnesPages() throws Exception {
+        subscribers("Big", LongStream.rangeClosed(1, 6).toArray());
+        subscribers("Small", 1001);
+        stubOutbound();
+
+        notifier.onCouponsAdded(new CouponsAddedEvent("Big", 1, 99L));
+        assertThat(firstSent.await(5, TimeUnit.SECONDS)).isTrue();
+        // Big's fan-out is mid-page when Small's digest comes in
+        notifier.onCouponsAdded(new CouponsAddedEvent("Small", 1, 99L));
+        smallAdded.countDown();
+
+        assertThat(allSent.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(sentTo).containsExactly(1L, 2L, 3L, 4L, 1001L, 5L, 6L);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (notifier.getDigestsSent() < 2 && System.nanoTime() < deadline) Thread.sleep(10);
+        assertThat(notifier.getDigestsSent()).isEqualTo(2);
+        assertThat(notifier.getAlertsSent()).isEqualTo(7);
+    }
+
+    // keyset pages of PAGE over the given user ids (chat id = user id)
+    private void subscribers(String platform, long... userIds) {
+        doAnswer(inv -> {
+            long after = inv.getArgument(1);
+            int limit = inv.getArgument(2);
+            return LongStream.of(userIds).filter(id -> id > after).limit(limit)
+                    .mapToObj(id -> new Subscriber(id, id)).toList();
+        }).when(subscriptions).page(eq(platform), anyLong(), anyInt());
+    }
+
+    private void stubOutbound() {
+        doAnswer(inv -> {
+            long chatId = inv.getArgument(1);
+            sentTo.add(chatId);
+            if (chatId == 1) {
+                firstSent.countDown();
+                smallAdded.await();
+            }
+            allSent.countDown();
+            return CompletableFuture.completedFuture(null);
+        }).when(outbound).send(any(), anyLong(), any(SendMessage.class));
+    }
+}
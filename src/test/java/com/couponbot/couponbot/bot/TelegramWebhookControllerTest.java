@@ -0,0 +1,46 @@
+package com.couponbot.couponbot.bot;
+
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TelegramWebhookControllerTest {
+
+    private final CouponTelegramBot bot = mock(CouponTelegramBot.class);
+
+    @Test
+    void refusesToStartWithoutAUsableSecret() {
+        for (String secret : new String[]{"", "has space", "x".repeat(257), "ünïcode"}) {
+            assertThatThrownBy(() -> new TelegramWebhookController(bot, secret))
+                    .isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    void rejectsMissingOrWrongToken() {
+        TelegramWebhookController controller = new TelegramWebhookController(bot, "s3cret_-");
+
+        assertThat(controller.onUpdate(null, new Update()).getStatusCode().value()).isEqualTo(401);
+        assertThat(controller.onUpdate("", new Update()).getStatusCode().value()).isEqualTo(401);
+        assertThat(controller.onUpdate("s3cret", new Update()).getStatusCode().value()).isEqualTo(401);
+        verify(bot, never()).offerUpdate(any());
+    }
+
+    @Test
+    void acksAcceptedUpdatesAndSheds503WhenTheStripeIsFull() {
+        TelegramWebhookController controller = new TelegramWebhookController(bot, "s3cret_-");
+
+        when(bot.offerUpdate(any())).thenReturn(true);
+        assertThat(controller.onUpdate("s3cret_-", new Update()).getStatusCode().value()).isEqualTo(200);
+
+        when(bot.offerUpdate(any())).thenReturn(false);
+        assertThat(controller.onUpdate("s3cret_-", new Update()).getStatusCode().value()).isEqualTo(503);
+    }
+}
@@ -0,0 +1,90 @@
+package com.couponbot.couponbot.bot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpdateDispatcherTest {
+
+    private final UpdateDispatcher dispatcher = new UpdateDispatcher(1, 2, Duration.ofSeconds(1));
+
+    @AfterEach
+    void stop() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void tryDispatchRejectsInsteadOfBlockingWhenTheStripeIsFull() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        assertThat(dispatcher.tryDispatch(1, () -> {
+            running.countDown();
+            await(release);
+        })).isTrue();
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(dispatcher.tryDispatch(1, () -> {})).isTrue();
+        assertThat(dispatcher.tryDispatch(1, () -> {})).isTrue();
+        assertThat(dispatcher.tryDispatch(1, () -> {})).isFalse();
+        assertThat(dispatcher.getRejectedDispatches()).isEqualTo(1);
+        release.countDown();
+    }
+
+    @Test
+    void headroomIsTheFreeSpaceOnTheFullestStripe() throws Exception {
+        UpdateDispatcher two = new UpdateDispatcher(2, 3, Duration.ofSeconds(1));
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            assertThat(two.getHeadroom()).isEqualTo(3);
+            CountDownLatch running = new CountDownLatch(1);
+            two.tryDispatch(0, () -> {
+                running.countDown();
+                await(release);
+            });
+            assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+            two.tryDispatch(0, () -> {});
+            two.tryDispatch(0, () -> {});
+
+            assertThat(two.getHeadroom()).isEqualTo(1);
+            release.countDown();
+            two.shutdown();
+            assertThat(two.getHeadroom()).isZero();
+        } finally {
+            release.countDown();
+            two.shutdown();
+        }
+    }
+
+    @Test
+    void keepsOneUsersUpdatesInOrder() throws Exception {
+        List<Integer> seen = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            int n = i;
+            // the stripe only holds two, so wait for room the way UpdatePoller does
+            while (!dispatcher.tryDispatch(42, () -> {
+                seen.add(n);
+                done.countDown();
+            })) {
+                Thread.sleep(1);
+            }
+        }
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(seen).isSorted().hasSize(100);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.couponbot.couponbot.bot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.updates.GetUpdates;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class UpdatePollerTest {
+
+    private static final int CAPACITY = 4;
+    private static final int TOTAL = 200;
+    private static final int USERS = 3;
+
+    private final CouponTelegramBot bot = mock(CouponTelegramBot.class);
+    private final UpdateDispatcher dispatcher = new UpdateDispatcher(2, CAPACITY, Duration.ofSeconds(1));
+    private final UpdatePoller poller = new UpdatePoller(bot, dispatcher, Duration.ZERO, 100,
+            Duration.ofMillis(2), Duration.ofMillis(50));
+
+    private final List<Integer> limits = new CopyOnWriteArrayList<>();
+    private final List<Integer> offsets = new CopyOnWriteArrayList<>();
+    private final Map<Long, List<Integer>> handled = new ConcurrentHashMap<>();
+    private final CountDownLatch done = new CountDownLatch(TOTAL);
+    private int nextId = 1;
+
+    @AfterEach
+    void stop() {
+        poller.shutdown();
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void neverFetchesMoreThanTheStripesCanTakeSoNothingIsDropped() throws Exception {
+        stubTelegram();
+        stubSlowHandlers();
+
+        poller.start();
+
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(dispatcher.getRejectedDispatches()).isZero();
+        assertThat(limits).allMatch(l -> l >= 1 && l <= CAPACITY);
+        assertThat(poller.getHeldPolls()).isPositive();
+        // each poll confirms everything before it
+        assertThat(offsets.get(0)).isZero();
+        for (int i = 1; i < offsets.size(); i++) assertThat(offsets.get(i)).isGreaterThanOrEqualTo(offsets.get(i - 1));
+        handled.values().forEach(ids -> assertThat(ids).isSorted());
+        assertThat(handled.values().stream().mapToInt(List::size).sum()).isEqualTo(TOTAL);
+    }
+
+    // Telegram with a deep backlog: every poll gets as many updates as it asks for
+    private void stubTelegram() throws Exception {
+        doAnswer(inv -> {
+            GetUpdates request = inv.getArgument(0);
+            synchronized (this) {
+                limits.add(request.getLimit());
+                offsets.add(request.getOffset());
+                List<Update> out = new ArrayList<>();
+                while (out.size() < request.getLimit() && nextId <= TOTAL) {
+                    Update u = new Update();
+                    u.setUpdateId(nextId++);
+                    out.add(u);
+                }
+                if (out.isEmpty()) Thread.sleep(10);  // the long poll timing out
+                return out;
+            }
+        }).when(bot).execute(any(GetUpdates.class));
+    }
+
+    // handlers slower than polling, so the stripes fill up
+    private void stubSlowHandlers() {
+        doAnswer(inv -> {
+            Update u = inv.getArgument(0);
+            long user = u.getUpdateId() % USERS;
+            return dispatcher.tryDispatch(user, () -> {
+                sleep(2);
+                handled.computeIfAbsent(user, k -> new CopyOnWriteArrayList<>()).add(u.getUpdateId());
+                done.countDown();
+            });
+        }).when(bot).offerUpdate(any(Update.class));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
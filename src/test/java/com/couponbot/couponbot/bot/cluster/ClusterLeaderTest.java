@@ -0,0 +1,98 @@
+package com.couponbot.couponbot.bot.cluster;
+
+import com.couponbot.couponbot.PostgresIntegrationTest;
+import com.couponbot.couponbot.bot.CouponTelegramBot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.telegram.telegrambots.meta.api.methods.updates.GetUpdates;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class ClusterLeaderTest extends PostgresIntegrationTest {
+
+    @Autowired
+    DataSourceProperties database;
+    @Autowired
+    JdbcTemplate jdbc;
+    @Autowired
+    TransactionTemplate tx;
+    @Autowired
+    ObjectMapper mapper;
+
+    // its own lock, so a leader left over from another test run can't hold it
+    private final long lockKey = System.nanoTime();
+    private final CountDownLatch failFirst = new CountDownLatch(1);
+    private ClusterLeader first;
+    private ClusterLeader second;
+
+    @AfterEach
+    void stop() {
+        failFirst.countDown();
+        if (first != null) first.shutdown();
+        if (second != null) second.shutdown();
+    }
+
+    @Test
+    void aLeaderThatFailsReleasesTheLockForTheNext() throws Exception {
+        UpdateQueue queue = new UpdateQueue(jdbc, tx, mapper);
+        CouponTelegramBot failing = mock(CouponTelegramBot.class);
+        doAnswer(inv -> {
+            failFirst.await();
+            throw new IllegalStateException("Telegram went away");
+        }).when(failing).execute(any(GetUpdates.class));
+        CouponTelegramBot healthy = mock(CouponTelegramBot.class);
+        doAnswer(inv -> {
+            Thread.sleep(10);  // the long poll coming back empty
+            return List.of();
+        }).when(healthy).execute(any(GetUpdates.class));
+
+        // the first one won't try again for an hour, so only the second can take over
+        first = new ClusterLeader(database, queue, failing, lockKey, Duration.ofHours(1), Duration.ofSeconds(1));
+        second = new ClusterLeader(database, queue, healthy, lockKey, Duration.ofMillis(20), Duration.ofSeconds(1));
+
+        first.start();
+        await(first::isLeader);
+        second.start();
+        Thread.sleep(200);
+        assertThat(second.isLeader()).isFalse();
+        assertThat(lockSessions()).isEqualTo(1);
+
+        failFirst.countDown();
+        await(second::isLeader);
+        assertThat(first.isLeader()).isFalse();
+        assertThat(lockSessions()).isEqualTo(1);
+
+        second.shutdown();
+        await(() -> lockSessions() == 0);
+    }
+
+    private int lockSessions() {
+        Integer n = jdbc.queryForObject("""
+                SELECT count(*) FROM pg_locks
+                 WHERE locktype = 'advisory' AND granted
+                   AND ((classid::bigint << 32) | objid::bigint) = ?
+                """, Integer.class, lockKey);
+        return n == null ? 0 : n;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("timed out").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.couponbot.couponbot.bot.cluster;
+
+import com.couponbot.couponbot.PostgresIntegrationTest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpdateQueueTest extends PostgresIntegrationTest {
+
+    private static final Duration LONG_LEASE = Duration.ofMinutes(1);
+
+    @Autowired
+    JdbcTemplate jdbc;
+    @Autowired
+    TransactionTemplate tx;
+    @Autowired
+    ObjectMapper mapper;
+
+    // update ids are ints on the Telegram side; unique per run, like unique() for names
+    private final int base = 1_000_000_000 + (int) (System.nanoTime() % 1_000_000_000);
+    private final long alice = base;
+    private final long bob = base + 1L;
+    private UpdateQueue queue;
+
+    @AfterEach
+    void cleanUp() {
+        jdbc.update("DELETE FROM update_queue WHERE update_id BETWEEN ? AND ?", base, base + 100L);
+    }
+
+    @Test
+    void onlyEachUsersOldestRowIsLeasableAndOnlyByOneWorker() {
+        queue = new UpdateQueue(jdbc, tx, mapper);
+        queue.enqueue(List.of(update(1, alice), update(2, bob), update(3, alice), update(4, alice)));
+        // re-enqueueing after a leader change is ignored
+        queue.enqueue(List.of(update(3, alice)));
+        assertThat(queue.lastUpdateId()).isGreaterThanOrEqualTo(base + 4L);
+
+        assertThat(updateIds(lease("w1", LONG_LEASE))).containsExactly(base + 1, base + 2);
+        assertThat(lease("w2", LONG_LEASE)).isEmpty();
+
+        long first = rowId(base + 1);
+        queue.complete(first, "w2");  // not its lease
+        assertThat(lease("w2", LONG_LEASE)).isEmpty();
+
+        queue.complete(first, "w1");
+        List<UpdateQueue.Leased> next = lease("w2", LONG_LEASE);
+        assertThat(updateIds(next)).containsExactly(base + 3);
+        assertThat(queue.decode(next.get(0)).getMessage().getFrom().getId()).isEqualTo(alice);
+    }
+
+    @Test
+    void anExpiredLeaseIsTakenOverAndAReleaseIsNotAnAttempt() throws Exception {
+        queue = new UpdateQueue(jdbc, tx, mapper);
+        queue.enqueue(List.of(update(1, alice), update(2, alice)));
+
+        assertThat(lease("dead", Duration.ofMillis(50))).extracting(UpdateQueue.Leased::attempts).containsExactly(1);
+        Thread.sleep(150);
+
+        List<UpdateQueue.Leased> taken = lease("w1", LONG_LEASE);
+        assertThat(updateIds(taken)).containsExactly(base + 1);
+        assertThat(taken.get(0).attempts()).isEqualTo(2);
+        // the dead worker coming back can't complete a row it no longer holds
+        queue.complete(taken.get(0).id(), "dead");
+        assertThat(lease("w2", LONG_LEASE)).isEmpty();
+
+        queue.release(taken.get(0).id(), "w1");
+        List<UpdateQueue.Leased> again = lease("w2", LONG_LEASE);
+        assertThat(updateIds(again)).containsExactly(base + 1);
+        assertThat(again.get(0).attempts()).isEqualTo(2);
+    }
+
+    // only this test's rows; the table is shared with whatever else ran against the database
+    private List<UpdateQueue.Leased> lease(String owner, Duration leaseTime) {
+        return queue.lease(owner, 1_000, leaseTime).stream()
+                .filter(l -> l.userKey() == alice || l.userKey() == bob)
+                .toList();
+    }
+
+    private long rowId(int updateId) {
+        return jdbc.queryForObject("SELECT id FROM update_queue WHERE update_id = ?", Long.class, updateId);
+    }
+
+    private List<Integer> updateIds(List<UpdateQueue.Leased> rows) {
+        return rows.stream().map(l -> queue.decode(l).getUpdateId()).toList();
+    }
+
+    private Update update(int offset, long userId) {
+        Message message = new Message();
+        message.setFrom(new User(userId, "user", false));
+        Update u = new Update();
+        u.setUpdateId(base + offset);
+        u.setMessage(message);
+        return u;
+    }
+}
@@ -0,0 +1,111 @@
+package com.couponbot.couponbot.bot.state;
+
+import com.couponbot.couponbot.bot.state.SubmissionState.Step;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryConversationStateStoreTest {
+
+    private static final SubmissionState CODE = new SubmissionState("Canva", null, Step.ENTER_CODE);
+    private static final SubmissionState DETAILS = new SubmissionState("Canva", "ABC123", Step.ENTER_DETAILS);
+
+    @Test
+    void putGetRemove() {
+        InMemoryConversationStateStore store = store(Duration.ofMinutes(30), 100, 4);
+
+        store.put(7, CODE);
+        store.put(-7, DETAILS);
+        assertThat(store.get(7)).contains(CODE);
+        assertThat(store.get(-7)).contains(DETAILS);
+        assertThat(store.get(8)).isEmpty();
+
+        store.put(7, DETAILS);
+        assertThat(store.get(7)).contains(DETAILS);
+        assertThat(store.size()).isEqualTo(2);
+
+        store.remove(7);
+        store.remove(8);
+        assertThat(store.get(7)).isEmpty();
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void idleEntriesExpireOnReadAndInTheSweep() throws InterruptedException {
+        InMemoryConversationStateStore store = store(Duration.ofMillis(100), 100, 1);
+        store.put(1, CODE);
+        store.put(2, CODE);
+
+        Thread.sleep(300);
+
+        assertThat(store.get(1)).isEmpty();
+        store.sweep();
+        assertThat(store.size()).isZero();
+        assertThat(store.expirations()).isEqualTo(2);
+        assertThat(store.evictions()).isZero();
+    }
+
+    @Test
+    void theTtlCountsFromTheLastRead() throws InterruptedException {
+        InMemoryConversationStateStore store = store(Duration.ofMillis(1_000), 100, 1);
+        store.put(1, CODE);
+
+        Thread.sleep(600);
+        assertThat(store.get(1)).contains(CODE);
+        Thread.sleep(600);
+        store.sweep();
+
+        // 1.2 s since the put, but only 0.6 s since the last read
+        assertThat(store.get(1)).contains(CODE);
+        assertThat(store.expirations()).isZero();
+    }
+
+    @Test
+    void aFullStripeEvictsInsteadOfGrowing() {
+        InMemoryConversationStateStore store = store(Duration.ofMinutes(30), 4, 1);
+        for (long user = 1; user <= 10; user++) store.put(user, CODE);
+
+        assertThat(store.size()).isEqualTo(4);
+        assertThat(store.evictions()).isEqualTo(6);
+        assertThat(store.get(10)).contains(CODE);   // the entry being added is never the victim
+    }
+
+    @Test
+    void agreesWithAHashMapUnderRandomOperations() {
+        InMemoryConversationStateStore store = store(Duration.ofMinutes(30), 1_000_000, 4);
+        Map<Long, SubmissionState> expected = new HashMap<>();
+        Random random = new Random(12);
+
+        for (int i = 0; i < 200_000; i++) {
+            // a small key range, so inserts, overwrites, deletes and probe-chain shifts all mix
+            long user = random.nextInt(2_000) - 1_000;
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    SubmissionState state = random.nextBoolean() ? CODE : DETAILS;
+                    store.put(user, state);
+                    expected.put(user, state);
+                }
+                case 1 -> {
+                    store.remove(user);
+                    expected.remove(user);
+                }
+                default -> assertThat(store.get(user)).as("op %d, user %d", i, user)
+                        .isEqualTo(Optional.ofNullable(expected.get(user)));
+            }
+        }
+        assertThat(store.size()).isEqualTo(expected.size());
+        for (long user = -1_000; user < 1_000; user++) {
+            assertThat(store.get(user)).isEqualTo(Optional.ofNullable(expected.get(user)));
+        }
+    }
+
+    private static InMemoryConversationStateStore store(Duration ttl, int maxSize, int stripes) {
+        return new InMemoryConversationStateStore(ttl, maxSize, stripes);
+    }
+}
@@ -0,0 +1,55 @@
+package com.couponbot.couponbot.bot.state;
+
+import com.couponbot.couponbot.PostgresIntegrationTest;
+import com.couponbot.couponbot.bot.state.SubmissionState.Step;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JdbcConversationStateStoreTest extends PostgresIntegrationTest {
+
+    private static final SubmissionState CODE = new SubmissionState("Canva", null, Step.ENTER_CODE);
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    private final long user = 9_000_000_000L + System.nanoTime() % 1_000_000_000L;
+
+    @Test
+    void aReadRefreshesTheTtlLikeTheInMemoryStore() {
+        JdbcConversationStateStore store = new JdbcConversationStateStore(jdbc, Duration.ofMinutes(30), 100_000);
+        store.put(user, CODE);
+        age(Duration.ofMinutes(20));
+
+        assertThat(store.get(user)).contains(CODE);
+        age(Duration.ofMinutes(20));
+
+        // 40 minutes since the put, 20 since the read
+        assertThat(store.get(user)).contains(CODE);
+        store.remove(user);
+    }
+
+    @Test
+    void anIdleEntryExpires() {
+        JdbcConversationStateStore store = new JdbcConversationStateStore(jdbc, Duration.ofMinutes(30), 100_000);
+        store.put(user, CODE);
+        age(Duration.ofMinutes(31));
+
+        assertThat(store.get(user)).isEmpty();
+        store.sweep();
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM conversation_state WHERE user_id = ?", Long.class, user))
+                .isZero();
+    }
+
+    // pretend the last access was this long ago
+    private void age(Duration by) {
+        jdbc.update("UPDATE conversation_state SET updated_at = updated_at - ? * interval '1 second' WHERE user_id = ?",
+                by.toSeconds(), user);
+    }
+}
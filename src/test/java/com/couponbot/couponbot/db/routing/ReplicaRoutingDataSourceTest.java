@@ -0,0 +1,87 @@
+package com.couponbot.couponbot.db.routing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final DataSource primaryPool = mock(DataSource.class);
+    private final DataSource replicaPool = mock(DataSource.class);
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replicaConnection = mock(Connection.class);
+
+    private ReplicaRoutingDataSource routing;
+    // what the application sees, built the way DataSourceConfig builds it
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(primaryPool.getConnection()).thenReturn(primaryConnection);
+        when(replicaPool.getConnection()).thenReturn(replicaConnection);
+        routing = new ReplicaRoutingDataSource(primaryPool, replicaPool);
+        dataSource = new DataSourceConfig.ReplicaRouting().dataSource(routing);
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplicaAndEverythingElseToThePrimary() {
+        assertThat(inTransaction(dataSource, true, () -> firstStatementOn(dataSource))).isSameAs(replicaConnection);
+        assertThat(inTransaction(dataSource, false, () -> firstStatementOn(dataSource))).isSameAs(primaryConnection);
+        assertThat(firstStatementOn(dataSource)).isSameAs(primaryConnection);
+
+        assertThat(routing.getReplicaConnections()).isEqualTo(1);
+        assertThat(routing.getPrimaryConnections()).isEqualTo(2);
+        assertThat(routing.getPinnedConnections()).isZero();
+    }
+
+    // The transaction manager takes its connection before it marks the transaction read-only
+    @Test
+    void withoutTheLazyProxyEveryTransactionWouldStayOnThePrimary() {
+        assertThat(inTransaction(routing, true, () -> firstStatementOn(routing))).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void pinnedReadsStayOnThePrimaryUntilTheOutermostPinEnds() {
+        Connection pinned = ReadRouting.primary(() -> {
+            // a nested pin ending must not unpin the outer one
+            ReadRouting.primary(() -> {});
+            return inTransaction(dataSource, true, () -> firstStatementOn(dataSource));
+        });
+        assertThat(pinned).isSameAs(primaryConnection);
+        assertThat(routing.getPinnedConnections()).isEqualTo(1);
+
+        assertThat(ReadRouting.isPinned()).isFalse();
+        assertThat(inTransaction(dataSource, true, () -> firstStatementOn(dataSource))).isSameAs(replicaConnection);
+    }
+
+    private static <T> T inTransaction(DataSource ds, boolean readOnly, Supplier<T> work) {
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(ds));
+        tx.setReadOnly(readOnly);
+        return tx.execute(status -> work.get());
+    }
+
+    // The pool connection the first statement runs on; the lazy proxy only fetches one then
+    private static Connection firstStatementOn(DataSource ds) {
+        Connection con = DataSourceUtils.getConnection(ds);
+        try {
+            con.createStatement();
+            return con instanceof ConnectionProxy proxy ? proxy.getTargetConnection() : con;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(con, ds);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.couponbot.couponbot.db.repo;
+
+import com.couponbot.couponbot.Latencies;
+import com.couponbot.couponbot.PostgresIntegrationTest;
+import com.couponbot.couponbot.db.entity.Coupon;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Every CouponRepo query against ~1M seeded coupons: each one's own SQL (recorded off the
+ * connection) is replayed under EXPLAIN to check it uses the index its migration was written
+ * for, then the call is warmed up and timed against a p99 budget.
+ * <pre>
+ * mvn -Pperf test -Dtest=CouponRepoQueryPlanBenchmark -Dtest.postgres.url=jdbc:postgresql://localhost:5432/couponbot_perf
+ * </pre>
+ * The seed (-Dbench.coupons, default 1,000,000) is 10% AVAILABLE, 75% CLAIMED over the last
+ * 30 days, 10% EXPIRED and 5% REMOVED, over 40 platforms and 50,000 submitters. A null index
+ * marks the startup bulk loads (inventory index, duplicate guard): they read a large share of
+ * the table and the planner may take any path, so only their budget applies.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CouponRepoQueryPlanBenchmark extends PostgresIntegrationTest {
+
+    private static final int COUPONS = Integer.getInteger("bench.coupons", 1_000_000);
+    private static final int PLATFORMS = 40;
+    private static final int SUBMITTERS = 50_000;
+    private static final int WARMUP = 100;
+    private static final int RUNS = 50;
+    // the startup loads take seconds each, so their runs are capped by time as well
+    private static final long MAX_NANOS_PER_PHASE = TimeUnit.SECONDS.toNanos(5);
+    // budgets are sized to tell an index path from a scan of the table, not to catch small
+    // regressions; scale them on slow machines
+    private static final double BUDGET_SCALE = Double.parseDouble(System.getProperty("bench.budgetScale", "1"));
+    private static final StatementRecorder RECORDER = new StatementRecorder();
+
+    @TestConfiguration
+    static class Recording {
+        @Bean
+        static BeanPostProcessor recordPrimaryStatements() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String name) {
+                    return "primaryDataSource".equals(name) ? RECORDER.wrap((DataSource) bean) : bean;
+                }
+            };
+        }
+    }
+
+    record Case(String name, String index, double budgetMillis, IntConsumer call) {
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private CouponRepo repo;
+    @Autowired
+    private DataSource dataSource;
+
+    private final String run = unique("QP");
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<String> report = new ArrayList<>();
+    private long userBase;
+    private String platform;
+    private List<Long> availableIds;
+    private CouponSummary deepCursor;
+    private SubmissionRow submissionCursor;
+    private long busySubmitter;
+
+    @BeforeAll
+    void seed() {
+        long started = System.nanoTime();
+        userBase = 8_000_000_000L + System.nanoTime() % 1_000_000 * 1_000_000;
+        // g % 20: 0-1 AVAILABLE, 2-16 CLAIMED, 17-18 EXPIRED, 19 REMOVED
+        jdbc.update("""
+                INSERT INTO coupons (id, code, platform, details, submitted_by, submitted_at, status,
+                                     claimed_by, claimed_at, expires_at)
+                SELECT nextval('coupons_seq'), 'C' || g, ? || '-' || (g / 7 % ?), 'Benchmark coupon ' || g,
+                       ? + g / 3 % ?, now() - (g::bigint * 7919 % 2592000) * interval '1 second',
+                       CASE WHEN g % 20 < 2 THEN 'AVAILABLE' WHEN g % 20 < 17 THEN 'CLAIMED'
+                            WHEN g % 20 < 19 THEN 'EXPIRED' ELSE 'REMOVED' END,
+                       CASE WHEN g % 20 BETWEEN 2 AND 16 THEN ? + g % 100000 END,
+                       CASE WHEN g % 20 BETWEEN 2 AND 16 THEN now() - (g::bigint * 104729 % 2592000) * interval '1 second' END,
+                       CASE WHEN g % 3 = 0 THEN now() + (g % 90) * interval '1 day' END
+                  FROM generate_series(1, ?) g
+                """, run, PLATFORMS, userBase, SUBMITTERS, userBase + 1_000_000, COUPONS);
+        jdbc.execute("VACUUM ANALYZE coupons");
+        report.add(String.format("seeded %,d coupons in %d s", COUPONS,
+                Duration.ofNanos(System.nanoTime() - started).toSeconds()));
+
+        platform = run + "-0";
+        availableIds = jdbc.queryForList("SELECT id FROM coupons WHERE platform = ? AND status = 'AVAILABLE' "
+                + "ORDER BY id LIMIT ?", Long.class, platform, 2 * (1 + WARMUP + RUNS));
+        List<CouponSummary> deep = repo.findAvailableFirstPage(platform, PageRequest.of(0, 2_000));
+        deepCursor = deep.get(deep.size() - 1);
+        busySubmitter = userBase + 1;
+        List<SubmissionRow> rows = repo.findSubmissionsFirstPage(busySubmitter, PageRequest.of(0, 10));
+        submissionCursor = rows.get(rows.size() - 1);
+    }
+
+    @AfterAll
+    void cleanUp() {
+        jdbc.update("DELETE FROM coupons WHERE platform LIKE ?", run + "-%");
+        report.forEach(System.out::println);
+    }
+
+    Stream<Case> queries() {
+        Instant now = Instant.now();
+        PageRequest page = PageRequest.of(0, 10);
+        return Stream.of(
+                new Case("findByStatusOrderBySubmittedAtDesc", "ix_coupons_status_submitted", 50,
+                        i -> repo.findByStatusOrderBySubmittedAtDesc(Coupon.Status.AVAILABLE, page)),
+                new Case("findByStatusAndPlatformIgnoreCaseOrderBySubmittedAtDesc", "ix_coupons_status_submitted", 50,
+                        i -> repo.findByStatusAndPlatformIgnoreCaseOrderBySubmittedAtDesc(Coupon.Status.AVAILABLE, platform, page)),
+                new Case("findByIdAndStatus", "coupons_pkey", 50,
+                        i -> repo.findByIdAndStatus(availableIds.get(i), Coupon.Status.AVAILABLE)),
+                new Case("findByIdAndStatusAndClaimedByIsNull", "coupons_pkey", 50,
+                        i -> repo.findByIdAndStatusAndClaimedByIsNull(availableIds.get(i), Coupon.Status.AVAILABLE)),
+                new Case("findByStatusAndClaimedByIsNullOrderBySubmittedAtDesc", "ix_coupons_status_submitted", 50,
+                        i -> repo.findByStatusAndClaimedByIsNullOrderBySubmittedAtDesc(Coupon.Status.AVAILABLE, page)),
+                new Case("findByStatusAndClaimedByIsNullAndPlatformIgnoreCaseOrderBySubmittedAtDesc", "ix_coupons_available_platform_keyset", 50,
+                        i -> repo.findByStatusAndClaimedByIsNullAndPlatformIgnoreCaseOrderBySubmittedAtDesc(Coupon.Status.AVAILABLE, platform, page)),
+                new Case("countByClaimedByAndClaimedAtAfter", "ix_coupons_claimed_by_at", 50,
+                        i -> repo.countByClaimedByAndClaimedAtAfter(userBase + 1_000_000 + i, now.minus(1, ChronoUnit.DAYS))),
+                new Case("findDistinctPlatformsWithAvailableCoupons", "ix_coupons_available_platform", 150,
+                        i -> repo.findDistinctPlatformsWithAvailableCoupons()),
+                new Case("findAvailableSummaries", null, 2_000,
+                        i -> repo.findAvailableSummaries()),
+                new Case("findAvailableFirstPage", "ix_coupons_available_platform_keyset", 50,
+                        i -> repo.findAvailableFirstPage(platform, page)),
+                new Case("findAvailablePageAfter (page 200)", "ix_coupons_available_platform_keyset", 50,
+                        i -> repo.findAvailablePageAfter(platform, deepCursor.submittedAt(), deepCursor.id(), page)),
+                new Case("findAvailablePageBefore (page 200)", "ix_coupons_available_platform_keyset", 50,
+                        i -> repo.findAvailablePageBefore(platform, deepCursor.submittedAt(), deepCursor.id(), page)),
+                new Case("findPlatformById", "coupons_pkey", 50,
+                        i -> repo.findPlatformById(availableIds.get(i))),
+                new Case("existsActiveByPlatformAndCode", "ux_coupons_platform_code", 50,
+                        i -> repo.existsActiveByPlatformAndCode(platform, "C" + i)),
+                new Case("findActiveKeys", null, 8_000,
+                        i -> repo.findActiveKeys()),
+                new Case("findClaimsSince (24h)", "ix_coupons_claimed_at", 500,
+                        i -> repo.findClaimsSince(now.minus(1, ChronoUnit.DAYS))),
+                new Case("findSubmissionsFirstPage", "ix_coupons_submitted_by_keyset", 50,
+                        i -> repo.findSubmissionsFirstPage(busySubmitter, page)),
+                new Case("findSubmissionsPageAfter", "ix_coupons_submitted_by_keyset", 50,
+                        i -> repo.findSubmissionsPageAfter(busySubmitter, submissionCursor.submittedAt(), submissionCursor.id(), page)),
+                new Case("claimIfAvailable", "coupons_pkey", 50,
+                        i -> repo.claimIfAvailable(availableIds.get(1 + WARMUP + RUNS + i), userBase + 2_000_000 + i, now)),
+                new Case("claimOldestByPlatform", "ix_coupons_available_platform_keyset", 50,
+                        i -> repo.claimOldestByPlatform(platform, userBase + 2_000_000 + i, now)),
+                new Case("claimNewestByPlatform", "ix_coupons_available_platform_keyset", 50,
+                        i -> repo.claimNewestByPlatform(platform, userBase + 2_000_000 + i, now)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("queries")
+    void usesItsIndexWithinBudget(Case c) throws Exception {
+        RECORDER.drain();
+        c.call().accept(0);
+        List<StatementRecorder.Recorded> statements = RECORDER.drain();
+        assertThat(statements).as("statements run by %s", c.name()).hasSize(1);
+        JsonNode plan = explain(statements.get(0));
+        List<String> indexes = new ArrayList<>();
+        List<String> seqScans = new ArrayList<>();
+        walk(plan, indexes, seqScans);
+
+        int i = 1;
+        for (long end = System.nanoTime() + MAX_NANOS_PER_PHASE; i <= WARMUP && System.nanoTime() < end; i++) {
+            c.call().accept(i);
+        }
+        Latencies latencies = new Latencies(RUNS);
+        for (long end = System.nanoTime() + MAX_NANOS_PER_PHASE; latencies.count() < RUNS && System.nanoTime() < end; i++) {
+            long t = System.nanoTime();
+            c.call().accept(i);
+            latencies.add(System.nanoTime() - t);
+        }
+        report.add(String.format("%-75s %-40s %s", c.name(), indexes.isEmpty() ? seqScans : indexes, latencies.summary()));
+
+        if (c.index() != null) {
+            assertThat(indexes).as("indexes in the plan of %s", c.name()).contains(c.index());
+            assertThat(seqScans).as("sequential scans in the plan of %s", c.name()).isEmpty();
+        }
+        assertThat(latencies.percentileMillis(0.99)).as("p99 ms of %s", c.name()).isLessThan(c.budgetMillis() * BUDGET_SCALE);
+    }
+
+    private JsonNode explain(StatementRecorder.Recorded statement) throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement("EXPLAIN (FORMAT JSON) " + statement.sql())) {
+            statement.bind(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return mapper.readTree(rs.getString(1)).get(0).get("Plan");
+            }
+        }
+    }
+
+    private static void walk(JsonNode node, List<String> indexes, List<String> seqScans) {
+        if (node.has("Index Name")) indexes.add(node.get("Index Name").asText());
+        if ("Seq Scan".equals(node.path("Node Type").asText())) seqScans.add("Seq Scan on " + node.path("Relation Name").asText());
+        for (JsonNode child : node.path("Plans")) walk(child, indexes, seqScans);
+    }
+}
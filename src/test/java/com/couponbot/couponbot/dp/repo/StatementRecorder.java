@@ -0,0 +1,95 @@
+package com.couponbot.couponbot.db.repo;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Wraps a DataSource so every executed PreparedStatement is recorded with its SQL and bind
+ * calls. The query-plan benchmark replays a repository's own statement under EXPLAIN, so it
+ * checks the SQL Hibernate really sends rather than a hand-written copy of it.
+ */
+final class StatementRecorder {
+
+    record Recorded(String sql, List<Bind> binds) {
+
+        void bind(PreparedStatement target) throws SQLException {
+            for (Bind b : binds) {
+                try {
+                    b.method().invoke(target, b.args());
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                } catch (InvocationTargetException e) {
+                    if (e.getCause() instanceof SQLException sql) throw sql;
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        }
+    }
+
+    record Bind(Method method, Object[] args) {}
+
+    private final List<Recorded> recorded = new ArrayList<>();
+
+    DataSource wrap(DataSource target) {
+        return proxy(DataSource.class, target, (method, args, result) ->
+                result instanceof Connection c ? proxy(Connection.class, c, this::onConnectionCall) : result);
+    }
+
+    // Everything executed since the last call, oldest first
+    synchronized List<Recorded> drain() {
+        List<Recorded> out = List.copyOf(recorded);
+        recorded.clear();
+        return out;
+    }
+
+    private synchronized void add(Recorded r) {
+        recorded.add(r);
+    }
+
+    private Object onConnectionCall(Method method, Object[] args, Object result) {
+        if (!(result instanceof PreparedStatement ps) || !method.getName().equals("prepareStatement")) return result;
+        String sql = (String) args[0];
+        // parameter index -> last set call for it; clearParameters/execute start over
+        Map<Integer, Bind> binds = new TreeMap<>();
+        return proxy(PreparedStatement.class, ps, (m, a, r) -> {
+            String name = m.getName();
+            if (name.startsWith("set") && a != null && a.length >= 2 && a[0] instanceof Integer index) {
+                binds.put(index, new Bind(m, a.clone()));
+            } else if (name.equals("clearParameters")) {
+                binds.clear();
+            } else if (name.startsWith("execute")) {
+                add(new Recorded(sql, List.copyOf(binds.values())));
+            }
+            return r;
+        });
+    }
+
+    @FunctionalInterface
+    private interface After {
+        Object apply(Method method, Object[] args, Object result) throws Throwable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, After after) {
+        InvocationHandler handler = (p, method, args) -> {
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            return after.apply(method, args, result);
+        };
+        return (T) Proxy.newProxyInstance(StatementRecorder.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+}
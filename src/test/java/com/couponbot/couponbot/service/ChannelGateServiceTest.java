@@ -0,0 +1,103 @@
+package com.couponbot.couponbot.service;
+
+import com.couponbot.couponbot.metrics.TelegramApiMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.groupadministration.GetChatMember;
+import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMemberMember;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class ChannelGateServiceTest {
+
+    private static final int USERS = 8;
+    private static final long LOOKUP_MILLIS = 200;
+
+    private final AbsSender sender = mock(AbsSender.class);
+    private final Set<String> lookupThreads = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final ChannelGateService gate = new ChannelGateService(new TelegramApiMetrics(new SimpleMeterRegistry()),
+            "@channel", 1000, Duration.ofMinutes(10), Duration.ofSeconds(15), USERS);
+
+    @AfterEach
+    void stop() {
+        gate.shutdown();
+    }
+
+    @Test
+    void lookupsForDifferentUsersRunInParallelOnTheirOwnThreads() throws Exception {
+        stubSlowMember();
+        gate.isJoined(sender, 1L);  // warm up Mockito and the pool outside the timing
+        calls.set(0);
+
+        long started = System.nanoTime();
+        List<Boolean> joined = lookUp(USERS, i -> 100L + i);
+        long tookMillis = Duration.ofNanos(System.nanoTime() - started).toMillis();
+
+        assertThat(joined).containsOnly(true).hasSize(USERS);
+        assertThat(calls.get()).isEqualTo(USERS);
+        assertThat(lookupThreads).allMatch(name -> name.startsWith("membership-lookup-"));
+        // serialized they would take USERS * LOOKUP_MILLIS
+        assertThat(tookMillis).isLessThan(USERS * LOOKUP_MILLIS / 2);
+    }
+
+    @Test
+    void concurrentLookupsForOneUserShareOneCall() throws Exception {
+        stubSlowMember();
+
+        List<Boolean> joined = lookUp(USERS, i -> 7L);
+
+        assertThat(joined).containsOnly(true).hasSize(USERS);
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(gate.isJoined(sender, 7L)).isTrue();
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    private void stubSlowMember() throws Exception {
+        doAnswer(inv -> {
+            calls.incrementAndGet();
+            lookupThreads.add(Thread.currentThread().getName());
+            Thread.sleep(LOOKUP_MILLIS);
+            return new ChatMemberMember();
+        }).when(sender).execute(any(GetChatMember.class));
+    }
+
+    // n stripe-like threads each ask once, all at the same moment
+    private List<Boolean> lookUp(int n, IntFunction<Long> user) throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(n);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < n; i++) {
+                long id = user.apply(i);
+                futures.add(callers.submit(() -> {
+                    go.await();
+                    return gate.isJoined(sender, id);
+                }));
+            }
+            go.countDown();
+            List<Boolean> out = new ArrayList<>();
+            for (Future<Boolean> f : futures) out.add(f.get());
+            return out;
+        } finally {
+            callers.shutdown();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.couponbot.couponbot.service;
+
+import com.couponbot.couponbot.Latencies;
+import com.couponbot.couponbot.PostgresIntegrationTest;
+import com.couponbot.couponbot.db.repo.CouponRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The claim-limit check two ways over the same seeded history: ClaimLimiter in memory
+ * (tryAcquire + release, as a rejected claim does) vs the COUNT query it replaced.
+ * <pre>
+ * mvn -Pperf test -Dtest=ClaimLimiterBenchmark -Dtest.postgres.url=jdbc:postgresql://localhost:5432/couponbot_perf
+ * </pre>
+ * Sizes: -Dbench.claims (default 1,000,000 claims over the last 7 days), -Dbench.users (200,000).
+ */
+class ClaimLimiterBenchmark extends PostgresIntegrationTest {
+
+    private static final int CLAIMS = Integer.getInteger("bench.claims", 1_000_000);
+    private static final int USERS = Integer.getInteger("bench.users", 200_000);
+    private static final int LOOKUPS = 20_000;
+    private static final Duration WINDOW = Duration.ofHours(24);
+
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private CouponRepo couponRepo;
+
+    private final String platform = unique("ClaimBench");
+    private final long userBase = 7_000_000_000L + System.nanoTime() % 1_000_000 * 1_000_000;
+
+    @AfterEach
+    void cleanUp() {
+        jdbc.update("DELETE FROM coupons WHERE platform = ?", platform);
+    }
+
+    @Test
+    void limiterAgainstCountQuery() {
+        long seedStarted = System.nanoTime();
+        jdbc.update("""
+                INSERT INTO coupons (id, code, platform, submitted_by, submitted_at, status, claimed_by, claimed_at)
+                SELECT nextval('coupons_seq'), 'C' || g, ?, 1, now() - interval '8 days', 'CLAIMED',
+                       ? + g % ?, now() - (g::bigint * 7919 % 604800) * interval '1 second'
+                  FROM generate_series(1, ?) g
+                """, platform, userBase, USERS, CLAIMS);
+        jdbc.execute("ANALYZE coupons");
+        System.out.printf("seeded %,d claims for %,d users in %d ms%n", CLAIMS, USERS,
+                Duration.ofNanos(System.nanoTime() - seedStarted).toMillis());
+
+        long loadStarted = System.nanoTime();
+        ClaimLimiter limiter = new ClaimLimiter(couponRepo, 2, WINDOW, 64, "polling");
+        limiter.seed();
+        System.out.printf("limiter seeded in %d ms: %,d users tracked, %,d KB%n",
+                Duration.ofNanos(System.nanoTime() - loadStarted).toMillis(),
+                limiter.getTrackedUsers(), limiter.getMemoryBytes() / 1024);
+
+        Random random = new Random(7);
+        Latencies query = new Latencies(LOOKUPS);
+        Latencies memory = new Latencies(LOOKUPS);
+        long queryHits = 0, memoryHits = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            long user = userBase + random.nextInt(USERS);
+            long now = System.currentTimeMillis();
+
+            long t = System.nanoTime();
+            if (couponRepo.countByClaimedByAndClaimedAtAfter(user, Instant.ofEpochMilli(now).minus(WINDOW)) >= 2) queryHits++;
+            query.add(System.nanoTime() - t);
+
+            t = System.nanoTime();
+            if (limiter.tryAcquire(user, now)) limiter.release(user, now);
+            else memoryHits++;
+            memory.add(System.nanoTime() - t);
+        }
+
+        System.out.printf("COUNT query : %s, %,d at limit%n", query.summary(), queryHits);
+        System.out.printf("ClaimLimiter: %s, %,d at limit%n", memory.summary(), memoryHits);
+        assertThat(memoryHits).isEqualTo(queryHits);
+        assertThat(memory.percentileMillis(0.99)).isLessThan(query.percentileMillis(0.50));
+    }
+}
@@ -0,0 +1,128 @@
+package com.couponbot.couponbot.service;
+
+import com.couponbot.couponbot.Latencies;
+import com.couponbot.couponbot.PostgresIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A drop burst: 1,000 users claim from one platform at the same instant. Once the way they
+ * did before "Claim next" (everyone taps one of the ten buttons on the list they were all
+ * shown), once with claimNext's SKIP LOCKED hand-out. Reports success rate and latency.
+ * <pre>
+ * mvn -Pperf test -Dtest=ClaimNextContentionBenchmark -Dtest.postgres.url=jdbc:postgresql://localhost:5432/couponbot_perf
+ * </pre>
+ * Sizes: -Dbench.claimers (default 1,000), -Dbench.coupons (2,000 on the platform, so there is
+ * enough for everyone). Latency includes the wait for a pooled connection, as it would in the bot.
+ */
+class ClaimNextContentionBenchmark extends PostgresIntegrationTest {
+
+    private static final int CLAIMERS = Integer.getInteger("bench.claimers", 1_000);
+    private static final int COUPONS = Integer.getInteger("bench.coupons", 2_000);
+    private static final int LIST_SIZE = 10;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private CouponService couponService;
+
+    private final String platform = unique("ContentionBench");
+    private final long userBase = 8_000_000_000L + System.nanoTime() % 1_000_000 * 10_000;
+
+    @AfterEach
+    void cleanUp() {
+        jdbc.update("DELETE FROM coupons WHERE platform = ?", platform);
+    }
+
+    @Test
+    void claimNextServesEveryClaimerWhereTheSharedListServesAFew() throws Exception {
+        seed();
+        // warm the JIT and the connection pool with a few claims outside the measurement
+        for (int i = 0; i < 50; i++) couponService.claimNext(platform, userBase - 1 - i);
+
+        List<Long> shown = jdbc.queryForList("""
+                SELECT id FROM coupons WHERE platform = ? AND status = 'AVAILABLE'
+                 ORDER BY submitted_at DESC, id DESC LIMIT ?
+                """, Long.class, platform, LIST_SIZE);
+        Burst list = burst(userBase, user -> couponService.claim(shown.get(ThreadLocalRandom.current().nextInt(shown.size())), user));
+        System.out.printf("shared list  : %s%n", list);
+
+        Burst next = burst(userBase + CLAIMERS, user -> couponService.claimNext(platform, user));
+        System.out.printf("claim next   : %s%n", next);
+
+        assertThat(list.claimed()).isLessThanOrEqualTo(LIST_SIZE);
+        assertThat(next.claimed()).isEqualTo(CLAIMERS);
+        assertThat(next.distinctCoupons()).isEqualTo(CLAIMERS);
+        Integer stored = jdbc.queryForObject("SELECT count(*) FROM coupons WHERE platform = ? AND claimed_by >= ?",
+                Integer.class, platform, userBase);
+        assertThat(stored).isEqualTo(list.claimed() + next.claimed());
+    }
+
+    private void seed() {
+        jdbc.update("""
+                INSERT INTO coupons (id, code, platform, details, submitted_by, submitted_at, status)
+                SELECT nextval('coupons_seq'), 'K' || g, ?, 'Drop coupon ' || g, 1,
+                       now() - g * interval '1 second', 'AVAILABLE'
+                  FROM generate_series(1, ?) g
+                """, platform, COUPONS);
+    }
+
+    record Burst(int claimed, int distinctCoupons, Latencies latencies, long wallMillis) {
+        @Override
+        public String toString() {
+            return String.format("%d/%d claimed (%.1f%%), %d ms wall, %s", claimed, CLAIMERS,
+                    100.0 * claimed / CLAIMERS, wallMillis, latencies.summary());
+        }
+    }
+
+    private Burst burst(long firstUser, LongFunction<ClaimResult> claim) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(CLAIMERS);
+        CountDownLatch ready = new CountDownLatch(CLAIMERS);
+        CountDownLatch go = new CountDownLatch(1);
+        Latencies latencies = new Latencies(CLAIMERS);
+        AtomicInteger claimed = new AtomicInteger();
+        Set<Long> coupons = ConcurrentHashMap.newKeySet();
+        List<Future<?>> done = new ArrayList<>(CLAIMERS);
+        long started;
+        try {
+            for (int i = 0; i < CLAIMERS; i++) {
+                long user = firstUser + i;
+                done.add(pool.submit(() -> {
+                    ready.countDown();
+                    go.await();
+                    long t = System.nanoTime();
+                    ClaimResult r = claim.apply(user);
+                    latencies.add(System.nanoTime() - t);
+                    if (r.isClaimed()) {
+                        claimed.incrementAndGet();
+                        coupons.add(r.coupon().getId());
+                    }
+                    return null;
+                }));
+            }
+            ready.await();
+            started = System.nanoTime();
+            go.countDown();
+            for (Future<?> f : done) f.get();
+        } finally {
+            pool.shutdown();
+        }
+        return new Burst(claimed.get(), coupons.size(), latencies, (System.nanoTime() - started) / 1_000_000);
+    }
+}
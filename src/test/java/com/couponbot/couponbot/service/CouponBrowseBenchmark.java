@@ -0,0 +1,159 @@
+package com.couponbot.couponbot.service;
+
+import com.couponbot.couponbot.Latencies;
+import com.couponbot.couponbot.PostgresIntegrationTest;
+import com.couponbot.couponbot.db.repo.CouponRepo;
+import com.couponbot.couponbot.db.repo.CouponSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Browse-page latency by depth over one platform with ~1M available coupons: the keyset
+ * query CouponRepo serves pages with before the inventory index loads, the same page by
+ * OFFSET for comparison, and the index's own seek. Keyset pages should cost the same at
+ * page 100,000 as at page 1; OFFSET pages grow with depth.
+ * <pre>
+ * mvn -Pperf test -Dtest=CouponBrowseBenchmark -Dtest.postgres.url=jdbc:postgresql://localhost:5432/couponbot_perf
+ * </pre>
+ * Size: -Dbench.coupons (default 1,000,000). Three coupons share each submitted_at, so the
+ * id tie-break is exercised too.
+ */
+class CouponBrowseBenchmark extends PostgresIntegrationTest {
+
+    private static final int COUPONS = Integer.getInteger("bench.coupons", 1_000_000);
+    private static final int PAGE = 10;
+    private static final int[] PAGES = {1, 10, 100, 1_000, 10_000, 50_000, COUPONS / PAGE - 1};
+    private static final int WARMUP = 300;
+    private static final int RUNS = 100;
+    private static final int OFFSET_RUNS = 5;
+
+    private static final String OFFSET_PAGE = """
+            SELECT id, platform, details, submitted_at FROM coupons
+             WHERE status = 'AVAILABLE' AND claimed_by IS NULL AND upper(platform) = upper(?)
+             ORDER BY submitted_at DESC, id DESC OFFSET ? LIMIT ?
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private CouponRepo couponRepo;
+
+    private final String platform = unique("BrowseBench");
+
+    @AfterEach
+    void cleanUp() {
+        jdbc.update("DELETE FROM coupons WHERE platform = ?", platform);
+    }
+
+    @Test
+    void keysetPagesCostTheSameAtAnyDepth() {
+        long seedStarted = System.nanoTime();
+        jdbc.update("""
+                INSERT INTO coupons (id, code, platform, details, submitted_by, submitted_at, status)
+                SELECT nextval('coupons_seq'), 'B' || g, ?, 'Browse coupon ' || g, g % 1000,
+                       date_trunc('second', now()) - (g / 3) * interval '1 millisecond', 'AVAILABLE'
+                  FROM generate_series(1, ?) g
+                """, platform, COUPONS);
+        jdbc.execute("ANALYZE coupons");
+        System.out.printf("seeded %,d coupons in %d ms%n", COUPONS, Duration.ofNanos(System.nanoTime() - seedStarted).toMillis());
+
+        // the cursor a user holding each page would send: the last coupon on it
+        Instant[] at = new Instant[PAGES.length];
+        long[] id = new long[PAGES.length];
+        for (int p = 0; p < PAGES.length; p++) {
+            Map<String, Object> last = jdbc.queryForMap(OFFSET_PAGE, platform, PAGES[p] * PAGE - 1, 1);
+            at[p] = ((Timestamp) last.get("submitted_at")).toInstant();
+            id[p] = ((Number) last.get("id")).longValue();
+
+            List<CouponSummary> rows = couponRepo.findAvailablePageAfter(platform, at[p], id[p], PageRequest.of(0, PAGE + 1));
+            List<Long> byOffset = jdbc.queryForList("SELECT id FROM (" + OFFSET_PAGE + ") p", Long.class, platform, PAGES[p] * PAGE, PAGE + 1);
+            assertThat(rows).extracting(CouponSummary::id).as("page %d", PAGES[p] + 1).isEqualTo(byOffset);
+        }
+        // warm every depth first, so the first one measured doesn't pay for the JIT
+        for (int p = 0; p < PAGES.length; p++) {
+            for (int i = 0; i < WARMUP; i++) couponRepo.findAvailablePageAfter(platform, at[p], id[p], PageRequest.of(0, PAGE + 1));
+        }
+
+        double first = 0, deepest = 0;
+        for (int p = 0; p < PAGES.length; p++) {
+            Latencies seek = new Latencies(RUNS);
+            for (int i = 0; i < RUNS; i++) {
+                long t = System.nanoTime();
+                couponRepo.findAvailablePageAfter(platform, at[p], id[p], PageRequest.of(0, PAGE + 1));
+                seek.add(System.nanoTime() - t);
+            }
+            Latencies offset = new Latencies(OFFSET_RUNS);
+            for (int i = 0; i < OFFSET_RUNS; i++) {
+                long t = System.nanoTime();
+                jdbc.queryForList(OFFSET_PAGE, platform, PAGES[p] * PAGE, PAGE + 1);
+                offset.add(System.nanoTime() - t);
+            }
+            System.out.printf("page %,7d  keyset: %s%n               offset: %s%n", PAGES[p] + 1, seek.summary(), offset.summary());
+
+            if (p == 0) first = seek.percentileMillis(0.50);
+            if (p == PAGES.length - 1) {
+                deepest = seek.percentileMillis(0.50);
+                assertThat(deepest).isLessThan(offset.percentileMillis(0.50) / 10);
+            }
+        }
+        // flat within noise: the sandboxes these run on jitter by a millisecond or so
+        assertThat(deepest).isLessThan(first * 3 + 1.0);
+    }
+
+    @Test
+    void indexPagesCostTheSameAtAnyDepthAndVisitEveryCouponOnce() {
+        InventoryIndex index = new InventoryIndex(couponRepo);
+        Instant base = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        for (long i = 1; i <= COUPONS; i++) {
+            index.add(new CouponSummary(i, platform, "Browse coupon " + i, base.minusMillis(i / 3)));
+        }
+
+        // walk every page through encoded cursors, the way the "More" button does
+        Set<Long> seen = new HashSet<>(COUPONS * 2);
+        List<CouponSummary> page = index.list(platform, PAGE);
+        int pages = 0;
+        Latencies walk = new Latencies(COUPONS / PAGE);
+        while (!page.isEmpty()) {
+            pages++;
+            for (CouponSummary c : page) assertThat(seen.add(c.id())).as("coupon %d seen twice", c.id()).isTrue();
+            PageCursor cursor = PageCursor.decode(PageCursor.after(page.get(page.size() - 1)).encode());
+            long t = System.nanoTime();
+            page = index.listAfter(platform, cursor.submittedAt(), cursor.id(), PAGE);
+            walk.add(System.nanoTime() - t);
+        }
+        assertThat(seen).hasSize(COUPONS);
+        assertThat(pages).isEqualTo((COUPONS + PAGE - 1) / PAGE);
+        System.out.printf("index walk over %,d pages: %s%n", pages, walk.summary());
+
+        Latencies shallow = timeIndexPage(index, 1);
+        Latencies deep = timeIndexPage(index, COUPONS / PAGE - 1);
+        System.out.printf("index page 2: %s%nindex page %,d: %s%n", shallow.summary(), COUPONS / PAGE, deep.summary());
+        assertThat(deep.percentileMillis(0.50)).isLessThan(shallow.percentileMillis(0.50) * 3 + 0.05);
+    }
+
+    private Latencies timeIndexPage(InventoryIndex index, int page) {
+        CouponSummary last = index.list(platform, COUPONS).get(page * PAGE - 1);
+        for (int i = 0; i < 20_000; i++) index.listAfter(platform, last.submittedAt(), last.id(), PAGE);
+        Latencies l = new Latencies(RUNS * 10);
+        for (int i = 0; i < RUNS * 10; i++) {
+            long t = System.nanoTime();
+            index.listAfter(platform, last.submittedAt(), last.id(), PAGE);
+            l.add(System.nanoTime() - t);
+        }
+        return l;
+    }
+}
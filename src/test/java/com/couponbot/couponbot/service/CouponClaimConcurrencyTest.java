@@ -0,0 +1,66 @@
+package com.couponbot.couponbot.service;
+
+import com.couponbot.couponbot.PostgresIntegrationTest;
+import com.couponbot.couponbot.db.entity.Coupon;
+import com.couponbot.couponbot.db.repo.CouponRepo;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CouponClaimConcurrencyTest extends PostgresIntegrationTest {
+
+    private static final int CLAIMERS = 300;
+
+    @Autowired
+    CouponService couponService;
+
+    @Autowired
+    CouponRepo couponRepo;
+
+    @Test
+    void exactlyOneOfManyParallelClaimersWins() throws Exception {
+        String platform = unique("Race");
+        Coupon coupon = couponService.saveCoupon(1L, unique("CODE"), platform, "race test").orElseThrow();
+        long userBase = System.nanoTime() % 1_000_000_000L * 1_000;
+
+        ExecutorService pool = Executors.newFixedThreadPool(CLAIMERS);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<ClaimResult>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < CLAIMERS; i++) {
+                long userId = userBase + i;
+                results.add(pool.submit(() -> {
+                    go.await();
+                    return couponService.claim(coupon.getId(), userId);
+                }));
+            }
+            go.countDown();
+            List<ClaimResult> outcomes = new ArrayList<>();
+            for (Future<ClaimResult> f : results) outcomes.add(f.get());
+
+            Map<ClaimResult.Outcome, Long> byOutcome = outcomes.stream()
+                    .collect(Collectors.groupingBy(ClaimResult::outcome, Collectors.counting()));
+            assertThat(byOutcome).containsEntry(ClaimResult.Outcome.CLAIMED, 1L)
+                    .containsEntry(ClaimResult.Outcome.ALREADY_TAKEN, (long) CLAIMERS - 1);
+
+            Coupon winner = outcomes.stream().filter(ClaimResult::isClaimed).map(ClaimResult::coupon)
+                    .findFirst().orElseThrow();
+            Coupon stored = couponRepo.findById(coupon.getId()).orElseThrow();
+            assertThat(stored.getStatus()).isEqualTo(Coupon.Status.CLAIMED);
+            assertThat(stored.getClaimedBy()).isEqualTo(winner.getClaimedBy());
+            assertThat(stored.getClaimedAt()).isNotNull();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
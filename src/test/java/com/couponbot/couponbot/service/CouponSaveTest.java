@@ -0,0 +1,48 @@
+package com.couponbot.couponbot.service;
+
+import com.couponbot.couponbot.PostgresIntegrationTest;
+import com.couponbot.couponbot.db.repo.CouponRepo;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CouponSaveTest extends PostgresIntegrationTest {
+
+    @Autowired
+    CouponService couponService;
+
+    @Autowired
+    CouponRepo couponRepo;
+
+    @Autowired
+    DuplicateGuard duplicateGuard;
+
+    @Test
+    void aCodeTheUniqueIndexAlreadyHasIsADuplicate() {
+        String platform = unique("Dup");
+        String code = unique("CODE");
+        // written behind the guard's back, so only the unique index can catch the second one
+        couponRepo.save(CouponService.newCoupon(1L, code, platform, "first", Instant.now(), null));
+
+        assertThat(couponService.saveCoupon(2L, code.toLowerCase(), platform.toUpperCase(), "second")).isEmpty();
+        assertThat(duplicateGuard.isDuplicate(platform, code)).isTrue();
+    }
+
+    @Test
+    void aTooLongCodeIsAnErrorNotADuplicate() {
+        String platform = unique("Long");
+        String code = "https://example.com/redeem?token=" + "x".repeat(CouponService.MAX_CODE_LENGTH);
+        long keysBefore = duplicateGuard.stats().keys();
+
+        assertThatThrownBy(() -> couponService.saveCoupon(1L, code, platform, "too long"))
+                .isInstanceOf(DataIntegrityViolationException.class)
+                .satisfies(e -> assertThat(CouponService.isDuplicateCode((DataIntegrityViolationException) e)).isFalse());
+        // nothing was recorded in the Bloom filter
+        assertThat(duplicateGuard.stats().keys()).isEqualTo(keysBefore);
+    }
+}
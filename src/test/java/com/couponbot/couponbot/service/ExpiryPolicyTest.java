@@ -0,0 +1,56 @@
+package com.couponbot.couponbot.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpiryPolicyTest {
+
+    private static final Instant NOW = Instant.parse("2026-10-18T10:00:00Z");
+    private static final ZoneId UTC = ZoneId.of("UTC");
+
+    @Test
+    void aStatedDateWinsAndCoversThatWholeDay() {
+        ExpiryPolicy policy = new ExpiryPolicy(Duration.ofDays(30), "Canva=7d", UTC);
+
+        assertThat(policy.expiresAt("Canva", "Pro team, valid till 31 Dec", NOW))
+                .isEqualTo(Instant.parse("2027-01-01T00:00:00Z"));
+    }
+
+    @Test
+    void platformTtlThenDefaultTtl() {
+        ExpiryPolicy policy = new ExpiryPolicy(Duration.ofDays(30), " Canva = 7d , netflix=12h,broken", UTC);
+
+        assertThat(policy.expiresAt("canva", "Pro", NOW)).isEqualTo(NOW.plus(Duration.ofDays(7)));
+        assertThat(policy.expiresAt(" NETFLIX ", "1 month", NOW)).isEqualTo(NOW.plus(Duration.ofHours(12)));
+        assertThat(policy.expiresAt("Adobe", "CC", NOW)).isEqualTo(NOW.plus(Duration.ofDays(30)));
+    }
+
+    @Test
+    void aZeroTtlNeverExpires() {
+        ExpiryPolicy never = new ExpiryPolicy(Duration.ZERO, "", UTC);
+        ExpiryPolicy zeroForOne = new ExpiryPolicy(Duration.ofDays(30), "Canva=0", UTC);
+
+        assertThat(never.expiresAt("Canva", "Pro", NOW)).isNull();
+        assertThat(zeroForOne.expiresAt("Canva", "Pro", NOW)).isNull();
+        // a stated date still applies
+        assertThat(never.expiresAt("Canva", "expires 2026-11-01", NOW)).isEqualTo(Instant.parse("2026-11-02T00:00:00Z"));
+    }
+
+    @Test
+    void todayAndTheEndOfTheDayAreInTheConfiguredZone() {
+        ZoneId kolkata = ZoneId.of("Asia/Kolkata");  // UTC+5:30
+        ExpiryPolicy policy = new ExpiryPolicy(Duration.ZERO, "", kolkata);
+        // 20:00 UTC on the 18th is already the 19th in Kolkata, so "18 Oct" means next year
+        Instant lateEvening = Instant.parse("2026-10-18T20:00:00Z");
+
+        assertThat(policy.expiresAt("Canva", "valid till 19 Oct", lateEvening))
+                .isEqualTo(Instant.parse("2026-10-19T18:30:00Z"));
+        assertThat(policy.expiresAt("Canva", "valid till 18 Oct", lateEvening))
+                .isEqualTo(Instant.parse("2027-10-18T18:30:00Z"));
+    }
+}
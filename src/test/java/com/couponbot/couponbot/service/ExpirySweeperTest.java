@@ -0,0 +1,130 @@
+package com.couponbot.couponbot.service;
+
+import com.couponbot.couponbot.PostgresIntegrationTest;
+import com.couponbot.couponbot.db.repo.CouponSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpirySweeperTest extends PostgresIntegrationTest {
+
+    // far enough in the past that these rows come first in (expires_at, id) order
+    private static final Instant LONG_AGO = Instant.parse("2001-01-01T00:00:00Z");
+    private static final int DUE = 50;
+
+    @Autowired
+    JdbcTemplate jdbc;
+    @Autowired
+    DataSource dataSource;
+    @Autowired
+    EventJournal journal;
+    @Autowired
+    StatsAggregator stats;
+
+    private final String platform = unique("Sweep");
+    // its own index, so the shared one's other platforms don't matter; only reconcile reads the repo
+    private final InventoryIndex inventory = new InventoryIndex(null);
+
+    @AfterEach
+    void cleanUp() {
+        jdbc.update("DELETE FROM coupons WHERE platform = ?", platform);
+    }
+
+    @Test
+    void batchesWalkEveryDueRowOnceAndLeaveTheRestAlone() {
+        seedDue();
+        insert("FUTURE", "AVAILABLE", Instant.now().plusSeconds(86_400));
+        insert("NEVER", "AVAILABLE", null);
+        insert("TAKEN", "CLAIMED", LONG_AGO);
+        indexAvailable();
+
+        // 7 doesn't divide 50, and three rows share each expires_at, so batches split ties
+        ExpirySweeper capped = sweeper(7, 2);
+        capped.sweep();
+        assertThat(capped.getLastRunExpired()).isEqualTo(14);
+        // the 14 first in (expires_at, id) order
+        assertThat(codesWithStatus("EXPIRED")).isEqualTo(dueCodes().subList(0, 14));
+
+        ExpirySweeper sweeper = sweeper(7, 1_000);
+        sweeper.sweep();
+        assertThat(codesWithStatus("EXPIRED")).isEqualTo(dueCodes());
+        assertThat(codesWithStatus("AVAILABLE")).containsExactlyInAnyOrder("FUTURE", "NEVER");
+        assertThat(codesWithStatus("CLAIMED")).containsExactly("TAKEN");
+        assertThat(inventory.list(platform, 100)).extracting(CouponSummary::details).containsOnly("row").hasSize(2);
+
+        sweeper.sweep();
+        assertThat(codesWithStatus("EXPIRED")).hasSize(DUE);
+    }
+
+    @Test
+    void aRowLockedByAClaimIsSkippedAndExpiredOnTheNextRun() throws Exception {
+        insert("D1", "AVAILABLE", LONG_AGO);
+        insert("D2", "AVAILABLE", LONG_AGO.plusSeconds(1));
+        long lockedId = jdbc.queryForObject("SELECT id FROM coupons WHERE platform = ? AND code = 'D1'", Long.class, platform);
+        ExpirySweeper sweeper = sweeper(10, 10);
+
+        try (Connection claim = dataSource.getConnection()) {
+            claim.setAutoCommit(false);
+            try (PreparedStatement ps = claim.prepareStatement("SELECT id FROM coupons WHERE id = ? FOR UPDATE")) {
+                ps.setLong(1, lockedId);
+                ps.executeQuery().close();
+            }
+            sweeper.sweep();
+            assertThat(codesWithStatus("EXPIRED")).containsExactly("D2");
+            claim.rollback();
+        }
+
+        sweeper.sweep();
+        assertThat(codesWithStatus("EXPIRED")).containsExactly("D1", "D2");
+    }
+
+    private ExpirySweeper sweeper(int batchSize, int maxBatches) {
+        return new ExpirySweeper(jdbc, inventory, journal, stats, new SimpleMeterRegistry(), batchSize, maxBatches);
+    }
+
+    private void seedDue() {
+        jdbc.update("""
+                INSERT INTO coupons (id, code, platform, details, submitted_by, submitted_at, status, expires_at)
+                SELECT nextval('coupons_seq'), 'E' || lpad(g::text, 3, '0'), ?, 'due', 1, now(), 'AVAILABLE',
+                       ?::timestamptz + (g / 3) * interval '1 second'
+                  FROM generate_series(1, ?) g
+                """, platform, Timestamp.from(LONG_AGO), DUE);
+    }
+
+    private void insert(String code, String status, Instant expiresAt) {
+        jdbc.update("""
+                INSERT INTO coupons (id, code, platform, details, submitted_by, submitted_at, status, expires_at)
+                VALUES (nextval('coupons_seq'), ?, ?, 'row', 1, now(), ?, ?)
+                """, code, platform, status, expiresAt == null ? null : Timestamp.from(expiresAt));
+    }
+
+    private void indexAvailable() {
+        for (Map<String, Object> row : jdbc.queryForList(
+                "SELECT id, submitted_at FROM coupons WHERE platform = ? AND status = 'AVAILABLE'", platform)) {
+            inventory.add(new CouponSummary(((Number) row.get("id")).longValue(), platform, "row",
+                    ((Timestamp) row.get("submitted_at")).toInstant()));
+        }
+    }
+
+    private List<String> dueCodes() {
+        return jdbc.queryForList("SELECT code FROM coupons WHERE platform = ? AND details = 'due' ORDER BY expires_at, id",
+                String.class, platform);
+    }
+
+    private List<String> codesWithStatus(String status) {
+        return jdbc.queryForList("SELECT code FROM coupons WHERE platform = ? AND status = ? ORDER BY expires_at, id",
+                String.class, platform, status);
+    }
+}
@@ -0,0 +1,64 @@
+package com.couponbot.couponbot.service;
+
+import com.couponbot.couponbot.db.repo.CouponRepo;
+import com.couponbot.couponbot.db.repo.CouponSummary;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InventoryIndexTest {
+
+    private final CouponRepo couponRepo = mock(CouponRepo.class);
+    private final InventoryIndex index = new InventoryIndex(couponRepo);
+
+    @Test
+    void reconcileRemovesCouponsMissingFromTheTable() {
+        index.add(coupon(1, Instant.now().minus(1, ChronoUnit.HOURS)));
+        when(couponRepo.findAvailableSummaries()).thenReturn(List.of());
+
+        index.reconcile();
+
+        assertThat(index.size()).isZero();
+        assertThat(index.platformOf(1)).isNull();
+    }
+
+    @Test
+    void reconcileKeepsCouponsAddedWhileTheSnapshotWasRead() {
+        // stamped a minute ago, committed (and added) only once the snapshot query was running
+        CouponSummary late = coupon(2, Instant.now().minus(1, ChronoUnit.MINUTES));
+        when(couponRepo.findAvailableSummaries()).thenAnswer(inv -> {
+            index.add(late);
+            return List.of();
+        });
+
+        index.reconcile();
+
+        assertThat(index.platformOf(2)).isEqualTo("Canva");
+    }
+
+    @Test
+    void reconcileAddsCouponsMissingFromTheIndexButNotOnesRemovedMeanwhile() {
+        CouponSummary kept = coupon(3, Instant.now());
+        CouponSummary claimed = coupon(4, Instant.now());
+        when(couponRepo.findAvailableSummaries()).thenAnswer(inv -> {
+            index.remove(4L);
+            return List.of(kept, claimed);
+        });
+
+        index.reconcile();
+
+        assertThat(index.platformOf(3)).isEqualTo("Canva");
+        assertThat(index.platformOf(4)).isNull();
+        assertThat(index.platforms()).containsExactly(new InventoryIndex.PlatformCount("Canva", 1));
+    }
+
+    private static CouponSummary coupon(long id, Instant submittedAt) {
+        return new CouponSummary(id, "Canva", "10% off", submittedAt.truncatedTo(ChronoUnit.MICROS));
+    }
+}
@@ -0,0 +1,59 @@
+package com.couponbot.couponbot.service;
+
+import com.couponbot.couponbot.db.repo.CouponSummary;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PageCursorTest {
+
+    private static final Instant AT = Instant.parse("2026-10-18T09:15:30.123456Z");
+
+    @Test
+    void encodesAndDecodesBothDirections() {
+        CouponSummary c = new CouponSummary(123_456L, "Canva", "Pro", AT);
+
+        PageCursor next = PageCursor.after(c);
+        PageCursor prev = PageCursor.before(c);
+
+        assertThat(next.encode()).startsWith("n.");
+        assertThat(prev.encode()).startsWith("p.");
+        assertThat(PageCursor.decode(next.encode())).isEqualTo(new PageCursor(PageCursor.Direction.NEXT, AT, 123_456L));
+        assertThat(PageCursor.decode(prev.encode())).isEqualTo(new PageCursor(PageCursor.Direction.PREV, AT, 123_456L));
+    }
+
+    @Test
+    void roundTripsRandomPositionsToTheMicrosecond() {
+        Random random = new Random(14);
+        for (int i = 0; i < 10_000; i++) {
+            Instant at = Instant.EPOCH.plus(random.nextLong(0, 200L * 365 * 86_400_000_000L), ChronoUnit.MICROS);
+            long id = random.nextBoolean() ? random.nextLong(1, 10_000_000) : random.nextLong(1, Long.MAX_VALUE);
+            PageCursor cursor = new PageCursor(random.nextBoolean() ? PageCursor.Direction.NEXT : PageCursor.Direction.PREV, at, id);
+
+            assertThat(PageCursor.decode(cursor.encode())).isEqualTo(cursor);
+        }
+    }
+
+    @Test
+    void theLargestCursorFitsInCallbackData() {
+        PageCursor largest = new PageCursor(PageCursor.Direction.PREV,
+                Instant.parse("2199-12-31T23:59:59.999999Z"), Long.MAX_VALUE);
+
+        assertThat(largest.encode().length()).isLessThanOrEqualTo(30);
+        assertThat(PageCursor.decode(largest.encode())).isEqualTo(largest);
+        // Telegram's callback_data limit is 64 bytes, and the bot adds a "pg_" prefix
+        assertThat(("pg_" + largest.encode()).getBytes(StandardCharsets.UTF_8).length).isLessThanOrEqualTo(64);
+    }
+
+    @Test
+    void rejectsAnythingItDidNotProduce() {
+        String[] bad = {null, "", "n.", "n.1", "n.1.", "n..1", "x.1.2", "n-1.2", "nn.1.2", "n.!.1", "n.1.?",
+                "n.zzzzzzzzzzzzzz.1", "n.1." + "z".repeat(14), "claim_12"};
+        for (String s : bad) assertThat(PageCursor.decode(s)).as(s).isNull();
+    }
+}
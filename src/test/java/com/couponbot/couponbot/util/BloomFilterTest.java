@@ -0,0 +1,73 @@
+package com.couponbot.couponbot.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    @Test
+    void neverForgetsAKey() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        for (int i = 0; i < 100_000; i++) filter.put("canva|code" + i);
+        for (int i = 0; i < 100_000; i++) assertThat(filter.mightContain("canva|code" + i)).as("key %d", i).isTrue();
+        assertThat(filter.getInserted()).isEqualTo(100_000);
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheTargetAtCapacity() {
+        int keys = 200_000, probes = 1_000_000;
+        BloomFilter filter = new BloomFilter(keys, 0.01);
+        for (int i = 0; i < keys; i++) filter.put("amazon|" + Integer.toString(i, 36).toUpperCase());
+
+        int falsePositives = 0;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("netflix|" + Integer.toString(i, 36).toUpperCase())) falsePositives++;
+        }
+        double rate = (double) falsePositives / probes;
+
+        assertThat(rate).isLessThan(0.015);
+        assertThat(filter.expectedFalsePositiveRate()).isBetween(0.005, 0.015);
+        assertThat(Math.abs(rate - filter.expectedFalsePositiveRate())).isLessThan(0.003);
+    }
+
+    @Test
+    void sizingFollowsTheTargetRate() {
+        BloomFilter loose = new BloomFilter(1_000_000, 0.05);
+        BloomFilter tight = new BloomFilter(1_000_000, 0.001);
+
+        // ~9.6 bits per key at 1%, ~14.4 at 0.1%
+        assertThat(loose.memoryBytes()).isLessThan(tight.memoryBytes());
+        assertThat(tight.memoryBytes() * 8 / 1_000_000).isBetween(14L, 15L);
+        assertThat(tight.getHashCount()).isEqualTo(10);
+    }
+
+    @Test
+    void concurrentPutsAreNotLost() throws Exception {
+        BloomFilter filter = new BloomFilter(400_000, 0.01);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                done.add(pool.submit(() -> {
+                    for (int i = 0; i < 50_000; i++) filter.put("t" + thread + "|" + i);
+                }));
+            }
+            for (Future<?> f : done) f.get();
+        } finally {
+            pool.shutdown();
+        }
+
+        for (int t = 0; t < 8; t++) {
+            for (int i = 0; i < 50_000; i++) assertThat(filter.mightContain("t" + t + "|" + i)).isTrue();
+        }
+        assertThat(filter.getInserted()).isEqualTo(400_000);
+    }
+}
@@ -0,0 +1,113 @@
+package com.couponbot.couponbot.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The rewritten CouponParser against the regex one it replaced, over generated posts that lean
+ * on the edges: token lengths around 5 and 30, underscores, non-ASCII letters, digits and
+ * combining marks next to ASCII tokens, surrogate pairs, platform words in any case, and
+ * "http" with and without a URL.
+ */
+class CouponParserCompatibilityTest {
+
+    private static final int INPUTS = 300_000;
+
+    private static final String[] WORDS = {
+            "canva", "CANVA", "Canva", "adobe", "LinkedIn", "linkedin", "amazon", "Netflix", "SPOTIFY",
+            "start", "Save", "CLAIM", "claims", "canvas", "amazonprime", "coupon", "code", "pro",
+            "valid", "till", "off", "http", "https://", "http://x.y/abc", "https://canva.com/p?x=1",
+            "HTTP://UPPER.case", "httpx"};
+
+    private static final String[] GLUE = {
+            " ", "  ", "\n", "\t", ",", ".", "-", "_", ":", "/", "!", "(", ")", "#", "@", "'", "\"",
+            "é", "ß", "İ", "ı", "К", "ж", "\u0663", "²", "\u0301", "\u0308", "\u00a0", "\u200b",
+            "😀", "𝐀", "𝟙", "中", "ǅ"};
+
+    private static final String ALNUM = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    @Test
+    void matchesTheRegexParserOnGeneratedPosts() {
+        Random random = new Random(9);
+        int coded = 0;
+        for (int i = 0; i < INPUTS; i++) {
+            String text = post(random);
+            LegacyCouponParser.Parsed expected = LegacyCouponParser.parseFromText(text);
+            CouponParser.Parsed actual = CouponParser.parseFromText(text);
+
+            if (expected == null) {
+                assertThat(actual).as("input %d: %s", i, escape(text)).isNull();
+            } else {
+                assertThat(actual).as("input %d: %s", i, escape(text)).isNotNull();
+                assertThat(actual.code()).as("code of input %d: %s", i, escape(text)).isEqualTo(expected.code());
+                assertThat(actual.platform()).as("platform of input %d: %s", i, escape(text)).isEqualTo(expected.platform());
+                assertThat(actual.details()).isEqualTo(expected.details());
+                coded++;
+            }
+        }
+        // the generator must not collapse into "no code found" for everything
+        assertThat(coded).isGreaterThan(INPUTS / 2);
+    }
+
+    @Test
+    void matchesTheRegexParserOnHandPickedPosts() {
+        String[] posts = {
+                null, "", "   ", "canva", "Canva Pro code: CANVA2024X", "SAVE20 on Adobe",
+                "amazon ABCDE", "abcd1", "abcd", "a".repeat(30), "a".repeat(31), "1".repeat(30) + "x",
+                "code_12345 and 67890", "café12345", "12345é", "x\u0301ABCDE1", "ABCDE1\u0301",
+                "ABCDE1\u0301\u0301 FGHIJ", "\u0663ABCDE", "ABCDE\u0663", "😀ABCDE1😀", "ABCDE1İ", "İlinkedin",
+                "#\uD835\uDFD9\u0308Qrs7DY70I1",
+                "get it at https://adobe.com/deal now", "http only ABC123", "Spotify NETFLIX QWERTY9"};
+        for (String post : posts) {
+            LegacyCouponParser.Parsed expected = LegacyCouponParser.parseFromText(post);
+            CouponParser.Parsed actual = CouponParser.parseFromText(post);
+            if (expected == null) {
+                assertThat(actual).as(escape(post)).isNull();
+            } else {
+                assertThat(actual).as(escape(post))
+                        .isEqualTo(new CouponParser.Parsed(expected.code(), expected.platform(), expected.details()));
+            }
+        }
+    }
+
+    private static String post(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int parts = 1 + random.nextInt(12);
+        for (int p = 0; p < parts; p++) {
+            switch (random.nextInt(5)) {
+                case 0, 1 -> sb.append(token(random));
+                case 2 -> sb.append(WORDS[random.nextInt(WORDS.length)]);
+                default -> sb.append(GLUE[random.nextInt(GLUE.length)]);
+            }
+            if (random.nextInt(3) > 0) sb.append(random.nextBoolean() ? ' ' : GLUE[random.nextInt(GLUE.length)]);
+        }
+        return sb.toString();
+    }
+
+    // 1..35 ASCII alnum chars, so both sides of the 5..30 limits come up
+    private static String token(Random random) {
+        int len = 1 + random.nextInt(random.nextInt(4) == 0 ? 35 : 12);
+        char[] chars = new char[len];
+        boolean lettersOnly = random.nextInt(4) == 0;
+        boolean digitsOnly = !lettersOnly && random.nextInt(6) == 0;
+        for (int i = 0; i < len; i++) {
+            if (lettersOnly) chars[i] = ALNUM.charAt(random.nextInt(52));
+            else if (digitsOnly) chars[i] = ALNUM.charAt(52 + random.nextInt(10));
+            else chars[i] = ALNUM.charAt(random.nextInt(ALNUM.length()));
+        }
+        return new String(chars);
+    }
+
+    private static String escape(String s) {
+        if (s == null) return "null";
+        StringBuilder sb = new StringBuilder();
+        s.codePoints().forEach(cp -> {
+            if (cp >= 0x20 && cp < 0x7f) sb.append((char) cp);
+            else sb.append(String.format("\\u{%x}", cp));
+        });
+        return sb.toString();
+    }
+}
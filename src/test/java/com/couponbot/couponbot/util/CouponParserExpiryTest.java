@@ -0,0 +1,92 @@
+package com.couponbot.couponbot.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CouponParserExpiryTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 10, 18);
+
+    private static LocalDate expiry(String text) {
+        return CouponParser.expiryFromText(text, TODAY);
+    }
+
+    @Test
+    void readsEveryDateShape() {
+        assertThat(expiry("Canva Pro, expires 2026-12-31")).isEqualTo(LocalDate.of(2026, 12, 31));
+        assertThat(expiry("valid till 31/12/2026")).isEqualTo(LocalDate.of(2026, 12, 31));
+        assertThat(expiry("exp: 31.12.2026")).isEqualTo(LocalDate.of(2026, 12, 31));
+        assertThat(expiry("Valid until 31-12-2026")).isEqualTo(LocalDate.of(2026, 12, 31));
+        assertThat(expiry("valid till 31st Dec")).isEqualTo(LocalDate.of(2026, 12, 31));
+        assertThat(expiry("Expiry date: 31 of December, 2027")).isEqualTo(LocalDate.of(2027, 12, 31));
+        assertThat(expiry("ends on Dec 31st, 2026")).isEqualTo(LocalDate.of(2026, 12, 31));
+        assertThat(expiry("VALID UP TO NOV. 5")).isEqualTo(LocalDate.of(2026, 11, 5));
+        assertThat(expiry("expiring 1 Sept")).isEqualTo(LocalDate.of(2027, 9, 1));
+    }
+
+    @Test
+    void numericDatesAreDayFirst() {
+        assertThat(expiry("valid till 02/11")).isEqualTo(LocalDate.of(2026, 11, 2));
+        assertThat(expiry("valid till 11/02/2027")).isEqualTo(LocalDate.of(2027, 2, 11));
+        // month-first only parses when it can't be day-first, and then not at all
+        assertThat(expiry("valid till 12/31")).isNull();
+        assertThat(expiry("valid till 12/31/2026")).isNull();
+    }
+
+    @Test
+    void twoDigitYearsAreThisCentury() {
+        assertThat(expiry("exp 31/12/27")).isEqualTo(LocalDate.of(2027, 12, 31));
+        assertThat(expiry("exp 01.01.30")).isEqualTo(LocalDate.of(2030, 1, 1));
+    }
+
+    @Test
+    void aDateWithoutAYearIsTheNextOneFromToday() {
+        assertThat(expiry("valid till 18 Oct")).isEqualTo(TODAY);
+        assertThat(expiry("valid till 17 Oct")).isEqualTo(LocalDate.of(2027, 10, 17));
+        assertThat(expiry("valid till 5 Jan")).isEqualTo(LocalDate.of(2027, 1, 5));
+        assertThat(CouponParser.expiryFromText("valid till 31 Dec", LocalDate.of(2027, 1, 1)))
+                .isEqualTo(LocalDate.of(2027, 12, 31));
+        // 29 Feb: the next one that exists, not a crash or a skipped year
+        assertThat(CouponParser.expiryFromText("valid till 29 Feb", LocalDate.of(2027, 3, 1)))
+                .isEqualTo(LocalDate.of(2028, 2, 29));
+    }
+
+    @Test
+    void invalidDatesAreSkippedForTheNextCandidate() {
+        assertThat(expiry("valid till 31/02")).isNull();
+        assertThat(expiry("valid till 31 Feb")).isNull();
+        assertThat(expiry("expires 2026-02-30")).isNull();
+        assertThat(expiry("valid till 00/00")).isNull();
+        assertThat(expiry("ends 31/02 - no wait, valid till 28 Feb 2027")).isEqualTo(LocalDate.of(2027, 2, 28));
+    }
+
+    @Test
+    void theFirstStatedDateWins() {
+        assertThat(expiry("valid till 30 Nov, next drop until 31 Dec")).isEqualTo(LocalDate.of(2026, 11, 30));
+    }
+
+    @Test
+    void ordinaryWordsAroundNumbersAreNotDates() {
+        String[] notDates = {
+                null, "",
+                "Canva Pro 1 month free ABC12345",
+                "valid till the end of the month",
+                "works until you cancel",
+                "offer ends soon",
+                "ends tonight!",
+                "valid until 10 people claim it",
+                "till 5 marketing emails are sent",
+                "expires in 1 decade",
+                "valid until 2-3 days after activation",
+                "until 1.5x points",
+                "valid till 50% are used",
+                "spends 10/12 credits",
+                "blends 3 Mar flavours",    // "ends" inside a word
+                "31 Dec",                   // a date, but nothing says it is the expiry
+        };
+        for (String text : notDates) assertThat(expiry(text)).as(text).isNull();
+    }
+}
@@ -0,0 +1,94 @@
+package com.couponbot.couponbot.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeywordAutomatonTest {
+
+    @Test
+    void firstMatchReturnsTheLowestIdAnywhereInTheText() {
+        KeywordAutomaton a = new KeywordAutomaton(List.of("linkedin", "canva", "adobe"));
+        String text = "adobe or canva? LinkedIn!";
+
+        assertThat(a.firstMatch(text, 0, text.length())).isEqualTo(0);
+        assertThat(a.firstMatch(text, 0, 14)).isEqualTo(1);
+        assertThat(a.firstMatch(text, 0, 5)).isEqualTo(2);
+        assertThat(a.firstMatch(text, 1, 5)).isEqualTo(-1);   // "dobe"
+        assertThat(a.firstMatch("", 0, 0)).isEqualTo(-1);
+    }
+
+    @Test
+    void findsKeywordsThatOverlapOrSitInsideOthers() {
+        // the classic he/she/his/hers set: every match here is only reachable through a suffix link
+        KeywordAutomaton a = new KeywordAutomaton(List.of("he", "she", "his", "hers"));
+
+        assertThat(a.firstMatch("ushers", 0, 6)).isEqualTo(0);
+        assertThat(a.firstMatch("ushe", 0, 3)).isEqualTo(-1);
+        assertThat(a.firstMatch("this", 0, 4)).isEqualTo(2);
+        assertThat(a.firstMatch("shis", 0, 4)).isEqualTo(2);
+
+        KeywordAutomaton nested = new KeywordAutomaton(List.of("canvas", "anva"));
+        assertThat(nested.firstMatch("canvas", 0, 6)).isEqualTo(0);
+        assertThat(nested.firstMatch("canva", 0, 5)).isEqualTo(1);
+    }
+
+    @Test
+    void exactMatchIsAWholeRangeLookup() {
+        KeywordAutomaton a = new KeywordAutomaton(List.of("start", "save", "claim", "sa"));
+        String text = "xx SAVE claims start";
+
+        assertThat(a.exactMatch(text, 3, 7)).isEqualTo(1);
+        assertThat(a.exactMatch(text, 3, 5)).isEqualTo(3);
+        assertThat(a.exactMatch(text, 3, 6)).isEqualTo(-1);   // "SAV": a prefix only
+        assertThat(a.exactMatch(text, 8, 14)).isEqualTo(-1);  // "claims"
+        assertThat(a.exactMatch(text, 8, 13)).isEqualTo(2);
+        assertThat(a.exactMatch(text, 2, 7)).isEqualTo(-1);   // " SAVE": a suffix match is not exact
+        assertThat(a.exactMatch(text, 15, 20)).isEqualTo(0);
+    }
+
+    @Test
+    void duplicateKeywordsKeepTheFirstId() {
+        KeywordAutomaton a = new KeywordAutomaton(List.of("promo", "code", "PROMO"));
+
+        assertThat(a.exactMatch("promo", 0, 5)).isEqualTo(0);
+        assertThat(a.firstMatch("a promo code", 0, 12)).isEqualTo(0);
+    }
+
+    @Test
+    void ignoresCaseIncludingNonAscii() {
+        KeywordAutomaton a = new KeywordAutomaton(List.of("straße", "купон", ""));
+
+        assertThat(a.firstMatch("STRAßE 1", 0, 8)).isEqualTo(0);
+        assertThat(a.exactMatch("КУПОН", 0, 5)).isEqualTo(1);
+        assertThat(a.exactMatch("", 0, 0)).isEqualTo(-1);     // the empty keyword is never a match
+        assertThat(a.firstMatch("no keywords 😀", 0, 14)).isEqualTo(-1);
+    }
+
+    @Test
+    void agreesWithLowerCaseContainsOnRandomText() {
+        List<String> keywords = List.of("ab", "bca", "abcab", "cc", "b", "aab");
+        KeywordAutomaton a = new KeywordAutomaton(keywords);
+        Random random = new Random(3);
+        String alphabet = "abcABxé";
+
+        for (int n = 0; n < 20_000; n++) {
+            char[] chars = new char[random.nextInt(12)];
+            for (int i = 0; i < chars.length; i++) chars[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+            String text = new String(chars);
+            String low = text.toLowerCase(Locale.ROOT);
+
+            int first = -1, exact = -1;
+            for (int id = keywords.size() - 1; id >= 0; id--) {
+                if (low.contains(keywords.get(id))) first = id;
+                if (low.equals(keywords.get(id))) exact = id;
+            }
+            assertThat(a.firstMatch(text, 0, text.length())).as(text).isEqualTo(first);
+            assertThat(a.exactMatch(text, 0, text.length())).as(text).isEqualTo(exact);
+        }
+    }
+}
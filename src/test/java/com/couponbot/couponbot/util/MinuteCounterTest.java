@@ -0,0 +1,86 @@
+package com.couponbot.couponbot.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MinuteCounterTest {
+
+    private static final long MINUTE = 60_000;
+    private static final long T0 = 1_700_000_000_000L / MINUTE * MINUTE;  // on a minute boundary
+
+    @Test
+    void sumsOnlyTheAskedForMinutes() {
+        MinuteCounter counter = new MinuteCounter(60);
+        for (int m = 0; m < 10; m++) counter.add(T0 + m * MINUTE + 5_000, m + 1);  // 1, 2, ... 10
+        long now = T0 + 9 * MINUTE + 30_000;
+
+        assertThat(counter.sum(now, 1)).isEqualTo(10);
+        assertThat(counter.sum(now, 3)).isEqualTo(10 + 9 + 8);
+        assertThat(counter.sum(now, 10)).isEqualTo(55);
+        assertThat(counter.sum(now, 1_000)).isEqualTo(55);  // clamped to the window
+    }
+
+    @Test
+    void minuteBoundariesAreExact() {
+        MinuteCounter counter = new MinuteCounter(5);
+        counter.add(T0 - 1, 1);
+        counter.add(T0, 10);
+        counter.add(T0 + MINUTE - 1, 100);
+
+        assertThat(counter.sum(T0, 1)).isEqualTo(110);
+        assertThat(counter.sum(T0 - 1, 1)).isEqualTo(1);
+        assertThat(counter.sum(T0 + MINUTE, 1)).isZero();
+    }
+
+    @Test
+    void aBucketIsClearedWhenTheRingComesRound() {
+        MinuteCounter counter = new MinuteCounter(5);
+        counter.add(T0, 7);
+        counter.add(T0 + 5 * MINUTE, 3);  // same slot, one lap later
+
+        assertThat(counter.sum(T0 + 5 * MINUTE, 5)).isEqualTo(3);
+        // a read after a long quiet spell sees nothing stale
+        assertThat(counter.sum(T0 + 60 * MINUTE, 5)).isZero();
+    }
+
+    @Test
+    void anEventOlderThanTheWindowIsDropped() {
+        MinuteCounter counter = new MinuteCounter(5);
+        counter.add(T0 + 5 * MINUTE, 3);
+        counter.add(T0, 7);  // maps to the same slot, a lap behind
+
+        assertThat(counter.sum(T0 + 5 * MINUTE, 5)).isEqualTo(3);
+    }
+
+    @Test
+    void concurrentWritersAcrossARollLoseNothing() throws Exception {
+        int threads = 4, perThread = 50_000;
+        MinuteCounter counter = new MinuteCounter(3);
+        counter.add(T0 - 3 * MINUTE, 1_000);  // stale lap in the slot the writers will roll
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> done = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                done.add(pool.submit(() -> {
+                    go.await();
+                    for (int i = 0; i < perThread; i++) counter.add(T0 + i % MINUTE, 1);
+                    return null;
+                }));
+            }
+            go.countDown();
+            for (Future<?> f : done) f.get();
+        } finally {
+            pool.shutdown();
+        }
+        assertThat(counter.sum(T0, 1)).isEqualTo((long) threads * perThread);
+    }
+}
@@ -0,0 +1,107 @@
+package com.couponbot.couponbot.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+class MpscRingBufferTest {
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwo() {
+        assertThat(new MpscRingBuffer<>(1000).capacity()).isEqualTo(1024);
+        assertThat(new MpscRingBuffer<>(1024).capacity()).isEqualTo(1024);
+        assertThat(new MpscRingBuffer<>(1025).capacity()).isEqualTo(2048);
+    }
+
+    @Test
+    void fifoUntilFullThenRejects() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(8);
+        for (int i = 0; i < 8; i++) assertThat(buffer.offer(i)).isTrue();
+        assertThat(buffer.offer(8)).isFalse();
+        assertThat(buffer.size()).isEqualTo(8);
+
+        List<Integer> out = new ArrayList<>();
+        assertThat(buffer.drainTo(out, 3)).isEqualTo(3);
+        assertThat(out).containsExactly(0, 1, 2);
+        assertThat(buffer.size()).isEqualTo(5);
+
+        // the freed slots are usable again
+        for (int i = 8; i < 11; i++) assertThat(buffer.offer(i)).isTrue();
+        assertThat(buffer.offer(11)).isFalse();
+
+        out.clear();
+        assertThat(buffer.drainTo(out, 100)).isEqualTo(8);
+        assertThat(out).containsExactly(3, 4, 5, 6, 7, 8, 9, 10);
+        assertThat(buffer.drainTo(out, 100)).isZero();
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    void wrapsAroundManyTimes() {
+        MpscRingBuffer<Long> buffer = new MpscRingBuffer<>(4);
+        List<Long> out = new ArrayList<>();
+        long next = 0, expected = 0;
+        for (int round = 0; round < 100_000; round++) {
+            int n = round % 5;  // 0..4 items per round, so head and tail drift across slots
+            for (int i = 0; i < n; i++) assertThat(buffer.offer(next++)).isTrue();
+            out.clear();
+            buffer.drainTo(out, n);
+            for (long v : out) assertThat(v).isEqualTo(expected++);
+        }
+        assertThat(expected).isEqualTo(next);
+    }
+
+    @Test
+    void manyProducersLoseNothingAndKeepEachProducersOrder() throws Exception {
+        int producers = 4, perProducer = 100_000;
+        MpscRingBuffer<long[]> buffer = new MpscRingBuffer<>(256);
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> done = new ArrayList<>();
+        try {
+            for (int p = 0; p < producers; p++) {
+                long producer = p;
+                done.add(pool.submit(() -> {
+                    go.await();
+                    for (long i = 0; i < perProducer; i++) {
+                        long[] item = {producer, i};
+                        while (!buffer.offer(item)) Thread.yield();  // full: let the consumer run
+                    }
+                    return null;
+                }));
+            }
+            go.countDown();
+
+            long[] nextOf = new long[producers];
+            List<long[]> out = new ArrayList<>(256);
+            long received = 0, deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+            while (received < (long) producers * perProducer) {
+                if (System.nanoTime() > deadline) fail("only %d items drained in 60 s", received);
+                out.clear();
+                if (buffer.drainTo(out, 256) == 0) {
+                    Thread.yield();
+                    continue;
+                }
+                for (long[] item : out) {
+                    int p = (int) item[0];
+                    if (item[1] != nextOf[p]) fail("producer %d: got item %d, expected %d", p, item[1], nextOf[p]);
+                    nextOf[p]++;
+                }
+                received += out.size();
+            }
+            for (Future<?> f : done) f.get();
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(buffer.size()).isZero();
+    }
+}
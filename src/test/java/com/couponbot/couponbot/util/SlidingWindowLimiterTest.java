@@ -0,0 +1,125 @@
+package com.couponbot.couponbot.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SlidingWindowLimiterTest {
+
+    private static final long WINDOW = 1_000;
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Test
+    void allowsLimitEventsPerWindowAndSlides() {
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(2, WINDOW, 4);
+
+        assertThat(limiter.tryAcquire(7, T0)).isTrue();
+        assertThat(limiter.tryAcquire(7, T0 + 100)).isTrue();
+        assertThat(limiter.tryAcquire(7, T0 + 200)).isFalse();
+        assertThat(limiter.count(7, T0 + 200)).isEqualTo(2);
+
+        // the first event leaves the window, the second hasn't yet
+        assertThat(limiter.tryAcquire(7, T0 + WINDOW)).isTrue();
+        assertThat(limiter.tryAcquire(7, T0 + WINDOW + 50)).isFalse();
+        assertThat(limiter.tryAcquire(7, T0 + WINDOW + 100)).isTrue();
+    }
+
+    @Test
+    void keysAreIndependent() {
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(1, WINDOW, 1);
+
+        assertThat(limiter.tryAcquire(1, T0)).isTrue();
+        assertThat(limiter.tryAcquire(2, T0)).isTrue();
+        assertThat(limiter.tryAcquire(-1, T0)).isTrue();
+        assertThat(limiter.tryAcquire(1, T0)).isFalse();
+        assertThat(limiter.size()).isEqualTo(3);
+    }
+
+    @Test
+    void releaseGivesTheSlotBack() {
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(1, WINDOW, 4);
+
+        assertThat(limiter.tryAcquire(7, T0)).isTrue();
+        limiter.release(7, T0);
+        assertThat(limiter.count(7, T0)).isZero();
+        assertThat(limiter.tryAcquire(7, T0 + 1)).isTrue();
+
+        limiter.release(7, T0 + 999);  // not a stamp we hold: no effect
+        assertThat(limiter.count(7, T0 + 1)).isEqualTo(1);
+    }
+
+    @Test
+    void recordKeepsTheNewestStampsAndSkipsExpiredOnes() {
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(2, WINDOW, 4);
+        long now = T0 + WINDOW;
+
+        limiter.record(7, T0, now);            // already outside the window
+        limiter.record(7, now - 300, now);
+        limiter.record(7, now - 300, now);     // same stamp twice counts once
+        assertThat(limiter.count(7, now)).isEqualTo(1);
+
+        limiter.record(7, now - 200, now);
+        limiter.record(7, now - 100, now);
+        assertThat(limiter.count(7, now)).isEqualTo(2);
+        // the oldest kept stamp (now - 200) expires first
+        assertThat(limiter.count(7, now - 200 + WINDOW)).isEqualTo(1);
+    }
+
+    @Test
+    void purgeDropsKeysWithNothingLeftInTheWindow() {
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(2, WINDOW, 8);
+        for (long user = 0; user < 100_000; user++) limiter.tryAcquire(user, T0);
+        limiter.tryAcquire(42, T0 + 900);
+        long full = limiter.memoryBytes();
+
+        assertThat(limiter.purge(T0 + WINDOW + 1)).isEqualTo(1);
+        assertThat(limiter.size()).isEqualTo(1);
+        assertThat(limiter.count(42, T0 + WINDOW + 1)).isEqualTo(1);
+        assertThat(limiter.memoryBytes()).isLessThan(full / 100);
+    }
+
+    @Test
+    void expiredKeysAreReusedInsteadOfGrowingTheTable() {
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(2, WINDOW, 1);
+        for (long user = 0; user < 1_000; user++) limiter.tryAcquire(user, T0);
+        long afterFirstWave = limiter.memoryBytes();
+
+        for (long user = 1_000; user < 2_000; user++) limiter.tryAcquire(user, T0 + 2 * WINDOW);
+
+        assertThat(limiter.size()).isEqualTo(1_000);
+        assertThat(limiter.memoryBytes()).isEqualTo(afterFirstWave);
+    }
+
+    @Test
+    void agreesWithANaiveCountUnderRandomTraffic() {
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(3, WINDOW, 4);
+        Random random = new Random(1);
+        long[][] history = new long[50][];
+        for (int u = 0; u < history.length; u++) history[u] = new long[0];
+
+        long now = T0;
+        for (int i = 0; i < 20_000; i++) {
+            now += random.nextInt(40);
+            int user = random.nextInt(history.length);
+            int inWindow = 0;
+            for (long t : history[user]) if (t > now - WINDOW) inWindow++;
+
+            boolean allowed = limiter.tryAcquire(user, now);
+            assertThat(allowed).as("event %d", i).isEqualTo(inWindow < 3);
+            if (allowed) {
+                long[] h = Arrays.copyOf(history[user], history[user].length + 1);
+                h[h.length - 1] = now;
+                history[user] = h;
+            }
+        }
+    }
+
+    @Test
+    void rejectsAZeroLimit() {
+        assertThatThrownBy(() -> new SlidingWindowLimiter(0, WINDOW, 4)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
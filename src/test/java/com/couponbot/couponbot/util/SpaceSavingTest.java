@@ -0,0 +1,71 @@
+package com.couponbot.couponbot.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpaceSavingTest {
+
+    @Test
+    void countsExactlyWhileUnderCapacity() {
+        SpaceSaving top = new SpaceSaving(4);
+        top.offer(1, 5);
+        top.offer(2, 3);
+        top.offer(1, 2);
+        top.offer(3, 3);
+
+        assertThat(top.size()).isEqualTo(3);
+        assertThat(top.top(10)).containsExactly(
+                new SpaceSaving.Entry(1, 7, 0),
+                new SpaceSaving.Entry(2, 3, 0),  // ties by key
+                new SpaceSaving.Entry(3, 3, 0));
+        assertThat(top.top(1)).containsExactly(new SpaceSaving.Entry(1, 7, 0));
+    }
+
+    @Test
+    void aNewKeyTakesOverTheSmallestCounter() {
+        SpaceSaving top = new SpaceSaving(2);
+        top.offer(1, 10);
+        top.offer(2, 4);
+        top.offer(3, 1);
+
+        assertThat(top.size()).isEqualTo(2);
+        assertThat(top.top(2)).containsExactly(
+                new SpaceSaving.Entry(1, 10, 0),
+                new SpaceSaving.Entry(3, 5, 4));
+    }
+
+    @Test
+    void heavyHittersAreTrackedWithinTheirErrorBounds() {
+        int capacity = 50;
+        SpaceSaving top = new SpaceSaving(capacity);
+        Map<Long, Long> exact = new HashMap<>();
+        Random random = new Random(23);
+        long total = 0;
+        for (int i = 0; i < 200_000; i++) {
+            // five heavy submitters over a long tail of 10,000 occasional ones
+            long key = random.nextInt(4) == 0 ? random.nextInt(5) : 100 + random.nextInt(10_000);
+            long n = 1 + random.nextInt(3);
+            top.offer(key, n);
+            exact.merge(key, n, Long::sum);
+            total += n;
+        }
+
+        List<SpaceSaving.Entry> tracked = top.top(capacity);
+        assertThat(tracked).hasSize(capacity);
+        for (SpaceSaving.Entry e : tracked) {
+            long truth = exact.getOrDefault(e.key(), 0L);
+            assertThat(truth).as("key %d", e.key()).isBetween(e.count() - e.error(), e.count());
+        }
+        long threshold = total / capacity;
+        exact.forEach((key, count) -> {
+            if (count > threshold) assertThat(tracked).extracting(SpaceSaving.Entry::key).contains(key);
+        });
+        assertThat(top.top(5)).extracting(SpaceSaving.Entry::key).containsExactlyInAnyOrder(0L, 1L, 2L, 3L, 4L);
+    }
+}